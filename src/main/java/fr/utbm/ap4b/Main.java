@@ -1,9 +1,29 @@
 package fr.utbm.ap4b;
 
+import fr.utbm.ap4b.simulation.GameArchiveBuilder;
+import fr.utbm.ap4b.simulation.SimulationRunner;
+import fr.utbm.ap4b.simulation.TablebaseGenerator;
 import fr.utbm.ap4b.view.TrioApp;
 
+import java.util.Arrays;
+
 public class Main {
     public static void main(String[] args) {
+        // Simulation sans interface graphique : JavaFX n'est pas démarré
+        if (args.length > 0 && SimulationRunner.OPTION.equals(args[0])) {
+            SimulationRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Génération hors ligne d'une table de finales
+        if (args.length > 0 && TablebaseGenerator.OPTION.equals(args[0])) {
+            TablebaseGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Construction et interrogation d'une archive de parties
+        if (args.length > 0 && GameArchiveBuilder.OPTION.equals(args[0])) {
+            GameArchiveBuilder.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         // Lancement direct de l'application graphique JavaFX
         TrioApp.main(args);
     }
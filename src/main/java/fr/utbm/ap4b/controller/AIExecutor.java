@@ -0,0 +1,466 @@
+package fr.utbm.ap4b.controller;
+
+import fr.utbm.ap4b.model.Action;
+import fr.utbm.ap4b.model.Game;
+import fr.utbm.ap4b.model.HeuristicPolicy;
+import fr.utbm.ap4b.model.Policy;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+/**
+ * Calcule les décisions des IA sur un thread dédié, hors du thread JavaFX.
+ * <p>
+ * La partie est copiée sur le thread JavaFX au moment de la demande : le thread de calcul ne lit jamais
+ * le modèle affiché, et seule l'action choisie revient sur le thread JavaFX ({@link Platform#runLater(Runnable)}).
+ * Une décision qui dépasse le délai imparti est interrompue et remplacée par celle, immédiate,
+ * de la {@link HeuristicPolicy}. Une demande annulée (partie abandonnée, nouvelle demande) n'est jamais livrée.
+ * <p>
+ * Pendant les pauses de l'interface (messages, animations), une décision peut être calculée par anticipation
+ * ({@link #speculate(Game, Policy)}) sur la position qui va suivre. Si la demande porte ensuite sur la même position
+ * (même clé de Zobrist) et la même stratégie, le calcul anticipé est repris, terminé ou non ; sinon il est abandonné.
+ * <p>
+ * Toutes les méthodes publiques doivent être appelées sur le thread JavaFX.
+ */
+public class AIExecutor {
+
+    /**
+     * Délai par défaut accordé à une décision, en millisecondes.
+     */
+    public static final long DEFAULT_DEADLINE_MILLIS = 5_000;
+
+    private static final HeuristicPolicy FALLBACK = new HeuristicPolicy();
+
+    private final long deadlineMillis;
+    private final ExecutorService executor;
+    private final RandomGenerator random = new SplittableRandom();
+
+    // Demande en cours : toute livraison portant un autre numéro est ignorée
+    private long requestId = 0;
+    private Future<?> pending;
+    private PauseTransition watchdog;
+    private boolean closed = false;
+
+    // Calcul anticipé en attente d'une demande, ou null
+    private Speculation speculation;
+
+    // Mesures
+    private DecisionTiming lastTiming;
+    private long decisionCount = 0;
+    private long timeoutCount = 0;
+    private long cancelledCount = 0;
+    private long totalComputeNanos = 0;
+    private long maxComputeNanos = 0;
+    private long speculationHitCount = 0;
+    private long speculationMissCount = 0;
+
+    /**
+     * Temps d'une décision, du thread JavaFX au thread de calcul et retour (en nanosecondes).
+     */
+    public static final class DecisionTiming {
+
+        private final long queueNanos;
+        private final long computeNanos;
+        private final long deliveryNanos;
+        private final boolean timedOut;
+
+        DecisionTiming(long queueNanos, long computeNanos, long deliveryNanos, boolean timedOut) {
+            this.queueNanos = queueNanos;
+            this.computeNanos = computeNanos;
+            this.deliveryNanos = deliveryNanos;
+            this.timedOut = timedOut;
+        }
+
+        /**
+         * @return L'attente entre la demande et le début du calcul.
+         */
+        public long getQueueNanos() {
+            return queueNanos;
+        }
+
+        /**
+         * @return La durée du calcul (jusqu'au délai si la décision l'a dépassé).
+         */
+        public long getComputeNanos() {
+            return computeNanos;
+        }
+
+        /**
+         * @return L'attente entre la fin du calcul et la réception de l'action sur le thread JavaFX.
+         */
+        public long getDeliveryNanos() {
+            return deliveryNanos;
+        }
+
+        /**
+         * @return Vrai si la décision a dépassé le délai et a été remplacée par l'heuristique.
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public long getTotalNanos() {
+            return queueNanos + computeNanos + deliveryNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("attente %.1f ms, calcul %.1f ms, retour %.1f ms%s", queueNanos / 1e6,
+                    computeNanos / 1e6, deliveryNanos / 1e6, timedOut ? " (délai dépassé)" : "");
+        }
+    }
+
+    /**
+     * Calcul anticipé d'une décision. Ses champs ne sont lus et modifiés que sur le thread JavaFX.
+     */
+    private static final class Speculation {
+
+        private final long key;
+        private final Policy policy;
+        private Future<?> future;
+
+        // Résultat, une fois le calcul terminé
+        private boolean done = false;
+        private Action action;
+        private long startedAt;
+        private long computedAt;
+
+        // Demande qui a repris le calcul avant sa fin (requestId 0 : aucune)
+        private long requestId = 0;
+        private Game game;
+        private long requestedAt;
+        private Consumer<Action> onDecision;
+
+        private Speculation(long key, Policy policy) {
+            this.key = key;
+            this.policy = policy;
+        }
+    }
+
+    /**
+     * @param deadlineMillis Le délai accordé à chaque décision, en millisecondes.
+     * @throws IllegalArgumentException Si le délai n'est pas strictement positif.
+     */
+    public AIExecutor(long deadlineMillis) {
+        if (deadlineMillis <= 0) {
+            throw new IllegalArgumentException("Le délai de décision doit être strictement positif.");
+        }
+        this.deadlineMillis = deadlineMillis;
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "Trio-IA");
+            thread.setDaemon(true); // Ne retient pas la fermeture de l'application
+            return thread;
+        });
+    }
+
+    /**
+     * Demande la décision du joueur courant, contrôlé par une stratégie. Une demande précédente est annulée.
+     *
+     * @param game La partie affichée, copiée immédiatement.
+     * @param onDecision Reçoit l'action choisie sur le thread JavaFX, sauf si la demande est annulée entre-temps.
+     * @throws IllegalStateException Si l'exécuteur est fermé.
+     */
+    public void requestDecision(Game game, Consumer<Action> onDecision) {
+        requestDecision(game, game.getCurrentPlayer().getPolicy(), onDecision);
+    }
+
+    /**
+     * Demande une décision à une stratégie donnée, par exemple celle d'une IA attendue pour un échange.
+     * Une demande précédente est annulée.
+     *
+     * @param game La partie affichée, copiée immédiatement.
+     * @param policy La stratégie qui décide.
+     * @param onDecision Reçoit l'action choisie sur le thread JavaFX, sauf si la demande est annulée entre-temps.
+     * @throws IllegalStateException Si l'exécuteur est fermé.
+     */
+    public void requestDecision(Game game, Policy policy, Consumer<Action> onDecision) {
+        submit(game, policy, FALLBACK, onDecision);
+    }
+
+    /**
+     * Demande à une IA la carte qu'elle rend en réponse à celle que son coéquipier lui donne
+     * ({@link HeuristicPolicy#chooseReply}). Une demande précédente est annulée.
+     *
+     * @param game La partie affichée, en phase d'échange, copiée immédiatement.
+     * @param initiatorIndex L'index du joueur qui a initié l'échange.
+     * @param giveCardId La carte qu'il donne.
+     * @param onDecision Reçoit l'échange complet sur le thread JavaFX, sauf si la demande est annulée entre-temps.
+     * @throws IllegalStateException Si l'exécuteur est fermé.
+     */
+    public void requestReply(Game game, int initiatorIndex, int giveCardId, Consumer<Action> onDecision) {
+        // La réponse sert aussi de repli : même après un délai dépassé, la carte donnée reste celle choisie
+        Policy reply = (view, random) -> FALLBACK.chooseReply(view, initiatorIndex, giveCardId);
+        submit(game, reply, reply, onDecision);
+    }
+
+    private void submit(Game game, Policy policy, Policy fallback, Consumer<Action> onDecision) {
+        if (closed) {
+            throw new IllegalStateException("L'exécuteur des IA est fermé.");
+        }
+        cancel();
+        long id = ++requestId;
+        long requestedAt = System.nanoTime();
+        if (claimSpeculation(id, game, policy, requestedAt, onDecision)) {
+            return;
+        }
+        Game snapshot = game.copy();
+        RandomGenerator taskRandom = new SplittableRandom(random.nextLong());
+
+        pending = executor.submit(() -> {
+            long startedAt = System.nanoTime();
+            Action action = null;
+            try {
+                action = policy.chooseAction(snapshot, taskRandom);
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // L'heuristique prendra le relais à la livraison
+            }
+            long computedAt = System.nanoTime();
+            Action chosen = action;
+            Platform.runLater(() -> deliver(id, game, chosen, fallback, requestedAt, startedAt, computedAt, onDecision));
+        });
+
+        startWatchdog(id, game, fallback, requestedAt, onDecision);
+    }
+
+    /**
+     * Commence à calculer par anticipation la décision d'une stratégie sur une position à venir,
+     * par exemple celle qui suivra la fin du tour en cours. Sans effet si une demande est en cours
+     * ou si la même position est déjà anticipée pour cette stratégie ; remplace tout autre calcul anticipé.
+     *
+     * @param position La position sur laquelle la stratégie aura à décider, copiée immédiatement.
+     * @param policy La stratégie qui décidera.
+     * @throws IllegalStateException Si l'exécuteur est fermé.
+     */
+    public void speculate(Game position, Policy policy) {
+        if (closed) {
+            throw new IllegalStateException("L'exécuteur des IA est fermé.");
+        }
+        long key = position.getZobristKey();
+        if (pending != null || (speculation != null && speculation.key == key && speculation.policy == policy)) {
+            return;
+        }
+        cancelSpeculation();
+        Game snapshot = position.copy();
+        RandomGenerator taskRandom = new SplittableRandom(random.nextLong());
+        Speculation current = new Speculation(key, policy);
+
+        current.future = executor.submit(() -> {
+            long startedAt = System.nanoTime();
+            Action action = null;
+            try {
+                action = policy.chooseAction(snapshot, taskRandom);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            long computedAt = System.nanoTime();
+            Action chosen = action;
+            Platform.runLater(() -> speculationFinished(current, chosen, startedAt, computedAt));
+        });
+        speculation = current;
+    }
+
+    /**
+     * Abandonne le calcul anticipé en cours, s'il y en a un (la position attendue n'a pas été atteinte).
+     */
+    public void cancelSpeculation() {
+        if (speculation != null) {
+            speculation.future.cancel(true);
+            speculation = null;
+            speculationMissCount++;
+        }
+    }
+
+    /**
+     * Annule la demande en cours, s'il y en a une : le calcul est interrompu et son résultat ne sera pas livré.
+     */
+    public void cancel() {
+        requestId++;
+        if (watchdog != null) {
+            watchdog.stop();
+            watchdog = null;
+        }
+        if (pending != null) {
+            if (!pending.isDone()) {
+                cancelledCount++;
+            }
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    /**
+     * Annule la demande en cours et arrête le thread de calcul (partie abandonnée ou terminée).
+     */
+    public void close() {
+        cancel();
+        cancelSpeculation();
+        closed = true;
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Vrai si une décision est en cours de calcul.
+     */
+    public boolean isBusy() {
+        return pending != null;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /**
+     * @return Les temps de la dernière décision livrée, ou null.
+     */
+    public DecisionTiming getLastTiming() {
+        return lastTiming;
+    }
+
+    public long getDecisionCount() {
+        return decisionCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    public long getTotalComputeNanos() {
+        return totalComputeNanos;
+    }
+
+    public long getMaxComputeNanos() {
+        return maxComputeNanos;
+    }
+
+    /**
+     * @return Le nombre de demandes servies par un calcul anticipé.
+     */
+    public long getSpeculationHitCount() {
+        return speculationHitCount;
+    }
+
+    /**
+     * @return Le nombre de calculs anticipés abandonnés.
+     */
+    public long getSpeculationMissCount() {
+        return speculationMissCount;
+    }
+
+    /**
+     * @return Un résumé des mesures, pour la console.
+     */
+    public String getMetricsSummary() {
+        double average = decisionCount == 0 ? 0 : totalComputeNanos / 1e6 / decisionCount;
+        return String.format("%d décisions des IA, calcul moyen %.1f ms, maximum %.1f ms, %d délais dépassés, %d annulées, "
+                        + "%d anticipées (%d anticipations abandonnées)", decisionCount, average, maxComputeNanos / 1e6,
+                timeoutCount, cancelledCount, speculationHitCount, speculationMissCount);
+    }
+
+    private void startWatchdog(long id, Game game, Policy fallback, long requestedAt, Consumer<Action> onDecision) {
+        watchdog = new PauseTransition(Duration.millis(deadlineMillis));
+        watchdog.setOnFinished(e -> expire(id, game, fallback, requestedAt, onDecision));
+        watchdog.play();
+    }
+
+    /**
+     * Reprend le calcul anticipé s'il porte sur la position et la stratégie demandées, et l'abandonne sinon.
+     * Un calcul terminé est livré immédiatement ; un calcul en cours devient la demande en cours,
+     * avec son propre délai compté à partir de la demande.
+     *
+     * @return Vrai si la demande est servie par le calcul anticipé.
+     */
+    private boolean claimSpeculation(long id, Game game, Policy policy, long requestedAt, Consumer<Action> onDecision) {
+        Speculation current = speculation;
+        if (current == null || current.key != game.getZobristKey() || current.policy != policy) {
+            cancelSpeculation();
+            return false;
+        }
+        speculation = null;
+        speculationHitCount++;
+        if (current.done) {
+            // Le calcul a eu lieu pendant la pause : rien à attendre
+            record(new DecisionTiming(0, current.computedAt - current.startedAt, 0, false));
+            onDecision.accept(current.action != null ? current.action : FALLBACK.chooseAction(game, random));
+            return true;
+        }
+        current.requestId = id;
+        current.game = game;
+        current.requestedAt = requestedAt;
+        current.onDecision = onDecision;
+        pending = current.future;
+        startWatchdog(id, game, FALLBACK, requestedAt, onDecision);
+        return true;
+    }
+
+    /**
+     * Reçoit sur le thread JavaFX le résultat d'un calcul anticipé : il est livré s'il a été repris par une demande,
+     * conservé s'il attend encore la sienne, ignoré s'il a été abandonné.
+     */
+    private void speculationFinished(Speculation current, Action action, long startedAt, long computedAt) {
+        if (current.requestId != 0) {
+            // La demande compte à partir de sa création, même si le calcul a commencé avant
+            deliver(current.requestId, current.game, action, FALLBACK, current.requestedAt, current.requestedAt,
+                    Math.max(computedAt, current.requestedAt), current.onDecision);
+            return;
+        }
+        if (current != speculation) {
+            return;
+        }
+        current.done = true;
+        current.action = action;
+        current.startedAt = startedAt;
+        current.computedAt = computedAt;
+    }
+
+    /**
+     * Reçoit sur le thread JavaFX le résultat d'un calcul terminé.
+     */
+    private void deliver(long id, Game game, Action action, Policy fallback, long requestedAt, long startedAt,
+                         long computedAt, Consumer<Action> onDecision) {
+        if (id != requestId || closed) {
+            return; // Demande annulée ou remplacée
+        }
+        watchdog.stop();
+        watchdog = null;
+        pending = null;
+        if (action == null) {
+            action = fallback.chooseAction(game, random);
+        }
+        record(new DecisionTiming(startedAt - requestedAt, computedAt - startedAt, System.nanoTime() - computedAt, false));
+        onDecision.accept(action);
+    }
+
+    /**
+     * Délai dépassé : le calcul est interrompu et l'heuristique décide sur le thread JavaFX.
+     */
+    private void expire(long id, Game game, Policy fallback, long requestedAt, Consumer<Action> onDecision) {
+        if (id != requestId || closed) {
+            return;
+        }
+        watchdog = null;
+        pending.cancel(true);
+        pending = null;
+        requestId++;
+        timeoutCount++;
+        record(new DecisionTiming(0, System.nanoTime() - requestedAt, 0, true));
+        onDecision.accept(fallback.chooseAction(game, random));
+    }
+
+    private void record(DecisionTiming timing) {
+        lastTiming = timing;
+        decisionCount++;
+        totalComputeNanos += timing.getComputeNanos();
+        maxComputeNanos = Math.max(maxComputeNanos, timing.getComputeNanos());
+    }
+}
@@ -41,17 +41,8 @@ public class EndGameController {
         }
 
         // Vérification spécifique pour la victoire "Trio de 7"
-        if (winner != null) {
-            CompletedTrios completedTrios = gameModel.getCompletedTrios();
-            List<List<Card>> winnerTrios = completedTrios.getTriosForPlayer(winner.getPlayerIndex());
-            if (winnerTrios != null) {
-                for (List<Card> trio : winnerTrios) {
-                    if (!trio.isEmpty() && trio.get(0).getValue() == 7) {
-                        winReason = "Trio de 7 !";
-                        break;
-                    }
-                }
-            }
+        if (gameModel.getCompletedTrios().getWinReason() == CompletedTrios.WinReason.TRIO_OF_SEVENS) {
+            winReason = "Trio de 7 !";
         }
 
         // Construire la map des scores pour l'affichage détaillé
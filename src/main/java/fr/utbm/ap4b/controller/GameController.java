@@ -2,10 +2,21 @@ package fr.utbm.ap4b.controller;
 
 import fr.utbm.ap4b.model.*;
 import fr.utbm.ap4b.view.*;
+import javafx.animation.PauseTransition;
+import javafx.event.EventHandler;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.stage.Stage;
-
+import javafx.stage.WindowEvent;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 /**
@@ -16,6 +27,19 @@ import java.util.*;
  */
 public class GameController {
 
+    // Délai entre deux actions d'une IA, pour que les joueurs humains puissent les suivre
+    private static final int AI_STEP_DELAY_MS = 900;
+
+    /**
+     * Fichier auquel chaque partie jouée est ajoutée à sa fin ou à son abandon ({@link GameRecordWriter}).
+     */
+    public static final Path RECORD_FILE = Paths.get(System.getProperty("user.home"), "trio-parties.rec");
+
+    /**
+     * Fichier de sauvegarde de la partie en cours ({@link GameSnapshot}), réécrit à chaque tour et supprimé à sa fin.
+     */
+    public static final Path SAVE_FILE = Paths.get(System.getProperty("user.home"), "trio-sauvegarde.snap");
+
     private final Stage primaryStage;
     private final Game gameModel;
     private GameMainPage gameView;
@@ -24,6 +48,25 @@ public class GameController {
     private int turnCounter = 0;
     private Integer selectedPlayer = null;
 
+    // Les décisions des IA sont calculées hors du thread JavaFX
+    private final AIExecutor aiExecutor = new AIExecutor(AIExecutor.DEFAULT_DEADLINE_MILLIS);
+    private final EventHandler<WindowEvent> abandonHandler = e -> {
+        disposeAI();
+        // Une partie sauvegardée sera enregistrée en entier à sa reprise
+        if (!closeSaveFile(false)) {
+            saveRecord();
+        }
+    };
+
+    // Enregistrement des actions de la partie, null si la partie n'a pas de graine
+    private GameRecorder recorder;
+
+    // Sauvegarde automatique : le tampon et le fichier restent ouverts d'un tour à l'autre
+    private final GameSnapshot snapshot = new GameSnapshot();
+    private ByteBuffer saveBuffer;
+    private FileChannel saveChannel;
+    private boolean saveFailed = false;
+
     /**
      * Constructeur du contrôleur de jeu.
      * @param primaryStage La fenêtre principale de l'application.
@@ -32,6 +75,62 @@ public class GameController {
     public GameController(Stage primaryStage, Game gameModel) {
         this.primaryStage = primaryStage;
         this.gameModel = gameModel;
+        // Fermer la fenêtre abandonne la partie : la réflexion en cours est interrompue
+        primaryStage.addEventHandler(WindowEvent.WINDOW_HIDDEN, abandonHandler);
+    }
+
+    /**
+     * @return L'exécuteur des décisions des IA, et ses mesures de temps par décision.
+     */
+    public AIExecutor getAIExecutor() {
+        return aiExecutor;
+    }
+
+    /**
+     * @return La partie pilotée par ce contrôleur.
+     */
+    public Game getGameModel() {
+        return gameModel;
+    }
+
+    /**
+     * @return Vrai si une partie interrompue a été sauvegardée ({@link #SAVE_FILE}).
+     */
+    public static boolean hasSavedGame() {
+        return Files.isRegularFile(SAVE_FILE);
+    }
+
+    /**
+     * Supprime la sauvegarde de partie. Un échec est signalé sur la console.
+     */
+    public static void deleteSavedGame() {
+        try {
+            Files.deleteIfExists(SAVE_FILE);
+        } catch (IOException e) {
+            System.err.println("Impossible de supprimer la sauvegarde : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recrée la partie sauvegardée ({@link #SAVE_FILE}) et son contrôleur ; la partie reprend avec {@link #resumeGame()}.
+     * Son enregistrement reprend à la suite des actions sauvegardées avec elle.
+     *
+     * @param primaryStage La fenêtre principale de l'application.
+     * @return Le contrôleur de la partie restaurée.
+     * @throws IOException Si la sauvegarde est illisible, altérée ou incohérente.
+     */
+    public static GameController resumeSavedGame(Stage primaryStage) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(SAVE_FILE));
+        GameRecorder recorder = new GameRecorder();
+        Game game;
+        try {
+            game = new GameSnapshot().decode(buffer, recorder);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        GameController controller = new GameController(primaryStage, game);
+        controller.recorder = recorder.getGame() == game ? recorder : null;
+        return controller;
     }
 
     /**
@@ -40,8 +139,13 @@ public class GameController {
      * et initialise l'interface en conséquence.
      */
     public void startGame() {
+        if (gameModel.getSeed().isPresent()) {
+            recorder = new GameRecorder();
+            recorder.attach(gameModel);
+        }
         gameModel.startGame();
         turnCounter = 0;
+        autosave();
 
         String modeMessage = gameModel.isTeamMode() ? "Mode Équipe" : "Mode Solo";
         
@@ -50,6 +154,24 @@ public class GameController {
         } else {
             openGamePage();
             gameView.showOverlayMessage("Début de la partie - " + modeMessage, 2000);
+            scheduleAIStepIfNeeded();
+        }
+    }
+
+    /**
+     * Reprend une partie restaurée ({@link #resumeSavedGame(Stage)}) là où elle a été sauvegardée :
+     * au plateau, ou dans la phase d'échange en cours avec les échanges qui restent à faire.
+     */
+    public void resumeGame() {
+        turnCounter = 0;
+        autosave();
+
+        if (gameModel.getCurrentPhase() != Game.GamePhase.PLAYING) {
+            startSwapPhase();
+        } else {
+            openGamePage();
+            gameView.showOverlayMessage("Reprise de la partie - Tour de " + gameModel.getCurrentPlayer().getName(), 2000);
+            scheduleAIStepIfNeeded();
         }
     }
 
@@ -63,7 +185,8 @@ public class GameController {
             // Callback exécuté quand l'échange est fini : on revient au jeu principal
             openGamePage();
             gameView.showOverlayMessage("Échanges terminés ! À vous de jouer.", 2000);
-        });
+            scheduleAIStepIfNeeded();
+        }, this::autosave, aiExecutor);
         swapController.startSwapPhase();
     }
 
@@ -201,18 +324,19 @@ public class GameController {
             gameView.clearBoard();
         }
 
-        updateArrowButtons(revealedCards);
+        updateArrowButtons();
         
         // Log console pour le débogage
         System.out.println("Tour " + turnCounter + " - " + currentPlayer.getName() + " joue");
     }
 
     /**
-     * Met à jour la visibilité des flèches d'action en fonction du nombre de cartes déjà révélées.
-     * Si 3 cartes sont révélées (tour fini ou trio), on cache les flèches.
+     * Met à jour la visibilité des flèches d'action : elles restent affichées tant que le joueur sélectionné
+     * a encore une carte révélable ({@link LegalActions}).
      */
-    private void updateArrowButtons(List<CardLocation> revealedCards) {
-        if (selectedPlayer != null && revealedCards.size() < 3) {
+    private void updateArrowButtons() {
+        long legal = LegalActions.revealMask(gameModel);
+        if (selectedPlayer != null && (legal & (1L << (selectedPlayer - 1))) != 0L) {
             gameView.showArrowsForPlayer(selectedPlayer);
         } else {
             gameView.hideAllArrows();
@@ -226,7 +350,8 @@ public class GameController {
      * Action : Révéler la plus petite carte du joueur courant.
      */
     private void revealSmallestCard() {
-        revealCardAction(() -> gameModel.getCurrentPlayer().getHand().getSmallestCard(),
+        revealCardAction(gameModel.getPlayerTurn(),
+                () -> gameModel.getCurrentPlayer().getHand().getSmallestCard(gameModel.getRevealedMask()),
                 () -> gameModel.revealSmallestCardFromPlayer(gameModel.getCurrentPlayer().getPlayerIndex()));
     }
 
@@ -234,7 +359,8 @@ public class GameController {
      * Action : Révéler la plus grande carte du joueur courant.
      */
     private void revealLargestCard() {
-        revealCardAction(() -> gameModel.getCurrentPlayer().getHand().getLargestCard(),
+        revealCardAction(LegalActions.REVEAL_LARGEST_BASE + gameModel.getPlayerTurn(),
+                () -> gameModel.getCurrentPlayer().getHand().getLargestCard(gameModel.getRevealedMask()),
                 () -> gameModel.revealLargestCardFromPlayer(gameModel.getCurrentPlayer().getPlayerIndex()));
     }
 
@@ -243,7 +369,7 @@ public class GameController {
      */
     private void revealSmallestCardFromPlayer(int viewPlayerId) {
         int modelPlayerId = viewPlayerId - 1;
-        revealCardAction(null, () -> gameModel.revealSmallestCardFromPlayer(modelPlayerId));
+        revealCardAction(modelPlayerId, null, () -> gameModel.revealSmallestCardFromPlayer(modelPlayerId));
     }
 
     /**
@@ -251,7 +377,8 @@ public class GameController {
      */
     private void revealLargestCardFromPlayer(int viewPlayerId) {
         int modelPlayerId = viewPlayerId - 1;
-        revealCardAction(null, () -> gameModel.revealLargestCardFromPlayer(modelPlayerId));
+        revealCardAction(LegalActions.REVEAL_LARGEST_BASE + modelPlayerId, null,
+                () -> gameModel.revealLargestCardFromPlayer(modelPlayerId));
     }
 
     /**
@@ -259,25 +386,30 @@ public class GameController {
      * Gère les vérifications d'usage, l'exécution de l'action, la mise à jour de l'affichage
      * et la gestion des erreurs.
      *
-     * @param cardSupplier Fonction pour récupérer la carte (optionnel, pour vérification locale).
+     * @param actionCode Le code de la révélation ({@link LegalActions}), pour vérifier qu'elle est autorisée.
+     * @param cardSupplier Fonction pour récupérer la carte (optionnel, pour le marquage visuel).
      * @param revealAction L'action du modèle à exécuter.
      */
-    private void revealCardAction(java.util.function.Supplier<Card> cardSupplier, Runnable revealAction) {
+    private void revealCardAction(int actionCode, java.util.function.Supplier<Card> cardSupplier, Runnable revealAction) {
+        if (isAITurn()) {
+            return; // Les IA jouent seules
+        }
         if (!gameModel.canRevealCard()) {
             showErrorMessage("Vous ne pouvez pas révéler plus de cartes !");
             return;
         }
+        if (!LegalActions.isLegal(gameModel, actionCode)) {
+            showErrorMessage("Aucune carte disponible !");
+            return;
+        }
 
         try {
             if (cardSupplier != null) {
                 Card card = cardSupplier.get();
-                if (card == null) {
-                    showErrorMessage("Aucune carte disponible !");
-                    return;
-                }
                 // Optimisation visuelle : marquer la carte si c'est celle du joueur courant
-                if (cardSupplier.get().equals(gameModel.getCurrentPlayer().getHand().getSmallestCard()) || 
-                    cardSupplier.get().equals(gameModel.getCurrentPlayer().getHand().getLargestCard())) {
+                long revealedMask = gameModel.getRevealedMask();
+                if (card.equals(gameModel.getCurrentPlayer().getHand().getSmallestCard(revealedMask)) ||
+                    card.equals(gameModel.getCurrentPlayer().getHand().getLargestCard(revealedMask))) {
                      gameView.markCardAsRevealed(card);
                 }
             }
@@ -308,6 +440,7 @@ public class GameController {
 
             if (card1.getValue() != card2.getValue()) {
                 // Cartes différentes : Fin du tour forcée avec message bloquant
+                speculateNextTurn();
                 gameView.showBlockingMessage(
                     "Cartes différentes (" + card1.getValue() + " et " + card2.getValue() + ")",
                     "Fin du tour",
@@ -341,6 +474,7 @@ public class GameController {
             }
         }
 
+        speculateNextTurn();
         if (isTrio) {
             gameView.showBlockingMessage(
                 "TRIO FORMÉ !",
@@ -376,6 +510,7 @@ public class GameController {
             endGame();
             return; // Arrêt immédiat
         }
+        autosave();
 
         // Vérifier si une phase d'échange a été déclenchée (Trio en mode équipe)
         if (gameModel.getCurrentPhase() == Game.GamePhase.POST_TRIO_SWAP) {
@@ -385,6 +520,81 @@ public class GameController {
 
         // Sinon, continuation normale
         gameView.showOverlayMessage("Tour de " + gameModel.getCurrentPlayer().getName(), 2000);
+        scheduleAIStepIfNeeded();
+    }
+
+    // --- Tours des IA ---
+
+    /**
+     * @return Vrai si le joueur courant est contrôlé par une stratégie (IA).
+     */
+    private boolean isAITurn() {
+        return gameModel.getCurrentPlayer().getPolicy() != null;
+    }
+
+    /**
+     * Programme la prochaine action de l'IA si c'est à elle de jouer.
+     */
+    private void scheduleAIStepIfNeeded() {
+        if (!isAITurn() || gameModel.isGameEnded() || gameModel.getCurrentPhase() != Game.GamePhase.PLAYING) {
+            return;
+        }
+        // La décision est calculée pendant la pause, puis reprise par playAIStep
+        aiExecutor.speculate(gameModel, gameModel.getCurrentPlayer().getPolicy());
+        PauseTransition pause = new PauseTransition(Duration.millis(AI_STEP_DELAY_MS));
+        pause.setOnFinished(e -> playAIStep());
+        pause.play();
+    }
+
+    /**
+     * Le tour courant est résolu : pendant le message qui l'annonce, la première décision du joueur suivant
+     * est calculée par anticipation si c'est une IA, sur une copie de la partie où le tour est déjà terminé.
+     * Le calcul est abandonné si la partie prend un autre cours (échange après un trio, fin de partie...).
+     */
+    private void speculateNextTurn() {
+        Game next = gameModel.copy();
+        next.nextTurn();
+        Actor nextPlayer = next.getCurrentPlayer();
+        if (nextPlayer.getPolicy() != null && !next.isGameEnded() && next.getCurrentPhase() == Game.GamePhase.PLAYING) {
+            aiExecutor.speculate(next, nextPlayer.getPolicy());
+        }
+    }
+
+    /**
+     * Demande l'action suivante de l'IA courante. Le calcul a lieu hors du thread JavaFX,
+     * l'action choisie est jouée par {@link #applyAIAction(Action)}.
+     */
+    private void playAIStep() {
+        if (!isAITurn() || gameModel.isGameEnded() || gameModel.getCurrentPhase() != Game.GamePhase.PLAYING) {
+            return;
+        }
+        aiExecutor.requestDecision(gameModel, this::applyAIAction);
+    }
+
+    /**
+     * Joue l'action choisie par l'IA courante : révélation d'une carte, ou fin de son tour.
+     * Les actions sont espacées pour que les joueurs humains puissent suivre les cartes révélées.
+     */
+    private void applyAIAction(Action action) {
+        if (!isAITurn() || gameModel.isGameEnded() || gameModel.getCurrentPhase() != Game.GamePhase.PLAYING) {
+            return;
+        }
+        Actor ai = gameModel.getCurrentPlayer();
+
+        if (action.getType() == Action.Type.END_TURN) {
+            List<CardLocation> revealedCards = gameModel.getRevealedCards();
+            boolean isTrio = revealedCards.size() == 3
+                    && revealedCards.get(0).getCard().getValue() == revealedCards.get(1).getCard().getValue()
+                    && revealedCards.get(1).getCard().getValue() == revealedCards.get(2).getCard().getValue();
+            String message = isTrio ? ai.getName() + " forme un trio !" : "Fin du tour de " + ai.getName();
+            speculateNextTurn();
+            gameView.showOverlayMessage(message, AI_STEP_DELAY_MS, this::nextTurn);
+            return;
+        }
+
+        gameModel.play(action);
+        updateGameDisplay();
+        scheduleAIStepIfNeeded();
     }
 
     // --- Navigation et Pages Annexes ---
@@ -395,8 +605,7 @@ public class GameController {
      */
     private void openDrawPilePage() {
         try {
-            List<Card> allCards = gameModel.getDrawPile().getRemainingCards();
-            List<Card> availableCards = filterCardsNotInUse(allCards);
+            List<Card> availableCards = getUnrevealedCenterCards();
 
             if (availableCards.isEmpty()) {
                 showErrorMessage("La pioche est vide !");
@@ -405,7 +614,8 @@ public class GameController {
 
             DrawPilePage drawPileView = new DrawPilePage(availableCards);
             drawPileView.setCardSelectionHandler(card -> {
-                if (gameModel.canRevealCard()) {
+                int actionCode = LegalActions.REVEAL_CENTER_BASE + gameModel.getCenterIndex(card.getId());
+                if (!isAITurn() && LegalActions.isLegal(gameModel, actionCode)) {
                     gameModel.revealCardFromDrawPile(card);
                     updateGameDisplay();
                     primaryStage.getScene().setRoot(gameView.getRoot());
@@ -470,6 +680,9 @@ public class GameController {
      * Bascule l'affichage des cartes du joueur (Visible <-> Caché).
      */
     private void togglePlayerHand() {
+        if (isAITurn()) {
+            return; // La main d'une IA reste cachée
+        }
         boolean isVisible = gameView.areCardsVisible();
         if (isVisible) {
             hidePlayerHand();
@@ -493,10 +706,89 @@ public class GameController {
      * Déclenche la fin de partie et affiche l'écran de victoire.
      */
     private void endGame() {
+        disposeAI();
+        saveRecord();
+        closeSaveFile(true);
         EndGameController endGameController = new EndGameController(primaryStage, gameModel);
         endGameController.showEndGame();
     }
 
+    /**
+     * Arrête les calculs des IA de cette partie (fin de partie ou fenêtre fermée).
+     */
+    private void disposeAI() {
+        primaryStage.removeEventHandler(WindowEvent.WINDOW_HIDDEN, abandonHandler);
+        aiExecutor.close();
+    }
+
+    /**
+     * Ajoute la partie au fichier des parties jouées. Un échec est signalé sur la console sans gêner le joueur.
+     */
+    private void saveRecord() {
+        if (recorder == null) {
+            return;
+        }
+        recorder.detach();
+        try (GameRecordWriter writer = GameRecordWriter.open(RECORD_FILE)) {
+            writer.write(recorder);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Impossible d'enregistrer la partie : " + e.getMessage());
+        }
+        recorder = null;
+    }
+
+    /**
+     * Sauvegarde la partie dans {@link #SAVE_FILE}, à chaque tour et après chaque échange.
+     * L'instantané est encodé sans allocation dans un tampon réutilisé, puis écrit au début du fichier resté ouvert,
+     * sans forcer l'écriture sur le disque : la sauvegarde ne ralentit pas le thread JavaFX. Une sauvegarde à moitié
+     * écrite est détectée à la reprise par sa somme de contrôle. Un échec est signalé sur la console sans gêner
+     * le joueur, et la sauvegarde est alors abandonnée pour cette partie.
+     */
+    private void autosave() {
+        if (saveFailed) {
+            return;
+        }
+        try {
+            if (saveChannel == null) {
+                saveBuffer = ByteBuffer.allocateDirect(GameSnapshot.MAX_SIZE);
+                saveChannel = FileChannel.open(SAVE_FILE, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+            saveBuffer.clear();
+            snapshot.encode(gameModel, recorder, saveBuffer);
+            saveBuffer.flip();
+            while (saveBuffer.hasRemaining()) {
+                saveChannel.write(saveBuffer, saveBuffer.position());
+            }
+            saveChannel.truncate(saveBuffer.limit());
+        } catch (IOException e) {
+            System.err.println("Impossible de sauvegarder la partie : " + e.getMessage());
+            saveFailed = true;
+            closeSaveFile(true);
+        }
+    }
+
+    /**
+     * Ferme le fichier de sauvegarde (fin de partie ou fenêtre fermée).
+     *
+     * @param delete Vrai pour supprimer la sauvegarde, la partie n'étant plus à reprendre.
+     * @return Vrai si la sauvegarde est conservée pour une reprise.
+     */
+    private boolean closeSaveFile(boolean delete) {
+        boolean kept = saveChannel != null && !delete;
+        if (saveChannel != null) {
+            try {
+                saveChannel.close();
+            } catch (IOException e) {
+                System.err.println("Impossible de fermer la sauvegarde : " + e.getMessage());
+            }
+            saveChannel = null;
+        }
+        if (delete) {
+            deleteSavedGame();
+        }
+        return kept;
+    }
+
     // --- Utilitaires ---
 
     private List<String> getPlayerNames() {
@@ -508,44 +800,19 @@ public class GameController {
     }
 
     /**
-     * Filtre une liste de cartes pour retirer celles qui sont actuellement sur le plateau ou dans des trios validés.
+     * @return Les cartes du centre qui ne sont pas révélées sur le plateau (les cartes des trios ont déjà quitté le centre).
      * Utile pour l'affichage de la pioche.
      */
-    private List<Card> filterCardsNotInUse(List<Card> allCards) {
+    private List<Card> getUnrevealedCenterCards() {
         List<Card> availableCards = new ArrayList<>();
-        for (Card card : allCards) {
-            if (!isCardCurrentlyInUse(card)) {
+        for (Card card : gameModel.getDrawPile().getRemainingCards()) {
+            if ((gameModel.getRevealedMask() & (1L << card.getId())) == 0L) {
                 availableCards.add(card);
             }
         }
         return availableCards;
     }
 
-    /**
-     * Vérifie si une carte est "utilisée" (révélée sur le plateau ou dans un trio validé).
-     */
-    private boolean isCardCurrentlyInUse(Card card) {
-        for (CardLocation location : gameModel.getRevealedCards()) {
-            if (location.getCard().equals(card)) return true;
-        }
-        CompletedTrios completedTrios = gameModel.getCompletedTrios();
-        if (completedTrios != null) {
-            for (int playerId = 0; playerId < gameModel.getPlayers().size(); playerId++) {
-                List<List<Card>> playerTrios = completedTrios.getTriosForPlayer(playerId);
-                if (playerTrios != null) {
-                    for (List<Card> trio : playerTrios) {
-                        if (trio != null) {
-                            for (Card trioCard : trio) {
-                                if (trioCard.equals(card)) return true;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
     /**
      * Récupère une représentation simplifiée des trios par joueur pour l'affichage.
      * @return Une map associant l'ID du joueur à une liste de cartes représentatives de ses trios.
@@ -1,6 +1,12 @@
 package fr.utbm.ap4b.controller;
 
+import fr.utbm.ap4b.model.Actor;
 import fr.utbm.ap4b.model.Game;
+import fr.utbm.ap4b.model.HeuristicPolicy;
+import fr.utbm.ap4b.model.IA;
+import fr.utbm.ap4b.model.IAEquipe;
+import fr.utbm.ap4b.model.IsmctsPolicy;
+import fr.utbm.ap4b.model.Policy;
 import fr.utbm.ap4b.view.ModeSelectionPage;
 import fr.utbm.ap4b.view.PlayerPage;
 import fr.utbm.ap4b.view.RulesPage;
@@ -9,6 +15,7 @@ import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -27,6 +34,8 @@ public class MenuController {
     private String teamMode = "Individuel";
     private String gameMode = "Normal";
     private int nbPlayers = 6;
+    private int nbAI = 0;
+    private String difficulty = "Facile";
     private List<String> playerNames = new ArrayList<>();
 
     /**
@@ -37,12 +46,14 @@ public class MenuController {
         this.primaryStage = primaryStage;
         this.selectionView = new ModeSelectionPage();
         setupEventHandlers();
+        selectionView.getResumeButton().setVisible(GameController.hasSavedGame());
     }
 
     /**
      * Affiche la vue de sélection du mode de jeu.
      */
     public void show() {
+        selectionView.getResumeButton().setVisible(GameController.hasSavedGame());
         primaryStage.getScene().setRoot(selectionView.getRoot());
         primaryStage.setTitle("Trio - Sélection du mode");
     }
@@ -54,6 +65,7 @@ public class MenuController {
     private void setupEventHandlers() {
         selectionView.getRulesButton().setOnAction(e -> openRulesPage());
         selectionView.getNextButton().setOnAction(e -> openPlayerPage());
+        selectionView.getResumeButton().setOnAction(e -> resumeGame());
 
         selectionView.getTeamComboBox().valueProperty().addListener((obs, oldVal, newVal) -> this.teamMode = newVal);
         selectionView.getModeComboBox().valueProperty().addListener((obs, oldVal, newVal) -> this.gameMode = newVal);
@@ -72,6 +84,13 @@ public class MenuController {
                 System.exit(2);
             }
         });
+
+        selectionView.getAIComboBox().valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null && !newVal.isEmpty()) {
+                this.nbAI = Integer.parseInt(newVal);
+            }
+        });
+        selectionView.getDifficultyComboBox().valueProperty().addListener((obs, oldVal, newVal) -> this.difficulty = newVal);
     }
 
     /**
@@ -86,9 +105,14 @@ public class MenuController {
             showErrorMessage("Le mode équipe n'est disponible qu'avec 4 ou 6 joueurs.");
             return;
         }
+        if (nbAI >= nbPlayers) {
+            showErrorMessage("La partie doit compter au moins un joueur humain.");
+            return;
+        }
 
         try {
-            PlayerPage playerView = new PlayerPage(nbPlayers);
+            // Seuls les joueurs humains saisissent leur nom, les IA sont nommées automatiquement
+            PlayerPage playerView = new PlayerPage(nbPlayers - nbAI);
             primaryStage.getScene().setRoot(playerView.getRoot());
             primaryStage.setTitle("Trio - Nom des joueurs");
 
@@ -152,13 +176,47 @@ public class MenuController {
         boolean isTeamMode = !Objects.equals(teamMode, "Individuel");
         boolean isPiquant = !Objects.equals(gameMode, "Normal");
 
-        Game gameModel = new Game(playerNames, 0, isTeamMode, isPiquant);
+        Game gameModel = new Game(playerNames, nbAI, isTeamMode, isPiquant);
+        applyDifficulty(gameModel);
 
         // Passer le relais au GameController
         GameController gameController = new GameController(primaryStage, gameModel);
         gameController.startGame();
     }
 
+    /**
+     * Donne aux IA de la partie la stratégie correspondant à la difficulté choisie :
+     * {@link HeuristicPolicy} en Facile, {@link IsmctsPolicy} en Difficile (une seule instance, partagée par les IA).
+     * @param gameModel La partie dont les IA sont configurées.
+     */
+    private void applyDifficulty(Game gameModel) {
+        Policy policy = Objects.equals(difficulty, "Difficile") ? new IsmctsPolicy() : new HeuristicPolicy();
+        for (Actor player : gameModel.getPlayers()) {
+            if (player instanceof IA) {
+                ((IA) player).setPolicy(policy);
+            } else if (player instanceof IAEquipe) {
+                ((IAEquipe) player).setPolicy(policy);
+            }
+        }
+    }
+
+    /**
+     * Reprend la partie sauvegardée lors de la session précédente ({@link GameController#SAVE_FILE}).
+     * Ses IA jouent avec la difficulté choisie dans le menu. Une sauvegarde illisible est supprimée.
+     */
+    private void resumeGame() {
+        try {
+            GameController controller = GameController.resumeSavedGame(primaryStage);
+            applyDifficulty(controller.getGameModel());
+            controller.resumeGame();
+        } catch (IOException e) {
+            System.err.println("Impossible de reprendre la partie : " + e.getMessage());
+            GameController.deleteSavedGame();
+            selectionView.getResumeButton().setVisible(false);
+            showErrorMessage("La partie sauvegardée est illisible, elle a été supprimée.");
+        }
+    }
+
     /**
      * Affiche la page des règles depuis le menu.
      */
@@ -4,36 +4,40 @@ import fr.utbm.ap4b.model.Actor;
 import fr.utbm.ap4b.model.Card;
 import fr.utbm.ap4b.model.Game;
 import fr.utbm.ap4b.model.JoueurEquipe;
+import fr.utbm.ap4b.model.Policy;
 import fr.utbm.ap4b.view.ExchangePage;
 import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Set;
-
 /**
  * Contrôleur dédié à la gestion de la phase d'échange de cartes (Swap Phase).
  * Cette phase survient en mode équipe au début de la partie ou après un trio.
  * Le contrôleur gère la séquence d'échanges pour chaque équipe concernée.
+ * Les cartes des joueurs contrôlés par une IA sont choisies par leur stratégie, sans afficher leur main.
  */
 public class SwapController {
 
     private final Stage primaryStage;
     private final Game gameModel;
     private final Runnable onSwapPhaseFinished; // Callback pour revenir au jeu principal
+    private final Runnable onExchangeCompleted;
+    private final AIExecutor aiExecutor;
 
     /**
      * Initialise le contrôleur d'échange.
      * @param primaryStage La fenêtre principale.
      * @param gameModel Le modèle de jeu.
      * @param onSwapPhaseFinished Action à exécuter une fois que tous les échanges sont terminés.
+     * @param onExchangeCompleted Action à exécuter après chaque échange réussi (sauvegarde de la partie), ou null.
+     * @param aiExecutor L'exécuteur qui calcule les choix des IA hors du thread JavaFX.
      */
-    public SwapController(Stage primaryStage, Game gameModel, Runnable onSwapPhaseFinished) {
+    public SwapController(Stage primaryStage, Game gameModel, Runnable onSwapPhaseFinished,
+                          Runnable onExchangeCompleted, AIExecutor aiExecutor) {
         this.primaryStage = primaryStage;
         this.gameModel = gameModel;
         this.onSwapPhaseFinished = onSwapPhaseFinished;
+        this.onExchangeCompleted = onExchangeCompleted;
+        this.aiExecutor = aiExecutor;
     }
 
     /**
@@ -42,10 +46,10 @@ public class SwapController {
      * affiche l'interface pour lui, et se rappelle elle-même une fois l'échange fait.
      */
     public void startSwapPhase() {
-        // On récupère uniquement ceux qui n'ont PAS encore échangé
-        Set<Actor> pendingPlayers = gameModel.getPlayersWhoHaveNotSwapped();
+        // On récupère le premier joueur (par index) qui n'a PAS encore échangé
+        int pendingPlayerIndex = gameModel.getNextPendingSwapPlayerIndex();
 
-        if (pendingPlayers.isEmpty()) {
+        if (pendingPlayerIndex < 0) {
             // Fin de la phase d'échange, on appelle le callback pour retourner au jeu
             if (onSwapPhaseFinished != null) {
                 onSwapPhaseFinished.run();
@@ -53,17 +57,27 @@ public class SwapController {
             return;
         }
 
-        // Trier pour avoir un ordre déterministe (par index de joueur)
-        List<Actor> sortedPlayers = new ArrayList<>(pendingPlayers);
-        sortedPlayers.sort(Comparator.comparingInt(Actor::getPlayerIndex));
-
-        // On prend le premier joueur disponible
-        Actor player = sortedPlayers.get(0);
+        Actor player = gameModel.getPlayers().get(pendingPlayerIndex);
         if (!(player instanceof JoueurEquipe)) return;
 
         JoueurEquipe teamPlayer = (JoueurEquipe) player;
         JoueurEquipe teammate = teamPlayer.getTeammate();
 
+        // Une IA choisit sa carte elle-même ; si son coéquipier est aussi une IA, elle choisit tout l'échange
+        Policy policy = teamPlayer.getPolicy();
+        if (policy != null) {
+            primaryStage.setTitle("Échange - " + teamPlayer.getName());
+            aiExecutor.requestDecision(gameModel, policy, action -> {
+                Card cardFromP1 = Card.fromId(action.getGiveCardId());
+                if (teammate.getPolicy() != null) {
+                    completeExchange(teamPlayer, cardFromP1, Card.fromId(action.getReceiveCardId()));
+                } else {
+                    handleTeammateSelection(teamPlayer, teammate, cardFromP1);
+                }
+            });
+            return;
+        }
+
         // Affichage de la vue pour le premier joueur de l'équipe (sélection de sa carte à donner)
         ExchangePage exchangeView = new ExchangePage(
                 teamPlayer.getName(),
@@ -86,29 +100,43 @@ public class SwapController {
      * @param cardFromP1 La carte sélectionnée par le premier joueur.
      */
     private void handleTeammateSelection(JoueurEquipe player1, JoueurEquipe player2, Card cardFromP1) {
+        if (player2.getPolicy() != null) {
+            // Le coéquipier IA choisit la carte qu'il rend en fonction de celle qu'il reçoit
+            aiExecutor.requestReply(gameModel, player1.getPlayerIndex(), cardFromP1.getId(), action ->
+                    completeExchange(player1, cardFromP1, Card.fromId(action.getReceiveCardId())));
+            return;
+        }
+
         ExchangePage exchangeView = new ExchangePage(
                 player2.getName(),
                 player1.getName(),
                 player2.getHand().getCards()
         );
 
-        exchangeView.setOnCardSelected(cardFromP2 -> {
-            // Exécuter l'échange dans le modèle
-            boolean success = gameModel.exchangeCards(player1.getPlayerIndex(), cardFromP1, cardFromP2);
-
-            if (success) {
-                // Passer à l'équipe suivante (appel récursif)
-                startSwapPhase();
-            } else {
-                showErrorMessage("Erreur lors de l'échange !");
-                startSwapPhase(); // Retry
-            }
-        });
+        exchangeView.setOnCardSelected(cardFromP2 -> completeExchange(player1, cardFromP1, cardFromP2));
 
         primaryStage.getScene().setRoot(exchangeView.getRoot());
         primaryStage.setTitle("Échange - " + player2.getName());
     }
 
+    /**
+     * Exécute l'échange dans le modèle puis passe à l'équipe suivante.
+     */
+    private void completeExchange(JoueurEquipe player1, Card cardFromP1, Card cardFromP2) {
+        boolean success = gameModel.exchangeCards(player1.getPlayerIndex(), cardFromP1, cardFromP2);
+
+        if (success) {
+            if (onExchangeCompleted != null) {
+                onExchangeCompleted.run();
+            }
+            // Passer à l'équipe suivante (appel récursif)
+            startSwapPhase();
+        } else {
+            showErrorMessage("Erreur lors de l'échange !");
+            startSwapPhase(); // Retry
+        }
+    }
+
     private void showErrorMessage(String message) {
         Alert alert = new Alert(Alert.AlertType.WARNING);
         alert.setTitle("Attention");
@@ -0,0 +1,144 @@
+package fr.utbm.ap4b.model;
+
+import java.util.Objects;
+
+/**
+ * Représente une action de jeu pouvant être appliquée à une partie via {@link Game#apply(Action)}.
+ * Les actions de révélation et de fin de tour sont partagées (une instance par paramètre),
+ * seules les actions d'échange sont créées à la demande.
+ */
+public final class Action {
+
+    /**
+     * Les différents types d'action possibles.
+     */
+    public enum Type {
+        REVEAL_SMALLEST, // Révéler la plus petite carte disponible d'un joueur
+        REVEAL_LARGEST,  // Révéler la plus grande carte disponible d'un joueur
+        REVEAL_CENTER,   // Révéler la k-ième carte du centre
+        END_TURN,        // Terminer le tour (trio validé ou non)
+        EXCHANGE         // Échanger une carte avec son coéquipier (mode équipe)
+    }
+
+    private static final int MAX_PLAYERS = 6;
+
+    private static final Action[] REVEAL_SMALLEST_ACTIONS = new Action[MAX_PLAYERS];
+    private static final Action[] REVEAL_LARGEST_ACTIONS = new Action[MAX_PLAYERS];
+    private static final Action[] REVEAL_CENTER_ACTIONS = new Action[Card.DECK_SIZE];
+    private static final Action END_TURN_ACTION = new Action(Type.END_TURN, -1, -1, -1, -1);
+
+    static {
+        for (int i = 0; i < MAX_PLAYERS; i++) {
+            REVEAL_SMALLEST_ACTIONS[i] = new Action(Type.REVEAL_SMALLEST, i, -1, -1, -1);
+            REVEAL_LARGEST_ACTIONS[i] = new Action(Type.REVEAL_LARGEST, i, -1, -1, -1);
+        }
+        for (int k = 0; k < Card.DECK_SIZE; k++) {
+            REVEAL_CENTER_ACTIONS[k] = new Action(Type.REVEAL_CENTER, -1, k, -1, -1);
+        }
+    }
+
+    private final Type type;
+    private final int playerIndex;   // Joueur ciblé (révélation) ou initiateur (échange)
+    private final int centerIndex;   // Position de la carte dans le centre
+    private final int giveCardId;    // Carte donnée par l'initiateur de l'échange
+    private final int receiveCardId; // Carte reçue du coéquipier
+
+    private Action(Type type, int playerIndex, int centerIndex, int giveCardId, int receiveCardId) {
+        this.type = type;
+        this.playerIndex = playerIndex;
+        this.centerIndex = centerIndex;
+        this.giveCardId = giveCardId;
+        this.receiveCardId = receiveCardId;
+    }
+
+    /**
+     * @param playerIndex Le joueur ciblé.
+     * @return L'action révélant la plus petite carte disponible de ce joueur.
+     */
+    public static Action revealSmallest(int playerIndex) {
+        return REVEAL_SMALLEST_ACTIONS[playerIndex];
+    }
+
+    /**
+     * @param playerIndex Le joueur ciblé.
+     * @return L'action révélant la plus grande carte disponible de ce joueur.
+     */
+    public static Action revealLargest(int playerIndex) {
+        return REVEAL_LARGEST_ACTIONS[playerIndex];
+    }
+
+    /**
+     * @param centerIndex La position de la carte parmi les cartes restantes du centre.
+     * @return L'action révélant cette carte du centre.
+     */
+    public static Action revealCenter(int centerIndex) {
+        return REVEAL_CENTER_ACTIONS[centerIndex];
+    }
+
+    /**
+     * @return L'action terminant le tour du joueur courant.
+     */
+    public static Action endTurn() {
+        return END_TURN_ACTION;
+    }
+
+    /**
+     * @param initiatorIndex Le joueur qui initie l'échange.
+     * @param giveCardId L'identifiant de la carte donnée.
+     * @param receiveCardId L'identifiant de la carte reçue du coéquipier.
+     * @return L'action d'échange correspondante.
+     */
+    public static Action exchange(int initiatorIndex, int giveCardId, int receiveCardId) {
+        return new Action(Type.EXCHANGE, initiatorIndex, -1, giveCardId, receiveCardId);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getPlayerIndex() {
+        return playerIndex;
+    }
+
+    public int getCenterIndex() {
+        return centerIndex;
+    }
+
+    public int getGiveCardId() {
+        return giveCardId;
+    }
+
+    public int getReceiveCardId() {
+        return receiveCardId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Action action = (Action) o;
+        return type == action.type && playerIndex == action.playerIndex && centerIndex == action.centerIndex
+                && giveCardId == action.giveCardId && receiveCardId == action.receiveCardId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, playerIndex, centerIndex, giveCardId, receiveCardId);
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case REVEAL_SMALLEST:
+            case REVEAL_LARGEST:
+                return "Action{" + type + ", joueur=" + playerIndex + '}';
+            case REVEAL_CENTER:
+                return "Action{" + type + ", centre=" + centerIndex + '}';
+            case EXCHANGE:
+                return "Action{" + type + ", joueur=" + playerIndex
+                        + ", donne=" + giveCardId + ", reçoit=" + receiveCardId + '}';
+            default:
+                return "Action{" + type + '}';
+        }
+    }
+}
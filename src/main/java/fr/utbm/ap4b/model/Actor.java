@@ -29,4 +29,11 @@ public interface Actor {
      * @param initialCards Les cartes distribuées au début du jeu.
      */
     void setupHand(List<Card> initialCards);
+
+    /**
+     * @return La stratégie qui décide des actions de l'acteur, ou null s'il est contrôlé par un humain.
+     */
+    default Policy getPolicy() {
+        return null;
+    }
 }
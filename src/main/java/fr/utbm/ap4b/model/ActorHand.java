@@ -1,42 +1,38 @@
 package fr.utbm.ap4b.model;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
-import java.util.NoSuchElementException;
 
 /**
  * Représente la main d'un joueur, contenant un ensemble de cartes.
- * Cette classe gère le stockage, le tri automatique et l'accès aux cartes extrêmes (min/max).
+ * Les cartes sont stockées sous forme de masque de bits (un {@code long}) indexé par l'identifiant
+ * de carte, lui-même ordonné par valeur : le bit de poids faible correspond à la plus petite carte
+ * possible, ce qui rend l'ajout, le retrait et l'accès aux cartes extrêmes (min/max) constants.
  */
 public class ActorHand {
 
-    private List<Card> cards;
+    private long mask;
+    private List<Card> cardsView; // Vue liste reconstruite à la demande pour les pages JavaFX
 
     /**
      * Construit une main vide.
      */
     public ActorHand() {
-        this.cards = new ArrayList<>();
+        this.mask = 0L;
     }
 
     /**
      * Construit une main à partir d'une liste de cartes initiale (distribuée par DrawPile).
-     * La main est automatiquement triée à la création pour respecter les règles du jeu.
+     * La main est naturellement triée puisque les cartes sont rangées par valeur dans le masque.
      *
      * @param initialCards La liste des cartes à ajouter à la main.
      */
     public ActorHand(List<Card> initialCards) {
-        this.cards = new ArrayList<>(initialCards);
-        sortHand();
-    }
-
-    /**
-     * Trie les cartes dans la main par ordre croissant de leur valeur.
-     * Cette méthode est appelée après chaque modification de la main (ajout/retrait).
-     */
-    public void sortHand() {
-        this.cards.sort(Comparator.comparingInt(Card::getValue));
+        this();
+        for (Card card : initialCards) {
+            addCard(card);
+        }
     }
 
     /**
@@ -46,77 +42,96 @@ public class ActorHand {
      * @return {@code true} si la carte a été trouvée et retirée, {@code false} sinon.
      */
     public boolean removeCard(Card card) {
-        return this.cards.remove(card);
+        if (!contains(card)) {
+            return false;
+        }
+        this.mask &= ~(1L << card.getId());
+        this.cardsView = null;
+        return true;
     }
 
     /**
-     * Ajoute une carte à la main et la retrie immédiatement.
+     * Ajoute une carte à la main en positionnant le bit de son identifiant.
      * @param card La carte à ajouter.
      */
     public void addCard(Card card) {
-        this.cards.add(card);
-        sortHand();
+        this.mask |= 1L << card.getId();
+        this.cardsView = null;
     }
 
     /**
-     * Renvoie la carte avec la plus petite valeur dans la main.
-     * La main doit être triée pour que cette méthode soit fiable.
+     * @param card La carte recherchée.
+     * @return Vrai si la carte est dans la main.
+     */
+    public boolean contains(Card card) {
+        return card != null && (mask & (1L << card.getId())) != 0;
+    }
+
+    /**
+     * Renvoie la plus petite carte de la main en excluant celles du masque fourni.
+     * Le masque est typiquement celui des cartes révélées pendant le tour courant ({@link Game#getRevealedMask()}).
      *
-     * @return La carte la plus petite disponible (iterable).
-     * @throws NoSuchElementException si la main est vide.
+     * @param excludedMask Masque des identifiants à ignorer (cartes déjà en jeu).
+     * @return La carte la plus petite restante, ou null si aucune.
      */
-    public Card getSmallestCard() {
-        if (cards.isEmpty()) {
-            throw new NoSuchElementException("La main est vide.");
-        }
-        // Comme la main est triée, on cherche la première carte disponible depuis le début
-        for(int i = 0; i < cards.size(); i++) {
-            if(cards.get(i).isIterable()) {
-                return cards.get(i);
-            }
-        }
-        return null;
+    public Card getSmallestCard(long excludedMask) {
+        long available = mask & ~excludedMask;
+        return available == 0L ? null : Card.fromId(Long.numberOfTrailingZeros(available));
     }
 
     /**
-     * Renvoie la carte avec la plus grande valeur dans la main.
-     * La main doit être triée pour que cette méthode soit fiable.
+     * Renvoie la plus grande carte de la main en excluant celles du masque fourni.
+     * Le masque est typiquement celui des cartes révélées pendant le tour courant ({@link Game#getRevealedMask()}).
      *
-     * @return La carte la plus grande disponible (iterable).
-     * @throws NoSuchElementException si la main est vide.
+     * @param excludedMask Masque des identifiants à ignorer (cartes déjà en jeu).
+     * @return La carte la plus grande restante, ou null si aucune.
      */
-    public Card getLargestCard() {
-        if (cards.isEmpty()) {
-            throw new NoSuchElementException("La main est vide.");
-        }
-        // Comme la main est triée, on cherche la première carte disponible depuis la fin
-        for(int i = cards.size() - 1; i >= 0; i--) {
-            if(cards.get(i).isIterable()) {
-                return cards.get(i);
-            }
-        }
-        return null;
+    public Card getLargestCard(long excludedMask) {
+        long available = mask & ~excludedMask;
+        return available == 0L ? null : Card.fromId(63 - Long.numberOfLeadingZeros(available));
+    }
+
+    /**
+     * Remplace le contenu de la main (copie de partie et tirage des cartes cachées).
+     * @param mask Le masque des identifiants des nouvelles cartes.
+     */
+    void setMask(long mask) {
+        this.mask = mask;
+        this.cardsView = null;
     }
 
+    /**
+     * @return Le masque de bits des cartes de la main (ordonné par valeur).
+     */
+    public long getMask() {
+        return mask;
+    }
 
     /**
-     * @return La liste complète des cartes dans la main.
+     * @return Une vue triée et non modifiable des cartes dans la main.
      */
     public List<Card> getCards() {
-        return this.cards;
+        if (cardsView == null) {
+            List<Card> cards = new ArrayList<>(Long.bitCount(mask));
+            for (long remaining = mask; remaining != 0L; remaining &= remaining - 1) {
+                cards.add(Card.fromId(Long.numberOfTrailingZeros(remaining)));
+            }
+            cardsView = Collections.unmodifiableList(cards);
+        }
+        return cardsView;
     }
 
     /**
      * @return Le nombre de cartes dans la main.
      */
     public int getHandSize() {
-        return this.cards.size();
+        return Long.bitCount(mask);
     }
 
     @Override
     public String toString() {
         return "ActorHand{" +
-                "cards=" + cards +
+                "cards=" + getCards() +
                 '}';
     }
 }
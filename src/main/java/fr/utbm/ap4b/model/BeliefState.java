@@ -0,0 +1,261 @@
+package fr.utbm.ap4b.model;
+
+import java.util.Arrays;
+
+/**
+ * Suivi incrémental de ce que tous les joueurs savent des mains cachées.
+ * <p>
+ * Chaque révélation d'une extrémité donne une information : si la plus petite carte disponible d'un joueur
+ * est un 5, ses cartes encore jamais vues valent toutes au moins 5. L'état retient, pour chaque joueur,
+ * l'ensemble des valeurs possibles de ses cartes inconnues, ses cartes déjà vues et le nombre d'exemplaires
+ * de chaque valeur dont l'emplacement est connu de tous (cartes vues ou rangées dans un trio).
+ * Chaque partie tient le sien ({@link GameView#getBeliefState()}) : chaque révélation, trio et échange le met à jour
+ * en temps constant, une annulation ({@link Game#undo(UndoRecord)}) rétablit les contraintes qui précédaient l'action annulée,
+ * et les stratégies comme l'interface peuvent interroger l'état sans relire l'historique.
+ * <p>
+ * Les valeurs sont représentées comme dans les trios : bit {@code 1 << valeur}.
+ * Seules les informations publiques sont utilisées ; un joueur peut y ajouter la connaissance de sa propre main.
+ */
+public class BeliefState {
+
+    /**
+     * Masque de toutes les valeurs de cartes (bits 1 à 12).
+     */
+    public static final int ALL_VALUES = (1 << (Trios.values().length + 1)) - 2;
+
+    private final int numPlayers;
+    private final int[] possibleValues; // Valeurs possibles des cartes jamais vues de chaque joueur
+    private final long[] seenInHand;     // Cartes vues et restées dans la main de chaque joueur
+    private final int[] handSizes;
+    private final int[] locatedCopies;   // Par valeur : exemplaires dont l'emplacement est connu de tous
+    private long seenInCenter;
+    private int exhaustedValues;         // Valeurs dont les trois exemplaires sont localisés
+
+    /**
+     * Construit l'état de croyance d'une partie à partir de son état courant, sans contrainte sur les cartes inconnues
+     * (voir {@link #reset(GameView)}).
+     *
+     * @param game La partie suivie.
+     */
+    BeliefState(GameView game) {
+        this.numPlayers = game.getNumPlayers();
+        this.possibleValues = new int[numPlayers];
+        this.seenInHand = new long[numPlayers];
+        this.handSizes = new int[numPlayers];
+        this.locatedCopies = new int[Trios.values().length + 1];
+        reset(game);
+    }
+
+    /**
+     * Construit une copie indépendante de l'état (utilisée par {@link Game#copy()}).
+     */
+    BeliefState(BeliefState other) {
+        this.numPlayers = other.numPlayers;
+        this.possibleValues = other.possibleValues.clone();
+        this.seenInHand = other.seenInHand.clone();
+        this.handSizes = other.handSizes.clone();
+        this.locatedCopies = other.locatedCopies.clone();
+        this.seenInCenter = other.seenInCenter;
+        this.exhaustedValues = other.exhaustedValues;
+    }
+
+    /**
+     * Repart d'une nouvelle distribution : toutes les valeurs redeviennent possibles pour les cartes inconnues.
+     * @param game La partie.
+     */
+    void reset(GameView game) {
+        Arrays.fill(possibleValues, ALL_VALUES);
+        resync(game);
+    }
+
+    /**
+     * Recalcule à partir de la partie ce qui s'en déduit directement (cartes vues, tailles des mains,
+     * exemplaires localisés), après une annulation ou une restauration. Les valeurs possibles des cartes inconnues,
+     * tirées des révélations passées, ne se déduisent pas de la position : elles sont conservées,
+     * et c'est à l'appelant de rétablir celles qui précédaient l'action annulée (voir {@link #setValueConstraint}).
+     *
+     * @param game La partie.
+     */
+    void resync(GameView game) {
+        long seenMask = game.getSeenMask();
+        long inPlay = game.getCenterMask();
+        for (int p = 0; p < numPlayers; p++) {
+            long hand = game.getHandMask(p);
+            inPlay |= hand;
+            seenInHand[p] = hand & seenMask;
+            handSizes[p] = Long.bitCount(hand);
+        }
+        seenInCenter = game.getCenterMask() & seenMask;
+        // Les cartes qui ne sont plus en jeu sont rangées dans des trios
+        long located = (seenMask & inPlay) | (~inPlay & ((1L << Card.DECK_SIZE) - 1));
+        exhaustedValues = 0;
+        for (int value = 1; value < locatedCopies.length; value++) {
+            locatedCopies[value] = Long.bitCount(located & valueMask(value));
+            if (locatedCopies[value] == Card.COPIES_PER_VALUE) {
+                exhaustedValues |= 1 << value;
+            }
+        }
+    }
+
+    /**
+     * Une carte vient d'être révélée (voir {@link Game.GameListener#onCardRevealed}).
+     */
+    void onCardRevealed(int cardId, int owner, Action.Type type) {
+        int value = valueOf(cardId);
+        long bit = 1L << cardId;
+        if (owner == Game.CENTER_OWNER) {
+            if ((seenInCenter & bit) == 0) {
+                seenInCenter |= bit;
+                locate(value);
+            }
+            return;
+        }
+        if ((seenInHand[owner] & bit) == 0) {
+            seenInHand[owner] |= bit;
+            locate(value);
+        }
+        // Les cartes jamais vues sont au-delà de l'extrémité révélée
+        if (type == Action.Type.REVEAL_SMALLEST) {
+            possibleValues[owner] &= ~((1 << value) - 1);
+        } else if (type == Action.Type.REVEAL_LARGEST) {
+            possibleValues[owner] &= (2 << value) - 1;
+        }
+    }
+
+    /**
+     * Une carte révélée vient de quitter le jeu pour former un trio (voir {@link Game.GameListener#onCardRemoved}).
+     */
+    void onCardRemoved(int cardId, int owner) {
+        // La carte reste localisée (dans un trio) : seul son emplacement d'origine change
+        long bit = 1L << cardId;
+        if (owner == Game.CENTER_OWNER) {
+            seenInCenter &= ~bit;
+        } else {
+            seenInHand[owner] &= ~bit;
+            handSizes[owner]--;
+        }
+    }
+
+    /**
+     * Deux coéquipiers viennent d'échanger une carte (voir {@link Game.GameListener#onCardsExchanged}).
+     * Seuls les deux joueurs sont connus : les cartes échangées, elles, restent secrètes.
+     */
+    void onCardsExchanged(int initiatorIndex, int teammateIndex) {
+        // N'importe quelle carte des deux mains a pu changer de main : elles redeviennent toutes inconnues,
+        // et peuvent valoir tout ce que l'une ou l'autre main pouvait contenir
+        int shown = forgetHand(initiatorIndex) | forgetHand(teammateIndex);
+        int merged = possibleValues[initiatorIndex] | possibleValues[teammateIndex] | shown;
+        possibleValues[initiatorIndex] = merged;
+        possibleValues[teammateIndex] = merged;
+    }
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @return Le masque des valeurs que peuvent avoir ses cartes jamais vues (0 s'il n'en a pas).
+     */
+    public int getPossibleValues(int playerIndex) {
+        return getUnknownCount(playerIndex) == 0 ? 0 : possibleValues[playerIndex] & ~exhaustedValues;
+    }
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @return Les valeurs possibles de ses cartes inconnues telles que tirées des révélations, sans tenir compte
+     * des valeurs épuisées ni du nombre de cartes inconnues (à sauvegarder pour annuler une action).
+     */
+    int getValueConstraint(int playerIndex) {
+        return possibleValues[playerIndex];
+    }
+
+    /**
+     * Rétablit les valeurs possibles des cartes inconnues d'un joueur (annulation d'une action, restauration).
+     * @param playerIndex L'index du joueur.
+     * @param values Le masque sauvegardé par {@link #getValueConstraint(int)}.
+     */
+    void setValueConstraint(int playerIndex, int values) {
+        possibleValues[playerIndex] = values;
+    }
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @return Le nombre de ses cartes dont la valeur n'est pas connue de tous.
+     */
+    public int getUnknownCount(int playerIndex) {
+        return handSizes[playerIndex] - Long.bitCount(seenInHand[playerIndex]);
+    }
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @return Le masque des cartes de sa main connues de tous.
+     */
+    public long getSeenCards(int playerIndex) {
+        return seenInHand[playerIndex];
+    }
+
+    /**
+     * @return Le masque des cartes du centre connues de tous.
+     */
+    public long getSeenCenterCards() {
+        return seenInCenter;
+    }
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @param value La valeur (1 à 12).
+     * @return Le nombre d'exemplaires de cette valeur que le joueur possède à coup sûr.
+     */
+    public int getMinCount(int playerIndex, int value) {
+        return Long.bitCount(seenInHand[playerIndex] & valueMask(value));
+    }
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @param value La valeur (1 à 12).
+     * @return Le nombre maximal d'exemplaires de cette valeur que le joueur peut posséder.
+     */
+    public int getMaxCount(int playerIndex, int value) {
+        int known = getMinCount(playerIndex, value);
+        if ((getPossibleValues(playerIndex) & (1 << value)) == 0) {
+            return known;
+        }
+        return known + Math.min(Card.COPIES_PER_VALUE - locatedCopies[value], getUnknownCount(playerIndex));
+    }
+
+    /**
+     * @param value La valeur (1 à 12).
+     * @return Le nombre d'exemplaires de cette valeur dont l'emplacement n'est pas connu de tous.
+     */
+    public int getHiddenCopies(int value) {
+        return Card.COPIES_PER_VALUE - locatedCopies[value];
+    }
+
+    private void locate(int value) {
+        if (++locatedCopies[value] == Card.COPIES_PER_VALUE) {
+            exhaustedValues |= 1 << value;
+        }
+    }
+
+    /**
+     * Oublie toutes les cartes vues dans la main d'un joueur.
+     * @return Le masque des valeurs de ces cartes.
+     */
+    private int forgetHand(int playerIndex) {
+        int values = 0;
+        for (long seen = seenInHand[playerIndex]; seen != 0L; seen &= seen - 1) {
+            int value = valueOf(Long.numberOfTrailingZeros(seen));
+            values |= 1 << value;
+            if (locatedCopies[value]-- == Card.COPIES_PER_VALUE) {
+                exhaustedValues &= ~(1 << value);
+            }
+        }
+        seenInHand[playerIndex] = 0L;
+        return values;
+    }
+
+    private static int valueOf(int cardId) {
+        return cardId / Card.COPIES_PER_VALUE + 1;
+    }
+
+    private static long valueMask(int value) {
+        return 7L << ((value - 1) * Card.COPIES_PER_VALUE);
+    }
+}
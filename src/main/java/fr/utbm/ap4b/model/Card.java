@@ -1,68 +1,90 @@
 package fr.utbm.ap4b.model;
 
-import java.util.Objects;
-import java.util.UUID;
-
 /**
  * Représente une carte unique du jeu Trio.
- * Chaque carte possède une valeur faciale (ex: 7), un nom, et une identité unique (UUID).
+ * Chaque carte possède une valeur faciale (ex: 7), un nom, et une identité unique dense (0 à 35).
  * L'identité unique est cruciale car il existe 3 exemplaires physiques de chaque valeur dans le jeu.
+ * Les 36 cartes sont créées une seule fois dans une table partagée (flyweight) : l'identifiant
+ * vaut {@code ordinal * 3 + exemplaire}, ce qui permet d'indexer des tableaux et des masques de bits.
+ * Une carte est immuable : l'état "en jeu" d'un tour est porté par la partie (Game), pas par la carte.
  */
 public class Card {
-    private final UUID id; // Identifiant unique pour distinguer deux cartes de même valeur
+
+    public static final int COPIES_PER_VALUE = 3;
+    public static final int DECK_SIZE = Trios.values().length * COPIES_PER_VALUE;
+
+    // Table partagée des 36 cartes, indexée par identifiant
+    private static final Card[] DECK = createDeck();
+
+    private final int id; // Identifiant dense pour distinguer deux cartes de même valeur
     private final int value;
     private final String name;
-    private int[] neighbors;
-    private String imagePath;
-    private boolean iterable;
+    private final int neighborMask;
+    private final String imagePath;
 
     /**
-     * Crée une nouvelle instance de carte basée sur un type de Trio.
+     * Crée une carte de la table partagée.
      * @param trio L'énumération définissant les propriétés de la carte (valeur, nom).
+     * @param copy Le numéro d'exemplaire (0 à 2).
      */
-    public Card(Trios trio) {
-        this.id = UUID.randomUUID(); // Génère un ID unique à la création
+    private Card(Trios trio, int copy) {
+        this.id = trio.ordinal() * COPIES_PER_VALUE + copy;
         this.value = trio.getValue();
         this.name = trio.name();
-        this.neighbors = trio.getNeighbors();
+        this.neighborMask = trio.getNeighborMask();
         this.imagePath = "/images/carte_" + trio.getValue() + ".png";
-        this.iterable = true;
-    }
-
-    public int getValue() {
-        return value;
     }
 
-    public String getName() {
-        return name;
+    private static Card[] createDeck() {
+        Trios[] trios = Trios.values();
+        Card[] deck = new Card[trios.length * COPIES_PER_VALUE];
+        for (Trios trio : trios) {
+            for (int copy = 0; copy < COPIES_PER_VALUE; copy++) {
+                Card card = new Card(trio, copy);
+                deck[card.id] = card;
+            }
+        }
+        return deck;
     }
 
-    public int[] getNeighbors() {
-        return neighbors;
+    /**
+     * @param id L'identifiant dense de la carte (0 à 35).
+     * @return La carte correspondante de la table partagée.
+     */
+    public static Card fromId(int id) {
+        return DECK[id];
     }
 
-    public void setNeighbors(int[] neighbors) {
-        this.neighbors = neighbors;
+    /**
+     * @param trio Le type de carte.
+     * @param copy Le numéro d'exemplaire (0 à 2).
+     * @return La carte correspondante de la table partagée.
+     */
+    public static Card of(Trios trio, int copy) {
+        return DECK[trio.ordinal() * COPIES_PER_VALUE + copy];
     }
 
-    public String getImagePath() {
-        return imagePath;
+    public int getId() {
+        return id;
     }
 
-    public void setImagePath(String imagePath) {
-        this.imagePath = imagePath;
+    public int getValue() {
+        return value;
     }
 
-    public boolean isIterable() {
-        return iterable;
+    public String getName() {
+        return name;
     }
 
     /**
-     * Bascule l'état "iterable" de la carte.
-     * Cet état est utilisé pour savoir si la carte peut être parcourue ou affichée dans certains contextes.
+     * @return Le masque d'adjacence de la carte (bit {@code 1 << valeur} pour chaque voisin).
      */
-    public void toggleIterable() {
-        this.iterable = !this.iterable;
+    public int getNeighborMask() {
+        return neighborMask;
+    }
+
+    public String getImagePath() {
+        return imagePath;
     }
 
     @Override
@@ -76,7 +98,7 @@ public class Card {
 
     /**
      * Vérifie l'égalité entre deux objets Carte.
-     * ATTENTION : L'égalité est basée sur l'identité unique (UUID) et non sur la valeur faciale.
+     * ATTENTION : L'égalité est basée sur l'identité unique et non sur la valeur faciale.
      * Deux cartes "7" différentes physiquement ne seront PAS égales.
      * 
      * @param o L'objet à comparer.
@@ -87,26 +109,21 @@ public class Card {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Card card = (Card) o;
-        return id.equals(card.id);
+        return id == card.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return id;
     }
 
     /**
      * Vérifie si une autre carte est considérée comme "voisine" selon les règles du jeu.
      * @param otherCard L'autre carte à tester.
-     * @return Vrai si la valeur de l'autre carte est dans la liste des voisins.
+     * @return Vrai si la valeur de l'autre carte est dans le masque des voisins.
      */
     public boolean isNeighbor(Card otherCard) {
-        for (int neighborValue : this.neighbors) {
-            if (neighborValue == otherCard.getValue()) {
-                return true;
-            }
-        }
-        return false;
+        return (this.neighborMask & (1 << otherCard.getValue())) != 0;
     }
 
     /**
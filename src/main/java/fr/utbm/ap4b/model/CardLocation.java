@@ -17,7 +17,6 @@ public class CardLocation {
     // Constructeur privé pour forcer l'utilisation des méthodes factory statiques
     private CardLocation(Card card, Actor owner, DrawPile drawPile) {
         this.card = card;
-        this.card.toggleIterable(); // Marque la carte comme "en cours d'utilisation"
         this.owner = owner;
         this.drawPile = drawPile;
     }
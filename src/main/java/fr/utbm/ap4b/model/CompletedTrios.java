@@ -1,6 +1,7 @@
 package fr.utbm.ap4b.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -8,30 +9,117 @@ import java.util.List;
  * Gestionnaire des scores et des conditions de victoire.
  * Cette classe stocke l'ensemble des trios complétés par chaque joueur/équipe
  * et contient la logique pour déterminer le gagnant selon le mode de jeu (Normal ou Piquant).
+ * Les valeurs des trios sont également conservées sous forme de masques de bits (bit {@code 1 << valeur})
+ * par joueur et par équipe, mis à jour à chaque ajout : la détection du gagnant est donc immédiate.
+ * <p>
+ * En mode Piquant, deux trios sont liés lorsque le premier rangé liste le second parmi ses voisins
+ * (voir {@link Trios#isLinked}). Les trios d'un joueur sont rangés dans l'ordre où il les a formés ;
+ * en mode équipe, ceux du premier coéquipier (le plus petit index) précèdent ceux du second.
  */
 public class CompletedTrios {
 
-    // Liste de listes de trios, indexée par l'ID du joueur.
-    // Structure : Joueur -> [ Trio1, Trio2, ... ] -> [Carte1, Carte2, Carte3]
-    private final List<List<List<Card>>> triosByPlayer;
+    /**
+     * Raisons possibles d'une victoire.
+     */
+    public enum WinReason {
+        TRIO_OF_SEVENS,
+        THREE_TRIOS,
+        LINKED_TRIOS
+    }
 
     /**
-     * Initialise le gestionnaire de trios pour un nombre donné de joueurs.
+     * Écouteur notifié dès qu'une condition de victoire devient vraie.
+     */
+    public interface WinListener {
+        /**
+         * @param winnerIndex L'index du joueur gagnant (en mode équipe : le premier joueur de l'équipe).
+         * @param reason La raison de la victoire.
+         */
+        void onWin(int winnerIndex, WinReason reason);
+    }
+
+    private static final int SEVEN_BIT = 1 << Trios.DEUTEC.getValue();
+
+    // Identifiants des cartes des trios, indexés par l'ID du joueur (3 identifiants consécutifs par trio)
+    private final int[][] trioCardIds;
+    private final int[] trioCounts;
+    // Vues pour l'interface, reconstruites à la demande : Joueur -> [ Trio1, Trio2, ... ] -> [Carte1, Carte2, Carte3]
+    private final List<List<List<Card>>> trioViews;
+    private final boolean isTeamMode;
+    private final boolean isPiquant;
+    private final int teamCount;
+    private final int[] playerMasks; // Valeurs des trios de chaque joueur
+    private final int[] teamMasks;   // Valeurs des trios de chaque équipe (mode équipe uniquement)
+    private final List<WinListener> winListeners;
+    private int winnerIndex;
+    private WinReason winReason;
+    private long zobristKey; // Clé de hachage des trios formés (voir Zobrist)
+
+    /**
+     * Initialise le gestionnaire de trios pour un nombre donné de joueurs en mode individuel normal.
      * @param numPlayers Le nombre total de joueurs.
      */
     public CompletedTrios(int numPlayers) {
+        this(numPlayers, false, false);
+    }
+
+    /**
+     * Initialise le gestionnaire de trios pour un nombre donné de joueurs et un mode de jeu.
+     * En mode équipe, le joueur i fait équipe avec le joueur i + numPlayers / 2.
+     *
+     * @param numPlayers Le nombre total de joueurs.
+     * @param isTeamMode Vrai si les trios sont comptés par équipe.
+     * @param isPiquant Vrai si le mode "Piquant" est activé.
+     */
+    public CompletedTrios(int numPlayers, boolean isTeamMode, boolean isPiquant) {
         if (numPlayers <= 0) {
             throw new IllegalArgumentException("Le nombre de joueurs doit être positif.");
         }
-        this.triosByPlayer = new ArrayList<>(numPlayers);
+        this.trioCardIds = new int[numPlayers][Card.DECK_SIZE];
+        this.trioCounts = new int[numPlayers];
+        this.trioViews = new ArrayList<>(numPlayers);
+        for (int i = 0; i < numPlayers; i++) {
+            this.trioViews.add(null);
+        }
+        this.isTeamMode = isTeamMode;
+        this.isPiquant = isPiquant;
+        this.teamCount = isTeamMode ? numPlayers / 2 : 0;
+        this.playerMasks = new int[numPlayers];
+        this.teamMasks = new int[teamCount];
+        this.winListeners = new ArrayList<>();
+        this.winnerIndex = -1;
+    }
+
+    /**
+     * Construit une copie indépendante du gestionnaire (utilisée par {@link Game#copy()}).
+     * Les écouteurs de victoire ne sont pas copiés.
+     */
+    CompletedTrios(CompletedTrios other) {
+        int numPlayers = other.trioCounts.length;
+        this.trioCardIds = new int[numPlayers][];
+        for (int i = 0; i < numPlayers; i++) {
+            this.trioCardIds[i] = other.trioCardIds[i].clone();
+        }
+        this.trioCounts = other.trioCounts.clone();
+        this.trioViews = new ArrayList<>(numPlayers);
         for (int i = 0; i < numPlayers; i++) {
-            this.triosByPlayer.add(new ArrayList<>());
+            this.trioViews.add(null);
         }
+        this.isTeamMode = other.isTeamMode;
+        this.isPiquant = other.isPiquant;
+        this.teamCount = other.teamCount;
+        this.playerMasks = other.playerMasks.clone();
+        this.teamMasks = other.teamMasks.clone();
+        this.winListeners = new ArrayList<>();
+        this.winnerIndex = other.winnerIndex;
+        this.winReason = other.winReason;
+        this.zobristKey = other.zobristKey;
     }
 
     /**
      * Enregistre un nouveau trio validé pour un joueur.
-     * Effectue une validation basique (taille du trio, valeurs identiques).
+     * Effectue une validation basique (taille du trio, valeurs identiques),
+     * puis met à jour les masques et vérifie si le joueur (ou son équipe) vient de gagner.
      *
      * @param playerIndex L'index du joueur qui a complété le trio.
      * @param trio La liste des 3 cartes formant le trio.
@@ -45,136 +133,211 @@ public class CompletedTrios {
         if (!(trio.get(0).getValue() == trio.get(1).getValue() && trio.get(1).getValue() == trio.get(2).getValue())) {
             throw new IllegalArgumentException("Les 3 cartes doivent avoir la même valeur pour former un trio.");
         }
-        this.triosByPlayer.get(playerIndex).add(new ArrayList<>(trio));
+        addTrio(playerIndex, trio.get(0).getId(), trio.get(1).getId(), trio.get(2).getId());
     }
 
     /**
-     * Récupère la liste des trios complétés par un joueur spécifique.
-     * @param playerIndex L'index du joueur.
-     * @return Une liste non modifiable des trios.
+     * Enregistre un nouveau trio validé pour un joueur à partir des identifiants de ses cartes.
+     * Cette variante n'alloue aucun objet : elle est utilisée par le moteur de jeu.
+     *
+     * @param playerIndex L'index du joueur qui a complété le trio.
+     * @param firstId Identifiant de la première carte.
+     * @param secondId Identifiant de la deuxième carte.
+     * @param thirdId Identifiant de la troisième carte.
+     * @throws IllegalArgumentException Si les cartes n'ont pas la même valeur.
      */
-    public List<List<Card>> getTriosForPlayer(int playerIndex) {
-        return Collections.unmodifiableList(this.triosByPlayer.get(playerIndex));
+    public void addTrio(int playerIndex, int firstId, int secondId, int thirdId) {
+        int valueIndex = firstId / Card.COPIES_PER_VALUE;
+        if (secondId / Card.COPIES_PER_VALUE != valueIndex || thirdId / Card.COPIES_PER_VALUE != valueIndex) {
+            throw new IllegalArgumentException("Les 3 cartes doivent avoir la même valeur pour former un trio.");
+        }
+        int[] ids = trioCardIds[playerIndex];
+        int offset = trioCounts[playerIndex] * 3;
+        ids[offset] = firstId;
+        ids[offset + 1] = secondId;
+        ids[offset + 2] = thirdId;
+        trioCounts[playerIndex]++;
+        trioViews.set(playerIndex, null);
+        zobristKey ^= Zobrist.trio(playerIndex, firstId);
+
+        int value = valueIndex + 1;
+        int valueBit = 1 << value;
+        // Le nouveau trio est rangé après ceux du joueur ; en mode équipe, le premier coéquipier range les siens
+        // avant ceux du second
+        boolean linked;
+        if (!isTeamMode) {
+            linked = Trios.isLinked(playerMasks[playerIndex], 0, value);
+        } else if (playerIndex < teamCount) {
+            linked = Trios.isLinked(playerMasks[playerIndex], playerMasks[playerIndex + teamCount], value);
+        } else {
+            linked = Trios.isLinked(teamMasks[playerIndex - teamCount], 0, value);
+        }
+        playerMasks[playerIndex] |= valueBit;
+
+        int owner = playerIndex;
+        int mask = playerMasks[playerIndex];
+        if (isTeamMode) {
+            owner = playerIndex % teamCount;
+            teamMasks[owner] |= valueBit;
+            mask = teamMasks[owner];
+        }
+        checkWin(owner, mask, linked);
     }
 
     /**
-     * Vérifie s'il y a un gagnant en fonction des trios complétés et du mode de jeu.
-     * Délègue la logique selon que le jeu est en mode équipe ou individuel.
+     * Retire le dernier trio ajouté pour un joueur et restaure les masques associés.
+     * Utilisé pour annuler une action ({@link Game#undo(UndoRecord)}) : si ce trio avait fait gagner
+     * le joueur, la victoire est également annulée.
      *
-     * @param game L'instance actuelle du jeu pour obtenir le contexte (mode, joueurs).
-     * @return L'acteur gagnant, ou null s'il n'y a pas encore de gagnant.
+     * @param playerIndex L'index du joueur.
      */
-    public Actor getWinner(Game game) {
-        if (!game.getPlayers().isEmpty() && game.getPlayers().get(0) instanceof JoueurEquipe && game.isTeamMode()) {
-            return getTeamWinner(game);
+    void removeLastTrio(int playerIndex) {
+        if (trioCounts[playerIndex] == 0) {
+            throw new IllegalStateException("Aucun trio à retirer pour le joueur " + playerIndex + ".");
+        }
+        trioCounts[playerIndex]--;
+        trioViews.set(playerIndex, null);
+        zobristKey ^= Zobrist.trio(playerIndex, trioCardIds[playerIndex][trioCounts[playerIndex] * 3]);
+        int valueBit = 1 << (trioCardIds[playerIndex][trioCounts[playerIndex] * 3] / Card.COPIES_PER_VALUE + 1);
+        playerMasks[playerIndex] &= ~valueBit;
+
+        if (isTeamMode) {
+            teamMasks[playerIndex % teamCount] &= ~valueBit;
+        }
+
+        // Aucun trio ne peut être ajouté après une victoire : le trio retiré est forcément le trio gagnant
+        if (winnerIndex >= 0) {
+            winnerIndex = -1;
+            winReason = null;
         }
-        return getIndividualWinner(game);
     }
 
     /**
-     * Détermine le gagnant en mode individuel.
-     * Conditions de victoire :
-     * 1. Avoir le "Trio de 7".
-     * 2. Avoir 3 trios quelconques (Mode Normal).
-     * 3. Avoir 2 trios liés/voisins (Mode Piquant).
+     * Retire tous les trios et la victoire éventuelle, en conservant les écouteurs de victoire
+     * (redistribution d'une partie, voir {@link Game#reset(long)}).
      */
-    private Actor getIndividualWinner(Game game) {
-        for (Actor player : game.getPlayers()) {
-            List<List<Card>> playerTrios = getTriosForPlayer(player.getPlayerIndex());
-            if (playerTrios.isEmpty()) continue;
+    void clear() {
+        Arrays.fill(trioCounts, 0);
+        for (int i = 0; i < trioViews.size(); i++) {
+            trioViews.set(i, null);
+        }
+        Arrays.fill(playerMasks, 0);
+        Arrays.fill(teamMasks, 0);
+        winnerIndex = -1;
+        winReason = null;
+        zobristKey = 0L;
+    }
+
+    /**
+     * Teste les conditions de victoire d'un propriétaire (joueur ou équipe) à partir de ses masques.
+     * Chaque condition se résume à une opération sur les masques : le test est en temps constant.
+     *
+     * @param linked Vrai si le trio qui vient d'être ajouté est lié à un autre trio du propriétaire.
+     */
+    private void checkWin(int ownerIndex, int mask, boolean linked) {
+        if (winnerIndex >= 0) return;
 
-            // Condition de victoire immédiate : Le trio de 7
-            if (hasTrioOfSevens(playerTrios)) {
-                return player;
+        WinReason reason = null;
+        if ((mask & SEVEN_BIT) != 0) {
+            reason = WinReason.TRIO_OF_SEVENS;
+        } else if (isPiquant) {
+            // Les trios précédents étaient deux à deux non liés : seul le nouveau peut créer un lien
+            if (linked) {
+                reason = WinReason.LINKED_TRIOS;
             }
+        } else if (Integer.bitCount(mask) >= 3) {
+            reason = WinReason.THREE_TRIOS;
+        }
 
-            if (game.isPiquant()) {
-                // Mode Piquant : 2 trios liés (voisins)
-                if (hasNeighboringTrios(playerTrios)) {
-                    return player;
-                }
-            } else {
-                // Mode Normal : 3 trios
-                if (playerTrios.size() >= 3) {
-                    return player;
-                }
+        if (reason != null) {
+            winnerIndex = ownerIndex;
+            winReason = reason;
+            for (int i = 0; i < winListeners.size(); i++) {
+                winListeners.get(i).onWin(ownerIndex, reason);
             }
         }
-        return null;
     }
 
     /**
-     * Détermine le gagnant en mode équipe.
-     * Combine les trios des deux coéquipiers pour vérifier les conditions de victoire.
+     * Ajoute un écouteur notifié au moment où une condition de victoire devient vraie.
+     * @param listener L'écouteur à ajouter.
      */
-    private Actor getTeamWinner(Game game) {
-        List<Actor> checkedPlayers = new ArrayList<>();
-        for (Actor player : game.getPlayers()) {
-            if (checkedPlayers.contains(player)) {
-                continue;
-            }
+    public void addWinListener(WinListener listener) {
+        this.winListeners.add(listener);
+    }
 
-            if (player instanceof JoueurEquipe) {
-                JoueurEquipe teamPlayer1 = (JoueurEquipe) player;
-                JoueurEquipe teamPlayer2 = teamPlayer1.getTeammate();
-
-                if (teamPlayer2 == null) {
-                    continue;
-                }
-
-                // Fusion des trios de l'équipe
-                List<List<Card>> teamTrios = new ArrayList<>(getTriosForPlayer(teamPlayer1.getPlayerIndex()));
-                teamTrios.addAll(getTriosForPlayer(teamPlayer2.getPlayerIndex()));
-
-                checkedPlayers.add(teamPlayer1);
-                checkedPlayers.add(teamPlayer2);
-
-                if (teamTrios.isEmpty()) {
-                    continue;
-                }
-
-                if (hasTrioOfSevens(teamTrios)) {
-                    return teamPlayer1;
-                }
-
-                if (game.isPiquant()) {
-                    if (hasNeighboringTrios(teamTrios)) {
-                        return teamPlayer1;
-                    }
-                } else {
-                    if (teamTrios.size() >= 3) {
-                        return teamPlayer1;
-                    }
-                }
+    /**
+     * Récupère la liste des trios complétés par un joueur spécifique.
+     * @param playerIndex L'index du joueur.
+     * @return Une liste non modifiable des trios.
+     */
+    public List<List<Card>> getTriosForPlayer(int playerIndex) {
+        List<List<Card>> view = trioViews.get(playerIndex);
+        if (view == null) {
+            int[] ids = trioCardIds[playerIndex];
+            List<List<Card>> trios = new ArrayList<>(trioCounts[playerIndex]);
+            for (int t = 0; t < trioCounts[playerIndex]; t++) {
+                trios.add(List.of(Card.fromId(ids[t * 3]), Card.fromId(ids[t * 3 + 1]), Card.fromId(ids[t * 3 + 2])));
             }
+            view = Collections.unmodifiableList(trios);
+            trioViews.set(playerIndex, view);
         }
-        return null;
+        return view;
     }
 
     /**
-     * Vérifie si la liste de trios contient le trio de valeur 7.
+     * @param playerIndex L'index du joueur.
+     * @return Le nombre de trios complétés par le joueur.
      */
-    private boolean hasTrioOfSevens(List<List<Card>> trios) {
-        return trios.stream().anyMatch(trio -> !trio.isEmpty() && trio.get(0).getValue() == 7);
+    public int getTrioCount(int playerIndex) {
+        return trioCounts[playerIndex];
     }
 
     /**
-     * Vérifie si la liste contient deux trios qui sont "voisins" (liés).
-     * Utilise la méthode isNeighbor() de la classe Card.
+     * @param playerIndex L'index du joueur.
+     * @param position La position de la carte parmi les cartes des trios du joueur (3 par trio, dans l'ordre d'ajout).
+     * @return L'identifiant de la carte.
      */
-    private boolean hasNeighboringTrios(List<List<Card>> trios) {
-        if (trios.size() < 2) return false;
+    public int getTrioCardId(int playerIndex, int position) {
+        return trioCardIds[playerIndex][position];
+    }
 
-        for (int i = 0; i < trios.size(); i++) {
-            for (int j = i + 1; j < trios.size(); j++) {
-                Card cardFromTrio1 = trios.get(i).get(0);
-                Card cardFromTrio2 = trios.get(j).get(0);
+    /**
+     * @param playerIndex L'index du joueur.
+     * @return Le masque des valeurs de trios du joueur (bit {@code 1 << valeur}).
+     */
+    public int getTrioMask(int playerIndex) {
+        return playerMasks[playerIndex];
+    }
 
-                if (cardFromTrio1.isNeighbor(cardFromTrio2)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    /**
+     * @return La clé de hachage de Zobrist des trios formés par chaque joueur.
+     */
+    long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return L'index du gagnant (premier joueur de l'équipe en mode équipe), ou -1 s'il n'y en a pas.
+     */
+    public int getWinnerIndex() {
+        return winnerIndex;
+    }
+
+    /**
+     * @return La raison de la victoire, ou null s'il n'y a pas encore de gagnant.
+     */
+    public WinReason getWinReason() {
+        return winReason;
+    }
+
+    /**
+     * Renvoie le gagnant éventuel, déterminé lors du dernier ajout de trio.
+     *
+     * @param game L'instance actuelle du jeu pour obtenir les joueurs.
+     * @return L'acteur gagnant, ou null s'il n'y a pas encore de gagnant.
+     */
+    public Actor getWinner(Game game) {
+        return winnerIndex < 0 ? null : game.getPlayers().get(winnerIndex);
     }
 }
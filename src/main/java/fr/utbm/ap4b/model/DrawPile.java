@@ -1,86 +1,163 @@
 package fr.utbm.ap4b.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * DrawPile représente la pioche du jeu Trio.
  * Elle est responsable de la création du jeu de cartes complet, de son mélange
  * et de la distribution des cartes aux joueurs en début de partie.
  * Elle gère également les cartes restantes qui forment le "centre" du jeu.
+ * Les cartes sont rangées dans un tableau fixe : la pioche avance grâce à un curseur de tête,
+ * et un index carte -> emplacement permet de retirer une carte du centre par échange avec la dernière.
  */
 public class DrawPile {
 
-    private List<Card> cards;
+    private final Card[] cards;
+    private final int[] slotByCardId; // Emplacement de chaque carte dans le tableau, -1 si absente
+    private long mask; // Identifiants des cartes restantes
+    private final List<Card> remainingView;
+    private RandomGenerator random;
+    private int head; // Index de la prochaine carte à piocher
+    private int end;  // Index suivant la dernière carte restante
+
+    /**
+     * Construit une nouvelle pioche mélangée avec un générateur aléatoire non reproductible.
+     */
+    public DrawPile() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Construit une pioche dont le mélange est entièrement déterminé par la graine fournie.
+     * @param seed La graine du générateur aléatoire.
+     */
+    public DrawPile(long seed) {
+        this(new ReseedableRandom(seed));
+    }
 
     /**
      * Construit une nouvelle pioche.
      * Le jeu est constitué de 36 cartes : 3 exemplaires de chaque valeur de 1 à 12.
-     * Le jeu de cartes est automatiquement mélangé à la création.
+     * Le jeu de cartes est automatiquement mélangé à la création, à l'aide du générateur fourni.
+     * Le générateur est propre à la pioche : il ne doit pas être partagé entre plusieurs threads.
+     *
+     * @param random Le générateur aléatoire utilisé pour les mélanges.
      */
-    public DrawPile() {
-        this.cards = new ArrayList<>();
-        // Crée 3 cartes pour chaque valeur définie dans l'énumération Trios
-        for (Trios trioValue : Trios.values()) {
-            for (int i = 0; i < 3; i++) {
-                this.cards.add(new Card(trioValue));
-            }
+    public DrawPile(RandomGenerator random) {
+        this.random = Objects.requireNonNull(random, "Le générateur aléatoire ne peut pas être nul");
+        this.cards = new Card[Card.DECK_SIZE];
+        this.slotByCardId = new int[Card.DECK_SIZE];
+        this.remainingView = new RemainingCardsView();
+        fillAndShuffle();
+    }
+
+    /**
+     * Construit une copie indépendante de la pioche (utilisée par {@link Game#copy()}).
+     * @param random Le générateur de la copie (le générateur d'une pioche ne doit pas être partagé).
+     */
+    DrawPile(DrawPile other, RandomGenerator random) {
+        this.random = Objects.requireNonNull(random, "Le générateur aléatoire ne peut pas être nul");
+        this.cards = other.cards.clone();
+        this.slotByCardId = other.slotByCardId.clone();
+        this.mask = other.mask;
+        this.head = other.head;
+        this.end = other.end;
+        this.remainingView = new RemainingCardsView();
+    }
+
+    /**
+     * Remet le jeu complet dans la pioche et le mélange comme une pioche neuve créée avec la même graine
+     * (voir {@link #DrawPile(long)}), sans allocation lorsque la pioche a déjà été créée avec une graine.
+     *
+     * @param seed La graine du mélange.
+     */
+    void reset(long seed) {
+        if (random instanceof ReseedableRandom) {
+            ((ReseedableRandom) random).setSeed(seed);
+        } else {
+            random = new ReseedableRandom(seed);
         }
+        fillAndShuffle();
+    }
+
+    /**
+     * Range les 36 cartes dans l'ordre de leurs identifiants, puis les mélange.
+     */
+    private void fillAndShuffle() {
+        // Récupère les 3 exemplaires de chaque valeur depuis la table partagée des cartes
+        for (int id = 0; id < Card.DECK_SIZE; id++) {
+            this.cards[id] = Card.fromId(id);
+            this.slotByCardId[id] = id;
+        }
+        this.head = 0;
+        this.end = Card.DECK_SIZE;
+        this.mask = (1L << Card.DECK_SIZE) - 1;
         shuffle();
     }
 
     /**
-     * Mélange les cartes restantes dans la pioche.
+     * Mélange les cartes restantes dans la pioche (algorithme de Fisher-Yates).
      */
     public void shuffle() {
-        Collections.shuffle(this.cards);
+        for (int i = end - 1; i > head; i--) {
+            int j = head + random.nextInt(i - head + 1);
+            Card tmp = cards[i];
+            cards[i] = cards[j];
+            cards[j] = tmp;
+        }
+        for (int i = head; i < end; i++) {
+            slotByCardId[cards[i].getId()] = i;
+        }
     }
 
     /**
-     * Distribue les cartes aux joueurs en fonction du mode de jeu et du nombre de joueurs.
-     * Les cartes distribuées sont retirées de la pioche. Le reste forme le "centre".
+     * Calcule le nombre de cartes distribuées à chaque joueur selon les règles officielles.
      *
      * @param numPlayers Le nombre de joueurs dans la partie.
      * @param isTeamMode Vrai si la partie est en mode équipe, faux sinon.
-     * @return Une liste de listes de cartes, où chaque liste interne représente la main d'un joueur.
+     * @return Le nombre de cartes par joueur.
      * @throws IllegalArgumentException si le nombre de joueurs n'est pas supporté.
      */
-    public List<List<Card>> dealHands(int numPlayers, boolean isTeamMode) {
-        int cardsPerPlayer;
-        int totalCardsToDeal;
-
-        // Calcul du nombre de cartes à distribuer selon les règles officielles
+    public static int getCardsPerPlayer(int numPlayers, boolean isTeamMode) {
         if (isTeamMode) {
             if (numPlayers == 4 || numPlayers == 6) { // 2 ou 3 équipes de 2
-                totalCardsToDeal = 36; // Toutes les cartes sont distribuées en équipe
-                cardsPerPlayer = totalCardsToDeal / numPlayers;
-            } else {
-                throw new IllegalArgumentException("Le mode équipe est uniquement disponible pour 4 ou 6 joueurs.");
-            }
-        } else {
-            switch (numPlayers) {
-                case 3:
-                    cardsPerPlayer = 9;
-                    break;
-                case 4:
-                    cardsPerPlayer = 7;
-                    break;
-                case 5:
-                    cardsPerPlayer = 6;
-                    break;
-                case 6:
-                    cardsPerPlayer = 5;
-                    break;
-                default:
-                    throw new IllegalArgumentException("Nombre de joueurs non supporté : " + numPlayers);
+                return Card.DECK_SIZE / numPlayers; // Toutes les cartes sont distribuées en équipe
             }
-            totalCardsToDeal = cardsPerPlayer * numPlayers;
+            throw new IllegalArgumentException("Le mode équipe est uniquement disponible pour 4 ou 6 joueurs.");
         }
-
-        if (this.cards.size() < totalCardsToDeal) {
-            throw new IllegalStateException("Pas assez de cartes dans la pioche pour distribuer.");
+        switch (numPlayers) {
+            case 3:
+                return 9;
+            case 4:
+                return 7;
+            case 5:
+                return 6;
+            case 6:
+                return 5;
+            default:
+                throw new IllegalArgumentException("Nombre de joueurs non supporté : " + numPlayers);
         }
+    }
+
+    /**
+     * Distribue les cartes aux joueurs en fonction du mode de jeu et du nombre de joueurs.
+     * Les cartes distribuées sont retirées de la pioche. Le reste forme le "centre".
+     *
+     * @param numPlayers Le nombre de joueurs dans la partie.
+     * @param isTeamMode Vrai si la partie est en mode équipe, faux sinon.
+     * @return Une liste de listes de cartes, où chaque liste interne représente la main d'un joueur.
+     * @throws IllegalArgumentException si le nombre de joueurs n'est pas supporté.
+     */
+    public List<List<Card>> dealHands(int numPlayers, boolean isTeamMode) {
+        int cardsPerPlayer = getCardsPerPlayer(numPlayers, isTeamMode);
+        checkEnoughCards(cardsPerPlayer * numPlayers);
 
         // Initialisation des mains vides
         List<List<Card>> playersHands = new ArrayList<>();
@@ -98,39 +175,191 @@ public class DrawPile {
         return playersHands;
     }
 
+    /**
+     * Distribue les cartes directement dans les mains des joueurs, sans liste intermédiaire.
+     * L'ordre de distribution est identique à celui de {@link #dealHands(int, boolean)}.
+     *
+     * @param players Les joueurs de la partie, dont les mains sont supposées vides.
+     * @param isTeamMode Vrai si la partie est en mode équipe, faux sinon.
+     */
+    public void dealInto(List<? extends Actor> players, boolean isTeamMode) {
+        int numPlayers = players.size();
+        int cardsPerPlayer = getCardsPerPlayer(numPlayers, isTeamMode);
+        checkEnoughCards(cardsPerPlayer * numPlayers);
+
+        for (int i = 0; i < cardsPerPlayer; i++) {
+            for (int j = 0; j < numPlayers; j++) {
+                players.get(j).getHand().addCard(draw());
+            }
+        }
+    }
+
+    private void checkEnoughCards(int totalCardsToDeal) {
+        if (getRemainingCardCount() < totalCardsToDeal) {
+            throw new IllegalStateException("Pas assez de cartes dans la pioche pour distribuer.");
+        }
+    }
+
     /**
      * Retire et retourne la carte du dessus de la pioche.
      * Utilisé principalement pour la distribution initiale des cartes.
      * @return La carte piochée, ou null si la pioche est vide.
      */
     public Card draw() {
-        if (this.cards.isEmpty()) {
+        if (head == end) {
             return null;
         }
-        return this.cards.remove(0);
+        Card card = cards[head];
+        cards[head++] = null;
+        slotByCardId[card.getId()] = -1;
+        mask &= ~(1L << card.getId());
+        return card;
     }
 
     /**
      * Retire une carte spécifique de la pioche (utile pour prendre une carte du "centre").
+     * La dernière carte restante prend la place de la carte retirée.
      * @param card La carte à retirer.
      * @return {@code true} si la carte a été trouvée et retirée, {@code false} sinon.
      */
     public boolean draw(Card card) {
-        return this.cards.remove(card);
+        if (!contains(card)) {
+            return false;
+        }
+        int slot = slotByCardId[card.getId()];
+        Card last = cards[end - 1];
+        cards[slot] = last;
+        slotByCardId[last.getId()] = slot;
+        cards[--end] = null;
+        slotByCardId[card.getId()] = -1;
+        mask &= ~(1L << card.getId());
+        return true;
+    }
+
+    /**
+     * @param card La carte recherchée.
+     * @return Vrai si la carte est encore dans la pioche.
+     */
+    public boolean contains(Card card) {
+        return card != null && slotByCardId[card.getId()] >= 0;
+    }
+
+    /**
+     * @param card La carte recherchée.
+     * @return La position de la carte parmi les cartes restantes, ou -1 si elle n'est plus dans la pioche.
+     */
+    public int indexOf(Card card) {
+        if (!contains(card)) {
+            return -1;
+        }
+        return slotByCardId[card.getId()] - head;
+    }
+
+    /**
+     * Replace une carte précédemment retirée par {@link #draw(Card)} à sa position d'origine.
+     * La carte qui occupait cette position retourne en dernière place, ce qui annule exactement
+     * l'échange effectué lors du retrait (les restaurations se font dans l'ordre inverse des retraits).
+     *
+     * @param card La carte à replacer.
+     * @param index La position qu'elle occupait parmi les cartes restantes.
+     */
+    void restore(Card card, int index) {
+        int slot = head + index;
+        if (slot == end) {
+            cards[end++] = card;
+        } else {
+            Card moved = cards[slot];
+            cards[end] = moved;
+            slotByCardId[moved.getId()] = end;
+            end++;
+            cards[slot] = card;
+        }
+        slotByCardId[card.getId()] = slot;
+        mask |= 1L << card.getId();
     }
 
+    /**
+     * Remplace toutes les cartes restantes (restauration d'une partie sauvegardée, voir {@link GameSnapshot}).
+     *
+     * @param cardIds Les identifiants des cartes restantes, dans l'ordre du centre.
+     * @param count Le nombre de cartes restantes.
+     */
+    void setCards(int[] cardIds, int count) {
+        Arrays.fill(cards, null);
+        Arrays.fill(slotByCardId, -1);
+        mask = 0L;
+        for (int i = 0; i < count; i++) {
+            cards[i] = Card.fromId(cardIds[i]);
+            slotByCardId[cardIds[i]] = i;
+            mask |= 1L << cardIds[i];
+        }
+        head = 0;
+        end = count;
+    }
+
+    /**
+     * Remplace la carte située à une position du centre par une carte absente de la pioche
+     * (utilisé pour tirer une distribution des cartes cachées, voir {@link Game#determinize(int, RandomGenerator)}).
+     *
+     * @param index La position de la carte parmi les cartes restantes.
+     * @param card La nouvelle carte.
+     */
+    void replaceCard(int index, Card card) {
+        int slot = head + index;
+        Card previous = cards[slot];
+        if (slotByCardId[previous.getId()] == slot) {
+            slotByCardId[previous.getId()] = -1;
+            mask &= ~(1L << previous.getId());
+        }
+        cards[slot] = card;
+        slotByCardId[card.getId()] = slot;
+        mask |= 1L << card.getId();
+    }
+
+    /**
+     * @param index La position de la carte parmi les cartes restantes.
+     * @return La carte à cette position.
+     */
+    public Card getCard(int index) {
+        return remainingView.get(index);
+    }
 
     /**
      * @return Le nombre de cartes restantes dans la pioche (le "centre").
      */
     public int getRemainingCardCount() {
-        return this.cards.size();
+        return end - head;
     }
 
     /**
-     * @return La liste des cartes restantes dans la pioche.
+     * @return Le masque de bits des identifiants des cartes restantes dans la pioche.
+     */
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * @return Une vue non modifiable (sans copie) des cartes restantes dans la pioche.
      */
     public List<Card> getRemainingCards() {
-        return Collections.unmodifiableList(this.cards);
+        return remainingView;
+    }
+
+    /**
+     * Vue en lecture seule sur la portion [head, end) du tableau de cartes.
+     */
+    private class RemainingCardsView extends AbstractList<Card> implements RandomAccess {
+        @Override
+        public Card get(int index) {
+            if (index < 0 || index >= end - head) {
+                throw new IndexOutOfBoundsException("Index " + index + " hors de la pioche (" + (end - head) + " cartes).");
+            }
+            return cards[head + index];
+        }
+
+        @Override
+        public int size() {
+            return end - head;
+        }
     }
 }
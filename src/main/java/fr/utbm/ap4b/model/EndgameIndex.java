@@ -0,0 +1,426 @@
+package fr.utbm.ap4b.model;
+
+/**
+ * Numérotation des positions de fin de partie couvertes par une table de finales ({@link Tablebase}).
+ * <p>
+ * Une position de fin de partie est une position de début de tour (aucune carte révélée, phase de jeu)
+ * à laquelle il ne reste que quelques valeurs en jeu. Les trios retirant les trois exemplaires d'une valeur,
+ * chaque valeur restante a encore ses trois exemplaires, et le 7 en fait toujours partie (son trio termine la partie).
+ * La position est décrite de façon abstraite, ce qui la rend indépendante des valeurs exactes et du mode
+ * normal ou piquant :
+ * <ul>
+ *     <li>pour chaque valeur restante, par ordre croissant (son « rang »), le nombre d'exemplaires à chaque
+ *     emplacement (main de chaque joueur, puis le centre hors mode équipe) ;</li>
+ *     <li>le rang du 7 ;</li>
+ *     <li>pour chaque camp (joueur, ou équipe en mode équipe), la fonction indiquant quels ensembles de valeurs
+ *     restantes autres que le 7 le feraient gagner s'il en formait les trios (table de vérité monotone) ;</li>
+ *     <li>le joueur dont c'est le tour.</li>
+ * </ul>
+ * Les positions ayant le même nombre de valeurs restantes forment une couche ; les positions d'une couche
+ * qui ne diffèrent que par le joueur courant sont consécutives (un « groupe »).
+ * <p>
+ * En mode piquant, le lien entre deux trios est orienté (voir {@link CompletedTrios}) : pour une paire de valeurs
+ * liées dans un seul sens, le gain dépend de l'ordre dans lequel les trios sont formés, et en mode équipe
+ * du coéquipier qui les forme. Une telle fonction ne s'écrit pas comme une table de vérité sur des ensembles :
+ * les positions où cette paire peut encore se former ne sont pas couvertes.
+ */
+public final class EndgameIndex {
+
+    /**
+     * Nombre maximal de valeurs restantes pris en charge (les tables de vérité tiennent alors sur 8 bits).
+     */
+    public static final int MAX_VALUES = 4;
+
+    private static final int SEVEN = Trios.DEUTEC.getValue();
+    private static final int COPIES = Card.COPIES_PER_VALUE;
+
+    private final int numPlayers;
+    private final boolean isTeamMode;
+    private final int numOwners;
+    private final int numLocations;
+    private final int maxValues;
+
+    private final int[][] patterns;   // Nombre d'exemplaires d'une valeur à chaque emplacement, par identifiant de motif
+    private final int[] patternByCode; // Motif codé en base 4 (un chiffre par emplacement) -> identifiant
+    private final int[][] functions;   // Tables de vérité des fonctions de victoire, par nombre de variables
+    private final int[][] functionIds; // Table de vérité -> identifiant, par nombre de variables (-1 si invalide)
+    private final long[] layerSizes;
+    private final long[] layerOffsets;
+
+    /**
+     * @param numPlayers Le nombre de joueurs (3 à 6, ou 4 et 6 en mode équipe).
+     * @param isTeamMode Vrai en mode équipe (camps de deux joueurs, pas de centre).
+     * @param maxValues Le nombre maximal de valeurs restantes couvertes (1 à {@link #MAX_VALUES}).
+     * @throws IllegalArgumentException Si la configuration n'est pas prise en charge.
+     */
+    public EndgameIndex(int numPlayers, boolean isTeamMode, int maxValues) {
+        DrawPile.getCardsPerPlayer(numPlayers, isTeamMode); // Valide le nombre de joueurs
+        if (maxValues < 1 || maxValues > MAX_VALUES) {
+            throw new IllegalArgumentException("Le nombre de valeurs restantes doit être compris entre 1 et " + MAX_VALUES + ".");
+        }
+        this.numPlayers = numPlayers;
+        this.isTeamMode = isTeamMode;
+        this.numOwners = isTeamMode ? numPlayers / 2 : numPlayers;
+        this.numLocations = isTeamMode ? numPlayers : numPlayers + 1;
+        this.maxValues = maxValues;
+
+        // Répartitions des trois exemplaires d'une valeur entre les emplacements
+        int codes = 1 << (2 * numLocations);
+        this.patternByCode = new int[codes];
+        int count = 0;
+        int[][] all = new int[codes][];
+        for (int code = 0; code < codes; code++) {
+            patternByCode[code] = -1;
+            int[] copies = new int[numLocations];
+            int total = 0;
+            for (int location = 0; location < numLocations; location++) {
+                copies[location] = (code >>> (2 * location)) & 3;
+                total += copies[location];
+            }
+            if (total == COPIES) {
+                patternByCode[code] = count;
+                all[count++] = copies;
+            }
+        }
+        this.patterns = new int[count][];
+        System.arraycopy(all, 0, patterns, 0, count);
+
+        // Fonctions de victoire monotones et fausses sur l'ensemble vide, pour 0 à maxValues - 1 variables
+        this.functions = new int[maxValues][];
+        this.functionIds = new int[maxValues][];
+        for (int k = 0; k < maxValues; k++) {
+            int tables = 1 << (1 << k);
+            int[] ids = new int[tables];
+            int[] valid = new int[tables];
+            int found = 0;
+            for (int table = 0; table < tables; table++) {
+                ids[table] = isValidFunction(table, k) ? found : -1;
+                if (ids[table] >= 0) {
+                    valid[found++] = table;
+                }
+            }
+            functionIds[k] = ids;
+            functions[k] = new int[found];
+            System.arraycopy(valid, 0, functions[k], 0, found);
+        }
+
+        this.layerSizes = new long[maxValues + 1];
+        this.layerOffsets = new long[maxValues + 2];
+        for (int r = 1; r <= maxValues; r++) {
+            long size = pow(patterns.length, r) * r * pow(functions[r - 1].length, numOwners) * numPlayers;
+            layerSizes[r] = size;
+            // Couches alignées sur un nombre pair de positions (deux positions par octet dans le fichier)
+            layerOffsets[r + 1] = layerOffsets[r] + size + (size & 1);
+        }
+    }
+
+    public int getNumPlayers() {
+        return numPlayers;
+    }
+
+    public boolean isTeamMode() {
+        return isTeamMode;
+    }
+
+    /**
+     * @return Le nombre de camps : joueurs, ou équipes en mode équipe.
+     */
+    public int getNumOwners() {
+        return numOwners;
+    }
+
+    /**
+     * @return Le nombre d'emplacements : les mains des joueurs, puis le centre hors mode équipe.
+     */
+    public int getNumLocations() {
+        return numLocations;
+    }
+
+    public int getMaxValues() {
+        return maxValues;
+    }
+
+    /**
+     * @param playerIndex L'index d'un joueur.
+     * @return Son camp (même numérotation que {@link CompletedTrios#getWinnerIndex()}).
+     */
+    public int ownerOf(int playerIndex) {
+        return isTeamMode ? playerIndex % numOwners : playerIndex;
+    }
+
+    /**
+     * @param r Le nombre de valeurs restantes.
+     * @return Le nombre de positions de la couche.
+     */
+    public long getLayerSize(int r) {
+        return layerSizes[r];
+    }
+
+    /**
+     * @param r Le nombre de valeurs restantes.
+     * @return La position de la couche dans la numérotation globale.
+     */
+    public long getLayerOffset(int r) {
+        return layerOffsets[r];
+    }
+
+    /**
+     * @return Le nombre total de positions numérotées, toutes couches confondues.
+     */
+    public long getTotalSize() {
+        return layerOffsets[maxValues + 1];
+    }
+
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    /**
+     * @return Le nombre d'exemplaires à un emplacement pour un motif de répartition.
+     */
+    public int getCopies(int patternId, int location) {
+        return patterns[patternId][location];
+    }
+
+    /**
+     * @param copies Le nombre d'exemplaires à chaque emplacement (somme égale à 3).
+     * @return L'identifiant du motif de répartition.
+     */
+    public int getPatternId(int[] copies) {
+        int code = 0;
+        for (int location = 0; location < numLocations; location++) {
+            code |= copies[location] << (2 * location);
+        }
+        return patternByCode[code];
+    }
+
+    /**
+     * @param k Le nombre de variables (valeurs restantes autres que le 7).
+     * @return Le nombre de fonctions de victoire possibles.
+     */
+    public int getFunctionCount(int k) {
+        return functions[k].length;
+    }
+
+    /**
+     * @return La table de vérité d'une fonction de victoire : le bit {@code s} vaut 1 si former les trios
+     * des variables de l'ensemble {@code s} fait gagner le camp.
+     */
+    public int getTruthTable(int k, int functionId) {
+        return functions[k][functionId];
+    }
+
+    /**
+     * @return L'identifiant d'une table de vérité à k variables, ou -1 si elle n'est pas valide.
+     */
+    public int getFunctionId(int k, int truthTable) {
+        return functionIds[k][truthTable];
+    }
+
+    /**
+     * Calcule le numéro d'un groupe de positions (toutes les positions qui ne diffèrent que par le joueur courant).
+     *
+     * @param r Le nombre de valeurs restantes.
+     * @param patternIds Le motif de répartition de chaque rang.
+     * @param sevenRank Le rang du 7.
+     * @param functionIdsByOwner La fonction de victoire de chaque camp.
+     * @return Le numéro du groupe dans la couche ; la position du joueur p est {@code groupe * nbJoueurs + p}.
+     */
+    public long encodeGroup(int r, int[] patternIds, int sevenRank, int[] functionIdsByOwner) {
+        long group = 0;
+        for (int rank = r - 1; rank >= 0; rank--) {
+            group = group * patterns.length + patternIds[rank];
+        }
+        group = group * r + sevenRank;
+        int functionCount = functions[r - 1].length;
+        for (int owner = numOwners - 1; owner >= 0; owner--) {
+            group = group * functionCount + functionIdsByOwner[owner];
+        }
+        return group;
+    }
+
+    /**
+     * Opération inverse de {@link #encodeGroup}.
+     * @return Le rang du 7.
+     */
+    public int decodeGroup(int r, long group, int[] patternIds, int[] functionIdsByOwner) {
+        int functionCount = functions[r - 1].length;
+        for (int owner = 0; owner < numOwners; owner++) {
+            functionIdsByOwner[owner] = (int) (group % functionCount);
+            group /= functionCount;
+        }
+        int sevenRank = (int) (group % r);
+        group /= r;
+        for (int rank = 0; rank < r; rank++) {
+            patternIds[rank] = (int) (group % patterns.length);
+            group /= patterns.length;
+        }
+        return sevenRank;
+    }
+
+    /**
+     * Calcule le numéro global d'une position de partie, si elle est couverte.
+     * Le calcul n'alloue rien (le numéro du groupe est accumulé au fil des rangs, comme {@link #encodeGroup}) :
+     * il peut être appelé à chaque tour d'une partie simulée, depuis plusieurs threads.
+     *
+     * @param game La partie.
+     * @return Le numéro de la position (voir {@link #getLayerOffset(int)}), ou -1 si la position n'est pas
+     * un début de tour avec au plus {@link #getMaxValues()} valeurs restantes, si la configuration diffère,
+     * ou si le gain d'un camp y dépend de l'ordre des trios (mode piquant, voir la description de la classe).
+     */
+    public long indexOf(GameView game) {
+        if (game.getNumPlayers() != numPlayers || game.isTeamMode() != isTeamMode || game.isGameEnded()
+                || game.getCurrentPhase() != Game.GamePhase.PLAYING || game.getRevealedCount() != 0) {
+            return -1;
+        }
+        long inPlay = game.getCenterMask();
+        for (int p = 0; p < numPlayers; p++) {
+            inPlay |= game.getHandMask(p);
+        }
+        int r = Long.bitCount(inPlay) / COPIES;
+        if (r < 1 || r > maxValues) {
+            return -1;
+        }
+
+        // Motif de chaque rang, de poids croissant dans le numéro du groupe
+        long group = 0;
+        long weight = 1;
+        int values = 0; // Valeur de chaque rang, sur 4 bits
+        int remainingValues = 0; // Valeurs restantes autres que le 7 (bit 1 << valeur)
+        int sevenRank = -1;
+        int rank = 0;
+        for (long remaining = inPlay; remaining != 0L; rank++) {
+            int value = Long.numberOfTrailingZeros(remaining) / COPIES + 1;
+            long valueMask = valueMask(value);
+            remaining &= ~valueMask;
+            int code = 0;
+            for (int location = 0; location < numLocations; location++) {
+                long cards = location < numPlayers ? game.getHandMask(location) : game.getCenterMask();
+                code |= Long.bitCount(cards & valueMask) << (2 * location);
+            }
+            group += patternByCode[code] * weight;
+            weight *= patterns.length;
+            values |= value << (4 * rank);
+            if (value == SEVEN) {
+                sevenRank = rank;
+            } else {
+                remainingValues |= 1 << value;
+            }
+        }
+        if (sevenRank < 0) {
+            return -1;
+        }
+        group = group * r + sevenRank;
+
+        // Fonction de victoire de chaque camp sur les valeurs restantes autres que le 7, du dernier camp au premier
+        int k = r - 1;
+        int functionCount = functions[k].length;
+        for (int owner = numOwners - 1; owner >= 0; owner--) {
+            // Trios du camp ; en mode équipe, ceux du premier coéquipier sont rangés avant ceux du second
+            int firstTrios = game.getTrioMask(owner);
+            int secondTrios = isTeamMode ? game.getTrioMask(owner + numOwners) : 0;
+            if (game.isPiquant() && isOrderSensitive(remainingValues, secondTrios)) {
+                return -1;
+            }
+            int table = 0;
+            for (int subset = 1; subset < (1 << k); subset++) {
+                // Hors paires orientées, l'ordre des trios et le coéquipier qui les forme sont indifférents :
+                // le premier coéquipier forme ici les trios du sous-ensemble par valeur croissante
+                int earlier = firstTrios;
+                boolean wins = false;
+                for (int variable = 0; variable < k && !wins; variable++) {
+                    if ((subset & (1 << variable)) != 0) {
+                        int variableRank = variable < sevenRank ? variable : variable + 1;
+                        int value = (values >>> (4 * variableRank)) & 0xF;
+                        earlier |= 1 << value;
+                        wins = game.isPiquant() ? Trios.isLinked(earlier & ~(1 << value), secondTrios, value)
+                                : Integer.bitCount(earlier | secondTrios) >= 3;
+                    }
+                }
+                if (wins) {
+                    table |= 1 << subset;
+                }
+            }
+            group = group * functionCount + functionIds[k][table];
+        }
+        return layerOffsets[r] + group * numPlayers + game.getPlayerTurn();
+    }
+
+    /**
+     * Indique si le gain d'un camp en mode piquant dépend de l'ordre des trios restants : une valeur restante
+     * est liée dans un seul sens à une autre valeur restante, ou, en mode équipe, à un trio du second coéquipier
+     * (le lien dépend alors du coéquipier qui formera le trio restant).
+     *
+     * @param remainingValues Les valeurs restantes autres que le 7 (bit {@code 1 << valeur}).
+     * @param secondTrios Les trios du second coéquipier du camp (0 hors mode équipe).
+     */
+    private static boolean isOrderSensitive(int remainingValues, int secondTrios) {
+        for (int rest = remainingValues; rest != 0; rest &= rest - 1) {
+            if ((Trios.oneWayLinks(Integer.numberOfTrailingZeros(rest)) & (remainingValues | secondTrios)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fonction de victoire d'un camp après qu'il a formé le trio d'une variable (sans gagner) :
+     * f'(S) = f(S ∪ {variable}), la variable étant retirée.
+     */
+    public static int absorb(int truthTable, int k, int variable) {
+        return project(truthTable, k, variable, 1);
+    }
+
+    /**
+     * Fonction de victoire d'un camp après qu'un autre camp a formé le trio d'une variable :
+     * f'(S) = f(S), la variable étant retirée.
+     */
+    public static int drop(int truthTable, int k, int variable) {
+        return project(truthTable, k, variable, 0);
+    }
+
+    private static int project(int truthTable, int k, int variable, int bit) {
+        int result = 0;
+        for (int subset = 0; subset < (1 << (k - 1)); subset++) {
+            int low = subset & ((1 << variable) - 1);
+            int full = ((subset >>> variable) << (variable + 1)) | (bit << variable) | low;
+            if ((truthTable & (1 << full)) != 0) {
+                result |= 1 << subset;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Vrai si la table est monotone (gagner avec S implique gagner avec tout ensemble contenant S)
+     * et fausse sur l'ensemble vide (la position n'est pas déjà gagnée).
+     */
+    private static boolean isValidFunction(int truthTable, int k) {
+        if ((truthTable & 1) != 0) {
+            return false;
+        }
+        for (int subset = 0; subset < (1 << k); subset++) {
+            if ((truthTable & (1 << subset)) == 0) {
+                continue;
+            }
+            for (int variable = 0; variable < k; variable++) {
+                if ((truthTable & (1 << (subset | (1 << variable)))) == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long valueMask(int value) {
+        return 7L << ((value - 1) * COPIES);
+    }
+
+    private static long pow(long base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result = Math.multiplyExact(result, base);
+        }
+        return result;
+    }
+}
@@ -1,16 +1,19 @@
 package fr.utbm.ap4b.model;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Classe principale gérant la logique et l'état d'une partie de Trio.
  * Elle agit comme le "Cerveau" du jeu, validant les règles, gérant les tours
  * et stockant l'état global (joueurs, pioche, cartes révélées).
  */
-public class Game {
+public class Game implements GameView {
 
     public enum GamePhase {
         INITIAL_SWAP,
@@ -18,7 +21,64 @@ public class Game {
         POST_TRIO_SWAP
     }
 
+    /**
+     * Écouteur notifié des événements de la partie qui modifient ce que les joueurs savent des cartes.
+     * Les notifications ont lieu sur le thread qui modifie la partie ; toutes les méthodes sont facultatives.
+     */
+    public interface GameListener {
+
+        /**
+         * Une carte vient d'être révélée.
+         * @param cardId L'identifiant de la carte.
+         * @param owner L'index du joueur d'où vient la carte, ou {@link #CENTER_OWNER}.
+         * @param type {@link Action.Type#REVEAL_SMALLEST}, {@link Action.Type#REVEAL_LARGEST} ou {@link Action.Type#REVEAL_CENTER}.
+         */
+        default void onCardRevealed(int cardId, int owner, Action.Type type) {
+        }
+
+        /**
+         * Une carte révélée vient de quitter le jeu pour former un trio.
+         * @param cardId L'identifiant de la carte.
+         * @param owner L'index du joueur d'où vient la carte, ou {@link #CENTER_OWNER}.
+         */
+        default void onCardRemoved(int cardId, int owner) {
+        }
+
+        /**
+         * Deux coéquipiers viennent d'échanger secrètement une carte.
+         * @param initiatorIndex Le joueur qui a initié l'échange.
+         * @param teammateIndex Son coéquipier.
+         * @param givenCardId La carte donnée par l'initiateur.
+         * @param receivedCardId La carte reçue par l'initiateur.
+         */
+        default void onCardsExchanged(int initiatorIndex, int teammateIndex, int givenCardId, int receivedCardId) {
+        }
+
+        /**
+         * Le tour d'un joueur vient de se terminer (après le retrait des cartes d'un éventuel trio).
+         * @param playerIndex Le joueur dont le tour se termine.
+         * @param trioFormed Vrai si le tour s'est terminé par un trio.
+         */
+        default void onTurnEnded(int playerIndex, boolean trioFormed) {
+        }
+
+        /**
+         * L'état de la partie vient de changer d'un bloc (distribution, annulation d'une action) :
+         * l'écouteur doit se recaler sur la partie.
+         * @param game La partie.
+         */
+        default void onResync(GameView game) {
+        }
+    }
+
+    /**
+     * Valeur de {@link #getRevealedOwner(int)} pour une carte révélée depuis le centre.
+     */
+    public static final int CENTER_OWNER = -1;
+
     private DrawPile drawPile;
+    private long seed;
+    private boolean hasSeed; // Faux si la partie a été créée avec un générateur externe
     private final int numPlayers;
     private final boolean isTeamMode;
     private final boolean isPiquant;
@@ -29,16 +89,40 @@ public class Game {
     private CompletedTrios completedTrios;
     private boolean isGameStarted;
     private Actor winner = null;
-    private List<CardLocation> revealedCards;
-    private List<Card> cardsInPlayThisTurn;
+    private boolean verbose;
+
+    // Cartes révélées pendant le tour courant, stockées sous forme primitive (aucune allocation par tour)
+    private final int[] revealedIds;
+    private final int[] revealedOwners; // Index du joueur propriétaire, CENTER_OWNER si la carte vient du centre
+    private int revealedCount;
+    private long revealedMask; // Identifiants des cartes révélées pendant le tour courant
+    private long inPlayMask; // Identifiants des cartes encore en main ou au centre (hors trios formés)
+    private long seenMask; // Cartes déjà montrées à tous et restées à leur place (information publique)
+    private List<CardLocation> revealedView; // Vue pour l'interface, reconstruite à la demande
+    private final BeliefState belief; // Ce que tous savent des cartes cachées, tenu à jour à chaque action
+
+    // Clés de hachage de Zobrist tenues à jour à chaque modification (voir getZobristKey)
+    private long locationKey; // Emplacement (main ou centre) de chaque carte en jeu
+    private long revealedKey; // Cartes révélées pendant le tour courant
+
+    // Instantanés immuables publiés après chaque modification (lecture sans verrou depuis d'autres threads)
+    private volatile GameState state;
+    private long stateVersion;
+    private boolean statePublishing;
+    private boolean handsDirty;
+    private boolean centerDirty;
+    private int triosDirtyMask; // Joueurs dont les trios ont changé depuis le dernier instantané
     private GamePhase currentPhase;
-    private Set<Actor> playersAllowedToSwap;
-    private Set<Actor> playersWhoHaveSwapped;
+    // Phases d'échange : masques de bits indexés par l'index du joueur (6 joueurs au maximum)
+    private int swapAllowedMask;
+    private int swapDoneMask;
+    private final List<GameListener> listeners;
 
 
     /**
      * Constructeur de la partie.
-     * Initialise les paramètres de base et valide la configuration (nombre de joueurs, mode de jeu).
+     * Une graine aléatoire est tirée pour la distribution : elle est accessible via {@link #getSeed()}
+     * afin de pouvoir recréer la même partie.
      *
      * @param playerNames Liste des noms des joueurs humains.
      * @param numAI Nombre d'intelligences artificielles à ajouter.
@@ -47,6 +131,41 @@ public class Game {
      * @throws IllegalArgumentException Si la configuration des joueurs est invalide.
      */
     public Game(List<String> playerNames, int numAI, boolean isTeamMode, boolean isPiquant) {
+        this(playerNames, numAI, isTeamMode, isPiquant, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Constructeur d'une partie reproductible.
+     * Deux parties créées avec la même graine et la même configuration de joueurs ont la même distribution.
+     *
+     * @param playerNames Liste des noms des joueurs humains.
+     * @param numAI Nombre d'intelligences artificielles à ajouter.
+     * @param isTeamMode Vrai si le mode équipe est activé.
+     * @param isPiquant Vrai si le mode "Piquant" est activé.
+     * @param seed La graine utilisée pour mélanger la pioche.
+     * @throws IllegalArgumentException Si la configuration des joueurs est invalide.
+     */
+    public Game(List<String> playerNames, int numAI, boolean isTeamMode, boolean isPiquant, long seed) {
+        this(playerNames, numAI, isTeamMode, isPiquant, new ReseedableRandom(seed), OptionalLong.of(seed));
+    }
+
+    /**
+     * Constructeur d'une partie utilisant un générateur aléatoire fourni par l'appelant
+     * (par exemple un flux indépendant par thread de simulation).
+     *
+     * @param playerNames Liste des noms des joueurs humains.
+     * @param numAI Nombre d'intelligences artificielles à ajouter.
+     * @param isTeamMode Vrai si le mode équipe est activé.
+     * @param isPiquant Vrai si le mode "Piquant" est activé.
+     * @param random Le générateur utilisé pour mélanger la pioche.
+     * @throws IllegalArgumentException Si la configuration des joueurs est invalide.
+     */
+    public Game(List<String> playerNames, int numAI, boolean isTeamMode, boolean isPiquant, RandomGenerator random) {
+        this(playerNames, numAI, isTeamMode, isPiquant, random, OptionalLong.empty());
+    }
+
+    private Game(List<String> playerNames, int numAI, boolean isTeamMode, boolean isPiquant,
+                 RandomGenerator random, OptionalLong seed) {
         if (playerNames == null) {
             throw new IllegalArgumentException("La liste des noms de joueurs ne peut pas être nulle.");
         }
@@ -62,32 +181,420 @@ public class Game {
         if (numPlayers < 3 && !isTeamMode) {
             throw new IllegalArgumentException("Le mode normal requiert au moins 3 joueurs au total.");
         }
-        if (isTeamMode && numAI > 0) {
-            throw new IllegalArgumentException("Le mode équipe avec des IA n'est pas supporté.");
-        }
 
         this.isTeamMode = isTeamMode;
         this.isPiquant = isPiquant;
-        this.drawPile = new DrawPile();
+        this.seed = seed.orElse(0L);
+        this.hasSeed = seed.isPresent();
+        this.drawPile = new DrawPile(random);
         this.playerTurn = 0;
-        this.completedTrios = new CompletedTrios(numPlayers);
-        this.revealedCards = new ArrayList<>();
-        this.cardsInPlayThisTurn = new ArrayList<>();
+        this.completedTrios = new CompletedTrios(numPlayers, isTeamMode, isPiquant);
+        this.revealedIds = new int[3];
+        this.revealedOwners = new int[3];
+        this.revealedCount = 0;
+        this.revealedMask = 0L;
+        this.inPlayMask = (1L << Card.DECK_SIZE) - 1;
+        this.seenMask = 0L;
+        this.verbose = true;
         this.isGameStarted = false;
 
         // Initialisation des champs liés aux échanges (Swap)
-        this.playersAllowedToSwap = new HashSet<>();
-        this.playersWhoHaveSwapped = new HashSet<>();
+        this.swapAllowedMask = 0;
+        this.swapDoneMask = 0;
         this.currentPhase = GamePhase.PLAYING; // Phase par défaut
+        this.listeners = new ArrayList<>();
 
         initializePlayers();
+        this.belief = new BeliefState(this);
+        this.locationKey = Zobrist.locations(this);
+        this.completedTrios.addWinListener((winnerIndex, reason) -> this.winner = players.get(winnerIndex));
+
+        this.statePublishing = true;
+        markAllStateDirty();
+        publishState();
+    }
+
+    /**
+     * Constructeur de copie : la copie est totalement indépendante de la partie d'origine.
+     * Elle n'affiche rien et ne publie pas d'instantanés (voir {@link #copy()}).
+     */
+    private Game(Game other) {
+        this.seed = other.seed;
+        this.hasSeed = other.hasSeed;
+        this.numPlayers = other.numPlayers;
+        this.isTeamMode = other.isTeamMode;
+        this.isPiquant = other.isPiquant;
+        this.playerNames = other.playerNames;
+        this.numAI = other.numAI;
+        this.drawPile = new DrawPile(other.drawPile, new SplittableRandom(other.drawPile.getMask()));
+        this.playerTurn = other.playerTurn;
+        this.completedTrios = new CompletedTrios(other.completedTrios);
+        this.isGameStarted = other.isGameStarted;
+        this.revealedIds = other.revealedIds.clone();
+        this.revealedOwners = other.revealedOwners.clone();
+        this.revealedCount = other.revealedCount;
+        this.revealedMask = other.revealedMask;
+        this.inPlayMask = other.inPlayMask;
+        this.seenMask = other.seenMask;
+        this.locationKey = other.locationKey;
+        this.revealedKey = other.revealedKey;
+        this.verbose = false;
+        this.currentPhase = other.currentPhase;
+        this.swapAllowedMask = other.swapAllowedMask;
+        this.swapDoneMask = other.swapDoneMask;
+        this.listeners = new ArrayList<>();
+
+        copyPlayers(other.players);
+        this.belief = new BeliefState(other.belief);
+        this.winner = other.winner == null ? null : players.get(other.winner.getPlayerIndex());
+        this.completedTrios.addWinListener((winnerIndex, reason) -> this.winner = players.get(winnerIndex));
+
+        this.statePublishing = false;
+        markAllStateDirty();
+    }
+
+    /**
+     * Enregistre un écouteur des révélations, trios et échanges de la partie.
+     * @param listener L'écouteur à notifier.
+     */
+    public void addGameListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeGameListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Crée une copie indépendante de la partie, par exemple pour explorer des coups sans toucher à la partie réelle.
+     * La copie n'affiche rien, ne publie pas d'instantanés et ne notifie aucun écouteur ({@link GameListener}).
+     *
+     * @return La copie de la partie.
+     */
+    public Game copy() {
+        return new Game(this);
+    }
+
+    /**
+     * Crée une copie de la partie dans laquelle les cartes inconnues d'un joueur sont redistribuées au hasard
+     * (déterminisation). Ne bougent pas : la main du joueur, les cartes déjà vues ({@link #getSeenMask()})
+     * et le nombre de cartes de chaque main et du centre. Les cartes tirées restent compatibles avec ce que tous savent
+     * ({@link #getBeliefState()}) : une main dont la plus petite (ou la plus grande) carte a été révélée ne reçoit
+     * que des cartes de valeur au moins (ou au plus) égale.
+     * Le tirage aboutit dès qu'une distribution compatible existe (voir {@link #sampleHiddenCards}). Sinon, les
+     * contraintes sont ignorées et les cartes cachées sont distribuées au hasard : la copie ne reprend jamais
+     * la distribution réelle, que le joueur ne connaît pas.
+     *
+     * @param observerIndex L'index du joueur dont on adopte le point de vue.
+     * @param random Le générateur utilisé pour le tirage.
+     * @return Une copie de la partie, cohérente avec les informations connues du joueur.
+     */
+    public Game determinize(int observerIndex, RandomGenerator random) {
+        Game copy = new Game(this);
+        long hidden = inPlayMask & ~seenMask & ~copy.getHandMask(observerIndex);
+        int[] pool = new int[Long.bitCount(hidden)];
+        int count = 0;
+        for (long remaining = hidden; remaining != 0L; remaining &= remaining - 1) {
+            pool[count++] = Long.numberOfTrailingZeros(remaining);
+        }
+        for (int i = pool.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = pool[i];
+            pool[i] = pool[j];
+            pool[j] = tmp;
+        }
+        long[] newHands = new long[numPlayers];
+        if (!copy.sampleHiddenCards(observerIndex, pool, newHands)) {
+            copy.dealHiddenCards(observerIndex, pool, newHands);
+        }
+        copy.applyHiddenCards(observerIndex, pool, newHands);
+        return copy;
+    }
+
+    /**
+     * Répartit les cartes cachées (mélangées) entre les mains des autres joueurs, en respectant les valeurs encore
+     * possibles de chaque main. Les joueurs sont servis du plus contraint au moins contraint ; chacun prend
+     * les premières cartes compatibles du tableau, mais une carte n'est prise que si les joueurs restants peuvent
+     * encore être servis ({@link #canServe}). Aucun choix ne mène donc à une impasse : la répartition réussit
+     * dès qu'une distribution compatible existe.
+     * Les cartes restantes du tableau (après celles des mains) sont destinées au centre.
+     *
+     * @return Vrai si une répartition compatible a été trouvée, faux si les contraintes sont incompatibles.
+     */
+    private boolean sampleHiddenCards(int observerIndex, int[] pool, long[] newHands) {
+        int[] order = new int[numPlayers - 1];
+        int[] needs = new int[numPlayers];
+        long[] allowed = new long[numPlayers];
+        long available = 0L;
+        for (int id : pool) {
+            available |= 1L << id;
+        }
+        int others = 0;
+        for (int p = 0; p < numPlayers; p++) {
+            long hand = getHandMask(p);
+            newHands[p] = hand & seenMask;
+            if (p == observerIndex) {
+                continue;
+            }
+            needs[p] = Long.bitCount(hand & ~seenMask);
+            // Cartes compatibles avec les valeurs encore possibles de la main, d'après les extrémités révélées
+            int possibleValues = belief.getValueConstraint(p);
+            for (int value = 1; value <= Trios.values().length; value++) {
+                if ((possibleValues & (1 << value)) != 0) {
+                    allowed[p] |= 7L << ((value - 1) * Card.COPIES_PER_VALUE);
+                }
+            }
+            // Insertion par marge croissante (cartes compatibles moins cartes à recevoir)
+            int slack = Long.bitCount(available & allowed[p]) - needs[p];
+            int k = others++;
+            for (; k > 0 && Long.bitCount(available & allowed[order[k - 1]]) - needs[order[k - 1]] > slack; k--) {
+                order[k] = order[k - 1];
+            }
+            order[k] = p;
+        }
+        if (!canServe(order, 0, others, needs, allowed, available)) {
+            return false;
+        }
+
+        int filled = 0;
+        for (int k = 0; k < others; k++) {
+            int p = order[k];
+            while (needs[p] > 0) {
+                int j = filled;
+                needs[p]--;
+                for (; j < pool.length; j++) {
+                    long card = 1L << pool[j];
+                    if ((allowed[p] & card) != 0 && canServe(order, k, others, needs, allowed, available & ~card)) {
+                        break;
+                    }
+                }
+                if (j == pool.length) {
+                    return false; // Impossible tant que canServe est vérifié
+                }
+                int tmp = pool[filled];
+                pool[filled] = pool[j];
+                pool[j] = tmp;
+                newHands[p] |= 1L << pool[filled];
+                available &= ~(1L << pool[filled]);
+                filled++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Teste si des joueurs peuvent encore recevoir toutes les cartes qui leur manquent (condition de Hall) :
+     * pour tout groupe de joueurs, les cartes disponibles compatibles avec l'un d'eux sont au moins aussi nombreuses
+     * que les cartes qu'ils doivent recevoir ensemble. Au plus 5 joueurs, soit 31 groupes.
+     *
+     * @param order Les joueurs, dont seuls ceux de {@code from} (inclus) à {@code to} (exclu) sont testés.
+     * @param available Les cartes non encore attribuées.
+     */
+    private static boolean canServe(int[] order, int from, int to, int[] needs, long[] allowed, long available) {
+        int count = to - from;
+        for (int group = 1; group < 1 << count; group++) {
+            int needed = 0;
+            long compatible = 0L;
+            for (int k = 0; k < count; k++) {
+                if ((group & (1 << k)) != 0) {
+                    needed += needs[order[from + k]];
+                    compatible |= allowed[order[from + k]];
+                }
+            }
+            if (needed > Long.bitCount(available & compatible)) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * Distribue les cartes cachées (mélangées) sans tenir compte des valeurs possibles de chaque main,
+     * lorsqu'aucune répartition compatible n'existe.
+     */
+    private void dealHiddenCards(int observerIndex, int[] pool, long[] newHands) {
+        int next = 0;
+        for (int p = 0; p < numPlayers; p++) {
+            long hand = getHandMask(p);
+            newHands[p] = hand & seenMask;
+            if (p == observerIndex) {
+                continue;
+            }
+            for (int needed = Long.bitCount(hand & ~seenMask); needed > 0; needed--) {
+                newHands[p] |= 1L << pool[next++];
+            }
+        }
+    }
 
+    /**
+     * Applique une répartition tirée par {@link #sampleHiddenCards} ou {@link #dealHiddenCards}.
+     */
+    private void applyHiddenCards(int observerIndex, int[] pool, long[] newHands) {
+        int next = 0;
+        for (int p = 0; p < numPlayers; p++) {
+            if (p != observerIndex) {
+                players.get(p).getHand().setMask(newHands[p]);
+                next += Long.bitCount(newHands[p] & ~seenMask);
+            }
+        }
+        for (int i = 0; i < drawPile.getRemainingCardCount(); i++) {
+            if ((seenMask & (1L << drawPile.getCard(i).getId())) == 0) {
+                drawPile.replaceCard(i, Card.fromId(pool[next++]));
+            }
+        }
+        locationKey = Zobrist.locations(this);
+    }
+
+    /**
+     * Construit (si nécessaire) la liste des cartes révélées avec leur emplacement d'origine.
+     * Cette vue est destinée à l'interface : le moteur de jeu travaille sur les tableaux primitifs.
+     * @return Une liste non modifiable des cartes révélées pendant le tour courant.
+     */
     public List<CardLocation> getRevealedCards() {
-        return revealedCards;
+        if (revealedView == null) {
+            List<CardLocation> locations = new ArrayList<>(revealedCount);
+            for (int i = 0; i < revealedCount; i++) {
+                Card card = Card.fromId(revealedIds[i]);
+                int owner = revealedOwners[i];
+                locations.add(owner == CENTER_OWNER
+                        ? CardLocation.fromDrawPile(card, drawPile)
+                        : CardLocation.fromPlayer(card, players.get(owner)));
+            }
+            revealedView = Collections.unmodifiableList(locations);
+        }
+        return revealedView;
+    }
+
+    /**
+     * @return Le nombre de cartes révélées pendant le tour courant (0 à 3).
+     */
+    @Override
+    public int getRevealedCount() {
+        return revealedCount;
+    }
+
+    /**
+     * @param index La position de la révélation dans le tour (0 à 2).
+     * @return L'identifiant de la carte révélée.
+     */
+    @Override
+    public int getRevealedCardId(int index) {
+        return revealedIds[index];
+    }
+
+    /**
+     * @param index La position de la révélation dans le tour (0 à 2).
+     * @return L'index du joueur d'où vient la carte, ou {@link #CENTER_OWNER} si elle vient du centre.
+     */
+    @Override
+    public int getRevealedOwner(int index) {
+        return revealedOwners[index];
+    }
+
+    /**
+     * Renvoie le dernier instantané publié de la partie.
+     * Cet appel se résume à une lecture volatile : il peut être effectué depuis n'importe quel thread.
+     * @return L'état immuable de la partie après la dernière modification.
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Active ou désactive la publication d'un instantané après chaque modification.
+     * Les simulations qui n'ont pas de lecteur concurrent peuvent la désactiver pour ne rien allouer.
+     * À la réactivation, un instantané complet est immédiatement publié.
+     *
+     * @param statePublishing Vrai pour publier les instantanés.
+     */
+    public void setStatePublishing(boolean statePublishing) {
+        this.statePublishing = statePublishing;
+        if (statePublishing) {
+            markAllStateDirty();
+            publishState();
+        }
+    }
+
+    /**
+     * Active ou désactive les messages de suivi dans la console (désactivés pour les simulations).
+     * @param verbose Vrai pour afficher les messages.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * @return Le masque des identifiants des cartes révélées pendant le tour courant.
+     */
+    @Override
+    public long getRevealedMask() {
+        return revealedMask;
+    }
+
+    /**
+     * Renvoie les cartes connues de tous : une carte révélée reste identifiable tant qu'elle n'a pas quitté
+     * sa place (formation d'un trio, ou échange secret entre coéquipiers).
+     * @return Le masque des identifiants des cartes déjà montrées et restées à leur place.
+     */
+    @Override
+    public long getSeenMask() {
+        return seenMask;
+    }
+
+    @Override
+    public BeliefState getBeliefState() {
+        return belief;
+    }
+
+    /**
+     * Renvoie la clé de hachage de Zobrist de la position : emplacement de chaque carte en jeu (main ou centre,
+     * sans tenir compte de l'ordre du centre), cartes révélées, trios de chaque joueur, joueur courant, phase
+     * et joueurs ayant déjà échangé. La clé est tenue à jour en temps constant à chaque révélation, trio et échange ;
+     * deux positions atteintes par des ordres de révélation différents ont la même clé.
+     *
+     * @return La clé 64 bits de la position.
+     */
+    public long getZobristKey() {
+        return locationKey ^ revealedKey ^ completedTrios.getZobristKey()
+                ^ Zobrist.turn(playerTurn) ^ Zobrist.phase(currentPhase) ^ Zobrist.swapDone(swapDoneMask);
+    }
+
+    @Override
+    public int getNumPlayers() {
+        return numPlayers;
     }
 
+    @Override
+    public long getHandMask(int playerIndex) {
+        return players.get(playerIndex).getHand().getMask();
+    }
+
+    @Override
+    public long getCenterMask() {
+        return drawPile.getMask();
+    }
+
+    @Override
+    public int getCenterIndex(int cardId) {
+        return drawPile.indexOf(Card.fromId(cardId));
+    }
+
+    @Override
+    public int getTrioMask(int playerIndex) {
+        return completedTrios.getTrioMask(playerIndex);
+    }
+
+    @Override
+    public int getTeammateIndex(int playerIndex) {
+        Actor player = players.get(playerIndex);
+        if (player instanceof JoueurEquipe) {
+            JoueurEquipe teammate = ((JoueurEquipe) player).getTeammate();
+            return teammate == null ? -1 : teammate.getPlayerIndex();
+        }
+        return -1;
+    }
+
+    @Override
     public int getPlayerTurn() {
         return playerTurn;
     }
@@ -102,6 +609,29 @@ public class Game {
         return drawPile;
     }
 
+    /**
+     * @return La graine de la distribution, absente si la partie a été créée avec un générateur externe.
+     */
+    public OptionalLong getSeed() {
+        return hasSeed ? OptionalLong.of(seed) : OptionalLong.empty();
+    }
+
+    /**
+     * Équivalent de {@code getSeed().isPresent()}, sans allocation.
+     * @return Vrai si la partie a été distribuée à partir d'une graine.
+     */
+    boolean hasSeed() {
+        return hasSeed;
+    }
+
+    /**
+     * Équivalent de {@code getSeed().orElse(0L)}, sans allocation.
+     * @return La graine de la distribution, ou 0 si la partie a été créée avec un générateur externe.
+     */
+    long getSeedValue() {
+        return hasSeed ? seed : 0L;
+    }
+
     public CompletedTrios getCompletedTrios() {
         return completedTrios;
     }
@@ -110,22 +640,42 @@ public class Game {
         return this.winner;
     }
 
+    @Override
     public GamePhase getCurrentPhase() {
         return currentPhase;
     }
 
-    public Set<Actor> getPlayersAllowedToSwap() {
-        return playersAllowedToSwap;
+    /**
+     * @return Le masque des joueurs autorisés à échanger pendant la phase courante (bit {@code 1 << index}).
+     */
+    public int getSwapAllowedMask() {
+        return swapAllowedMask;
+    }
+
+    /**
+     * @return Le masque des joueurs ayant déjà échangé pendant la phase courante (bit {@code 1 << index}).
+     */
+    public int getSwapDoneMask() {
+        return swapDoneMask;
+    }
+
+    /**
+     * Calcule le masque des joueurs qui sont autorisés à échanger mais ne l'ont pas encore fait.
+     * @return Le masque des joueurs en attente d'échange.
+     */
+    @Override
+    public int getPendingSwapMask() {
+        return swapAllowedMask & ~swapDoneMask;
     }
-    
+
     /**
-     * Calcule l'ensemble des joueurs qui sont autorisés à échanger mais ne l'ont pas encore fait.
-     * @return Un Set contenant les acteurs en attente d'échange.
+     * Renvoie le prochain joueur devant échanger, dans l'ordre des index.
+     * @return L'index du joueur, ou -1 si plus aucun échange n'est attendu.
      */
-    public Set<Actor> getPlayersWhoHaveNotSwapped() {
-        Set<Actor> pending = new HashSet<>(playersAllowedToSwap);
-        pending.removeAll(playersWhoHaveSwapped);
-        return pending;
+    @Override
+    public int getNextPendingSwapPlayerIndex() {
+        int pending = getPendingSwapMask();
+        return pending == 0 ? -1 : Integer.numberOfTrailingZeros(pending);
     }
 
     public boolean isGameStarted() {
@@ -133,19 +683,21 @@ public class Game {
     }
 
     /**
-     * Vérifie si la partie est terminée en interrogeant le gestionnaire de trios (CompletedTrios).
-     * Met à jour le gagnant si la partie est finie.
+     * Vérifie si la partie est terminée.
+     * Le gagnant est renseigné par le gestionnaire de trios (CompletedTrios) dès qu'un trio gagnant est ajouté.
      * @return Vrai si un gagnant a été déterminé.
      */
+    @Override
     public boolean isGameEnded() {
-        this.winner = completedTrios.getWinner(this);
         return this.winner != null;
     }
 
+    @Override
     public boolean isPiquant() {
         return isPiquant;
     }
 
+    @Override
     public boolean isTeamMode() {
         return isTeamMode;
     }
@@ -164,9 +716,10 @@ public class Game {
      * @param card La carte à révéler.
      */
     public void revealCardFromDrawPile(Card card) {
-        if (canRevealCard() && !cardsInPlayThisTurn.contains(card)) {
-            this.revealedCards.add(CardLocation.fromDrawPile(card, this.drawPile));
-            this.cardsInPlayThisTurn.add(card);
+        if (canRevealCard() && !isRevealed(card) && drawPile.contains(card)) {
+            addRevealedCard(card.getId(), CENTER_OWNER);
+            fireCardRevealed(card.getId(), CENTER_OWNER, Action.Type.REVEAL_CENTER);
+            publishState();
         }
     }
 
@@ -179,20 +732,14 @@ public class Game {
      * 
      * @return Vrai si la révélation est autorisée.
      */
+    @Override
     public boolean canRevealCard() {
         if (currentPhase != GamePhase.PLAYING) return false; // Impossible de jouer pendant un échange
-        if (revealedCards.size() >= 3) {
+        if (revealedCount >= 3) {
             return false;
         }
         // Règle critique : Si les deux premières cartes sont différentes, le tour s'arrête.
-        if (revealedCards.size() == 2) {
-            Card card1 = revealedCards.get(0).getCard();
-            Card card2 = revealedCards.get(1).getCard();
-            if (card1.getValue() != card2.getValue()) {
-                return false;
-            }
-        }
-        return true;
+        return revealedCount != 2 || sameValue(revealedIds[0], revealedIds[1]);
     }
 
     /**
@@ -206,13 +753,16 @@ public class Game {
 
         for (Card card : trio) {
             // Trouve l'emplacement de la carte révélée et la retire de la source (Main ou Pioche)
-            revealedCards.stream()
-                    .filter(loc -> loc.getCard().equals(card))
-                    .findFirst()
-                    .ifPresent(CardLocation::removeFromSource);
+            for (int i = 0; i < revealedCount; i++) {
+                if (revealedIds[i] == card.getId()) {
+                    removeFromSource(i);
+                    break;
+                }
+            }
         }
 
         clearRevealedCards();
+        publishState();
     }
 
     /**
@@ -221,9 +771,9 @@ public class Game {
      */
     public void revealLargestCardFromPlayer(int playerIndex) {
         Actor player = players.get(playerIndex);
-        Card card = player.getHand().getLargestCard();
+        Card card = player.getHand().getLargestCard(revealedMask);
         if (card != null) {
-            revealCardFromPlayer(card, player);
+            revealCardFromPlayer(card, player, Action.Type.REVEAL_LARGEST);
         }
     }
 
@@ -233,9 +783,9 @@ public class Game {
      */
     public void revealSmallestCardFromPlayer(int playerIndex) {
         Actor player = players.get(playerIndex);
-        Card card = player.getHand().getSmallestCard();
+        Card card = player.getHand().getSmallestCard(revealedMask);
         if (card != null) {
-            revealCardFromPlayer(card, player);
+            revealCardFromPlayer(card, player, Action.Type.REVEAL_SMALLEST);
         }
     }
 
@@ -247,20 +797,51 @@ public class Game {
     public void startGame() {
         if (isGameStarted) return;
         
-        // Distribution des cartes
-        List<List<Card>> hands = drawPile.dealHands(numPlayers, isTeamMode);
-        for (int i = 0; i < numPlayers; i++) {
-            players.get(i).setupHand(hands.get(i));
-        }
+        // Distribution des cartes directement dans les mains des joueurs
+        drawPile.dealInto(players, isTeamMode);
+        locationKey = Zobrist.locations(this);
+        belief.reset(this);
+        markAllStateDirty();
         isGameStarted = true;
+        fireResync();
 
         if (isTeamMode) {
-            System.out.println("Début de la phase d'échange initiale.");
+            log("Début de la phase d'échange initiale.");
             this.currentPhase = GamePhase.INITIAL_SWAP;
-            this.playersAllowedToSwap.addAll(players);
-        } else {
-            System.out.println("La partie commence ! " + drawPile.getRemainingCardCount() + " cartes dans la pioche.");
+            this.swapAllowedMask = (1 << numPlayers) - 1;
+        } else if (verbose) {
+            log("La partie commence ! " + drawPile.getRemainingCardCount() + " cartes dans la pioche.");
+        }
+        publishState();
+    }
+
+    /**
+     * Redistribue la partie à partir d'une graine, sans allocation : les joueurs, la pioche et les trios sont vidés
+     * et réutilisés, puis la partie recommence comme une partie neuve de même configuration créée avec cette graine
+     * et démarrée par {@link #startGame()}. Les écouteurs sont conservés et se recalent.
+     * Sert à rejouer des parties enregistrées les unes après les autres dans la même partie
+     * (voir {@link GameArchive#replay(long, Game)}).
+     *
+     * @param seed La graine de la distribution.
+     */
+    void reset(long seed) {
+        for (int p = 0; p < numPlayers; p++) {
+            players.get(p).getHand().setMask(0L);
         }
+        drawPile.reset(seed);
+        completedTrios.clear();
+        this.winner = null;
+        clearRevealedCards();
+        this.inPlayMask = (1L << Card.DECK_SIZE) - 1;
+        this.seenMask = 0L;
+        this.playerTurn = 0;
+        this.currentPhase = GamePhase.PLAYING;
+        this.swapAllowedMask = 0;
+        this.swapDoneMask = 0;
+        this.seed = seed;
+        this.hasSeed = true;
+        this.isGameStarted = false;
+        startGame();
     }
 
     /**
@@ -273,6 +854,17 @@ public class Game {
      * @return Vrai si l'échange a réussi, Faux sinon.
      */
     public boolean exchangeCards(int initiatingPlayerIndex, Card cardToGive, Card cardToReceive) {
+        if (!doExchange(initiatingPlayerIndex, cardToGive, cardToReceive)) {
+            return false;
+        }
+        publishState();
+        return true;
+    }
+
+    /**
+     * Logique d'échange, partagée entre {@link #exchangeCards(int, Card, Card)} et {@link #apply(Action)}.
+     */
+    private boolean doExchange(int initiatingPlayerIndex, Card cardToGive, Card cardToReceive) {
         // Vérifications préliminaires sur la phase et le mode
         if (currentPhase == GamePhase.PLAYING || !isTeamMode) {
             return false; 
@@ -280,19 +872,20 @@ public class Game {
 
         Actor initiator = players.get(initiatingPlayerIndex);
         // Vérifie si le joueur a déjà échangé ou n'est pas un joueur d'équipe
-        if (!(initiator instanceof JoueurEquipe) || playersWhoHaveSwapped.contains(initiator)) {
+        int initiatorBit = 1 << initiatingPlayerIndex;
+        if (!(initiator instanceof JoueurEquipe) || (swapDoneMask & initiatorBit) != 0) {
             return false; 
         }
 
         JoueurEquipe teamInitiator = (JoueurEquipe) initiator;
         JoueurEquipe teammate = teamInitiator.getTeammate();
 
-        if (teammate == null || !playersAllowedToSwap.contains(initiator)) {
+        if (teammate == null || (swapAllowedMask & initiatorBit) == 0) {
             return false; // Pas de coéquipier ou équipe non autorisée à échanger
         }
 
         // Vérifie que les joueurs possèdent bien les cartes qu'ils prétendent échanger
-        if (!teamInitiator.getHand().getCards().contains(cardToGive) || !teammate.getHand().getCards().contains(cardToReceive)) {
+        if (!teamInitiator.getHand().contains(cardToGive) || !teammate.getHand().contains(cardToReceive)) {
             return false;
         }
 
@@ -301,12 +894,23 @@ public class Game {
         teamInitiator.getHand().addCard(cardToReceive);
         teammate.getHand().removeCard(cardToReceive);
         teammate.getHand().addCard(cardToGive);
+        locationKey ^= swapKey(teamInitiator.getPlayerIndex(), teammate.getPlayerIndex(), cardToGive.getId(), cardToReceive.getId());
+        handsDirty = true;
+        // L'échange est secret : les adversaires ne savent pas quelles cartes ont changé de main,
+        // aucune carte des deux mains n'est donc plus identifiable
+        seenMask &= ~(teamInitiator.getHand().getMask() | teammate.getHand().getMask());
+        belief.onCardsExchanged(initiatingPlayerIndex, teammate.getPlayerIndex());
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onCardsExchanged(initiatingPlayerIndex, teammate.getPlayerIndex(),
+                    cardToGive.getId(), cardToReceive.getId());
+        }
 
         // Marque les joueurs comme ayant effectué leur action pour cette phase
-        playersWhoHaveSwapped.add(teamInitiator);
-        playersWhoHaveSwapped.add(teammate);
+        swapDoneMask |= initiatorBit | (1 << teammate.getPlayerIndex());
 
-        System.out.println(teamInitiator.getName() + " et " + teammate.getName() + " ont échangé des cartes.");
+        if (verbose) {
+            log(teamInitiator.getName() + " et " + teammate.getName() + " ont échangé des cartes.");
+        }
 
         // Vérifie si tous les échanges sont terminés pour changer de phase
         checkAndEndSwapPhase();
@@ -318,6 +922,7 @@ public class Game {
     /**
      * Gère la fin du tour d'un joueur.
      * Vérifie si un trio a été formé, attribue les points, et gère les transitions de phase (ex: échange après trio).
+     * Le traitement travaille uniquement sur l'état primitif de la partie : un tour sans échange n'alloue rien.
      * 
      * @return Vrai si le joueur rejoue (car il a fait un trio), Faux si c'est au tour du joueur suivant.
      */
@@ -325,59 +930,288 @@ public class Game {
         if (this.isGameEnded() || !this.isGameStarted) {
             return false;
         }
+        boolean trioFormed = endTurn(null);
+        publishState();
+        return trioFormed;
+    }
+
+    /**
+     * Logique de fin de tour, partagée entre {@link #nextTurn()} et {@link #apply(Action)}.
+     * @param record L'enregistrement d'annulation à compléter, ou null.
+     */
+    private boolean endTurn(UndoRecord record) {
+        int endingPlayer = playerTurn;
 
         // Vérification de la présence d'un trio dans les cartes révélées
-        boolean isTrio = false;
-        if (revealedCards.size() == 3) {
-            Card card1 = revealedCards.get(0).getCard();
-            Card card2 = revealedCards.get(1).getCard();
-            Card card3 = revealedCards.get(2).getCard();
-            if (card1.getValue() == card2.getValue() && card2.getValue() == card3.getValue()) {
-                isTrio = true;
-            }
-        }
+        boolean isTrio = revealedCount == 3
+                && sameValue(revealedIds[0], revealedIds[1])
+                && sameValue(revealedIds[1], revealedIds[2]);
 
         if (isTrio) {
             Actor scoringPlayer = getCurrentPlayer();
-            List<Card> trio = new ArrayList<>();
-            for (CardLocation loc : revealedCards) {
-                trio.add(loc.getCard());
-            }
-            
+
             // Enregistrement du trio et nettoyage du plateau
-            completedTrios.addTrio(scoringPlayer.getPlayerIndex(), trio);
-            processTrio(trio); 
+            completedTrios.addTrio(scoringPlayer.getPlayerIndex(), revealedIds[0], revealedIds[1], revealedIds[2]);
+            for (int i = 0; i < revealedCount; i++) {
+                int centerIndex = removeFromSource(i);
+                if (record != null) {
+                    record.setCenterIndex(i, centerIndex);
+                }
+            }
+            if (record != null) {
+                record.trioFormed = true;
+                record.scoringPlayer = scoringPlayer.getPlayerIndex();
+            }
+            triosDirtyMask |= 1 << scoringPlayer.getPlayerIndex();
+            clearRevealedCards();
 
             // Gestion spécifique au mode équipe : Phase d'échange punitive pour les adversaires
             if (isTeamMode) {
-                System.out.println("Un trio a été formé ! Phase d'échange pour les équipes adverses.");
+                log("Un trio a été formé ! Phase d'échange pour les équipes adverses.");
                 this.currentPhase = GamePhase.POST_TRIO_SWAP;
-                this.playersWhoHaveSwapped.clear();
-                this.playersAllowedToSwap.clear();
+                this.swapDoneMask = 0;
 
                 JoueurEquipe scoringTeamPlayer = (JoueurEquipe) scoringPlayer;
                 // Autorise toutes les équipes SAUF celle qui vient de marquer
-                for (Actor player : players) {
-                    if (player != scoringTeamPlayer && player != scoringTeamPlayer.getTeammate()) {
-                        playersAllowedToSwap.add(player);
+                int scoringTeamMask = (1 << scoringTeamPlayer.getPlayerIndex())
+                        | (1 << scoringTeamPlayer.getTeammate().getPlayerIndex());
+                this.swapAllowedMask = ((1 << numPlayers) - 1) & ~scoringTeamMask;
+                // Une équipe dont un membre n'a plus de carte ne peut pas échanger
+                for (int i = 0; i < numPlayers; i++) {
+                    if (players.get(i).getHand().getHandSize() == 0) {
+                        JoueurEquipe emptyHanded = (JoueurEquipe) players.get(i);
+                        swapAllowedMask &= ~((1 << i) | (1 << emptyHanded.getTeammate().getPlayerIndex()));
                     }
                 }
-                // S'il n'y a personne pour échanger (ex: partie à 2 équipes), on passe
-                if (playersAllowedToSwap.isEmpty()) {
+                // S'il n'y a personne pour échanger, on passe
+                if (swapAllowedMask == 0) {
                     checkAndEndSwapPhase();
                 }
             }
             
             // Après un trio, fin du tour et passage au joueur suivant
             nextPlayer();
-            isGameEnded();
+            fireTurnEnded(endingPlayer, true);
             return true; 
         } else {
             // Pas de trio, fin du tour standard
             clearRevealedCards();
             nextPlayer();
+            fireTurnEnded(endingPlayer, false);
+            return false;
+        }
+    }
+
+    /**
+     * Indique si le joueur courant peut terminer son tour.
+     * Le tour se termine lorsque 3 cartes sont révélées, lorsque les deux premières cartes diffèrent,
+     * ou lorsqu'il n'y a plus aucune carte révélable.
+     *
+     * @return Vrai si l'action de fin de tour est autorisée.
+     */
+    @Override
+    public boolean canEndTurn() {
+        if (!isGameStarted || isGameEnded() || currentPhase != GamePhase.PLAYING) {
             return false;
         }
+        return !canRevealCard() || !hasRevealableCard();
+    }
+
+    /**
+     * @return Vrai s'il reste au moins une carte révélable (main d'un joueur ou centre).
+     */
+    private boolean hasRevealableCard() {
+        return (inPlayMask & ~revealedMask) != 0;
+    }
+
+    /**
+     * Applique une action à la partie et renvoie de quoi l'annuler.
+     * Destiné à la recherche (IA) : on applique une action, on explore, puis on appelle {@link #undo(UndoRecord)}.
+     *
+     * @param action L'action à appliquer.
+     * @return L'enregistrement permettant d'annuler l'action.
+     * @throws IllegalStateException Si l'action n'est pas autorisée dans l'état courant.
+     */
+    public UndoRecord apply(Action action) {
+        if (!isGameStarted || isGameEnded()) {
+            throw new IllegalStateException("La partie n'est pas en cours.");
+        }
+        UndoRecord record = new UndoRecord(action, playerTurn, currentPhase, swapAllowedMask, swapDoneMask, seenMask);
+        applyAction(action, record);
+        publishState();
+        return record;
+    }
+
+    /**
+     * Applique une action sans conserver de quoi l'annuler.
+     * Destiné aux simulations qui jouent les parties jusqu'au bout : aucun objet n'est alloué
+     * (hors échanges) lorsque la publication des instantanés est désactivée.
+     *
+     * @param action L'action à appliquer.
+     * @throws IllegalStateException Si l'action n'est pas autorisée dans l'état courant.
+     */
+    public void play(Action action) {
+        if (!isGameStarted || isGameEnded()) {
+            throw new IllegalStateException("La partie n'est pas en cours.");
+        }
+        applyAction(action, null);
+        publishState();
+    }
+
+    /**
+     * Logique d'application d'une action, partagée entre {@link #apply(Action)} et {@link #play(Action)}.
+     * @param record L'enregistrement d'annulation à compléter, ou null.
+     */
+    private void applyAction(Action action, UndoRecord record) {
+        switch (action.getType()) {
+            case REVEAL_SMALLEST:
+            case REVEAL_LARGEST: {
+                Card card = canRevealCard() ? findPlayerCard(action) : null;
+                if (card == null) {
+                    throw new IllegalStateException("Révélation impossible : " + action);
+                }
+                if (record != null) {
+                    record.previousValueConstraint = belief.getValueConstraint(action.getPlayerIndex());
+                }
+                addRevealedCard(card.getId(), action.getPlayerIndex());
+                fireCardRevealed(card.getId(), action.getPlayerIndex(), action.getType());
+                break;
+            }
+            case REVEAL_CENTER: {
+                int index = action.getCenterIndex();
+                if (!canRevealCard() || index < 0 || index >= drawPile.getRemainingCardCount()
+                        || isRevealed(drawPile.getCard(index))) {
+                    throw new IllegalStateException("Révélation impossible : " + action);
+                }
+                addRevealedCard(drawPile.getCard(index).getId(), CENTER_OWNER);
+                fireCardRevealed(drawPile.getCard(index).getId(), CENTER_OWNER, Action.Type.REVEAL_CENTER);
+                break;
+            }
+            case END_TURN: {
+                if (!canEndTurn()) {
+                    throw new IllegalStateException("Le tour ne peut pas encore être terminé.");
+                }
+                if (record != null) {
+                    record.revealedCount = revealedCount;
+                    record.revealed0 = revealedIds[0];
+                    record.revealed1 = revealedIds[1];
+                    record.revealed2 = revealedIds[2];
+                    record.owner0 = revealedOwners[0];
+                    record.owner1 = revealedOwners[1];
+                    record.owner2 = revealedOwners[2];
+                }
+                endTurn(record);
+                break;
+            }
+            case EXCHANGE: {
+                int initiator = action.getPlayerIndex();
+                int teammate = initiator >= 0 && initiator < numPlayers ? getTeammateIndex(initiator) : -1;
+                if (record != null && teammate >= 0) {
+                    record.previousValueConstraint = belief.getValueConstraint(initiator);
+                    record.previousTeammateValueConstraint = belief.getValueConstraint(teammate);
+                }
+                if (initiator < 0 || initiator >= numPlayers
+                        || !doExchange(initiator, Card.fromId(action.getGiveCardId()), Card.fromId(action.getReceiveCardId()))) {
+                    throw new IllegalStateException("Échange impossible : " + action);
+                }
+                if (record != null) {
+                    record.teammateIndex = teammate;
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Type d'action inconnu : " + action.getType());
+        }
+    }
+
+    /**
+     * Annule une action appliquée par {@link #apply(Action)} et restaure exactement l'état précédent
+     * (cartes révélées, mains, centre, trios, joueur courant, phase et masques d'échange).
+     * Les annulations doivent être effectuées dans l'ordre inverse des applications.
+     *
+     * @param record L'enregistrement renvoyé par {@link #apply(Action)}.
+     */
+    public void undo(UndoRecord record) {
+        Action action = record.action;
+        switch (action.getType()) {
+            case REVEAL_SMALLEST:
+            case REVEAL_LARGEST:
+            case REVEAL_CENTER:
+                revealedCount--;
+                revealedMask &= ~(1L << revealedIds[revealedCount]);
+                revealedKey ^= Zobrist.revealed(revealedIds[revealedCount]);
+                revealedView = null;
+                break;
+            case END_TURN:
+                if (record.trioFormed) {
+                    completedTrios.removeLastTrio(record.scoringPlayer);
+                    this.winner = null;
+                    triosDirtyMask |= 1 << record.scoringPlayer;
+                    // Restauration des cartes dans l'ordre inverse des retraits
+                    for (int i = record.revealedCount - 1; i >= 0; i--) {
+                        Card card = Card.fromId(record.getRevealed(i));
+                        int owner = record.getOwner(i);
+                        inPlayMask |= 1L << card.getId();
+                        locationKey ^= Zobrist.location(card.getId(), owner);
+                        if (owner == CENTER_OWNER) {
+                            drawPile.restore(card, record.getCenterIndex(i));
+                            centerDirty = true;
+                        } else {
+                            players.get(owner).getHand().addCard(card);
+                            handsDirty = true;
+                        }
+                    }
+                }
+                clearRevealedCards();
+                for (int i = 0; i < record.revealedCount; i++) {
+                    addRevealedCard(record.getRevealed(i), record.getOwner(i));
+                }
+                break;
+            case EXCHANGE: {
+                ActorHand initiatorHand = players.get(action.getPlayerIndex()).getHand();
+                ActorHand teammateHand = players.get(record.teammateIndex).getHand();
+                Card given = Card.fromId(action.getGiveCardId());
+                Card received = Card.fromId(action.getReceiveCardId());
+                initiatorHand.removeCard(received);
+                initiatorHand.addCard(given);
+                teammateHand.removeCard(given);
+                teammateHand.addCard(received);
+                locationKey ^= swapKey(action.getPlayerIndex(), record.teammateIndex, given.getId(), received.getId());
+                handsDirty = true;
+                break;
+            }
+            default:
+                throw new IllegalStateException("Type d'action inconnu : " + action.getType());
+        }
+        this.playerTurn = record.previousPlayerTurn;
+        this.currentPhase = record.previousPhase;
+        this.swapAllowedMask = record.previousSwapAllowedMask;
+        this.swapDoneMask = record.previousSwapDoneMask;
+        this.seenMask = record.previousSeenMask;
+        // Les contraintes sur les cartes cachées ne se déduisent pas de la position : on rétablit celles d'avant l'action
+        belief.resync(this);
+        if (action.getType() == Action.Type.REVEAL_SMALLEST || action.getType() == Action.Type.REVEAL_LARGEST) {
+            belief.setValueConstraint(action.getPlayerIndex(), record.previousValueConstraint);
+        } else if (action.getType() == Action.Type.EXCHANGE) {
+            belief.setValueConstraint(action.getPlayerIndex(), record.previousValueConstraint);
+            belief.setValueConstraint(record.teammateIndex, record.previousTeammateValueConstraint);
+        }
+        fireResync();
+        publishState();
+    }
+
+    /**
+     * Renvoie la carte visée par une action de révélation sur la main d'un joueur.
+     */
+    private Card findPlayerCard(Action action) {
+        int playerIndex = action.getPlayerIndex();
+        if (playerIndex < 0 || playerIndex >= numPlayers) {
+            return null;
+        }
+        ActorHand hand = players.get(playerIndex).getHand();
+        return action.getType() == Action.Type.REVEAL_SMALLEST
+                ? hand.getSmallestCard(revealedMask)
+                : hand.getLargestCard(revealedMask);
     }
 
     /**
@@ -385,36 +1219,271 @@ public class Game {
      * Si oui, bascule le jeu en phase PLAYING.
      */
     private void checkAndEndSwapPhase() {
-        if (playersWhoHaveSwapped.size() >= playersAllowedToSwap.size()) {
+        if (getPendingSwapMask() == 0) {
             if (currentPhase == GamePhase.INITIAL_SWAP) {
-                System.out.println("Phase d'échange initiale terminée. La partie commence !");
+                log("Phase d'échange initiale terminée. La partie commence !");
             } else { // POST_TRIO_SWAP
-                System.out.println("Phase d'échange terminée. Le jeu reprend.");
+                log("Phase d'échange terminée. Le jeu reprend.");
             }
             this.currentPhase = GamePhase.PLAYING;
-            this.playersAllowedToSwap.clear();
-            this.playersWhoHaveSwapped.clear();
+            this.swapAllowedMask = 0;
+            this.swapDoneMask = 0;
         }
     }
 
     /**
-     * Réinitialise l'état des cartes révélées (les cache visuellement et vide la liste).
+     * Réinitialise l'état des cartes révélées (vide le compteur et le masque du tour).
      */
     private void clearRevealedCards() {
-        for (CardLocation card : revealedCards) {
-            card.getCard().toggleIterable(); // Remet l'état "iterable" (probablement pour l'affichage)
+        this.revealedCount = 0;
+        this.revealedMask = 0L;
+        this.revealedKey = 0L;
+        this.revealedView = null;
+    }
+
+    /**
+     * Enregistre une carte révélée dans les tampons du tour.
+     */
+    private void addRevealedCard(int cardId, int owner) {
+        revealedIds[revealedCount] = cardId;
+        revealedOwners[revealedCount] = owner;
+        revealedCount++;
+        revealedMask |= 1L << cardId;
+        revealedKey ^= Zobrist.revealed(cardId);
+        seenMask |= 1L << cardId;
+        revealedView = null;
+    }
+
+    /**
+     * Retire définitivement la i-ème carte révélée de son emplacement d'origine (main ou centre).
+     * @return La position qu'occupait la carte dans le centre, ou -1 si elle venait d'une main.
+     */
+    private int removeFromSource(int index) {
+        Card card = Card.fromId(revealedIds[index]);
+        int owner = revealedOwners[index];
+        inPlayMask &= ~(1L << card.getId());
+        seenMask &= ~(1L << card.getId());
+        locationKey ^= Zobrist.location(card.getId(), owner);
+        belief.onCardRemoved(card.getId(), owner);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onCardRemoved(card.getId(), owner);
+        }
+        if (owner == CENTER_OWNER) {
+            int centerIndex = drawPile.indexOf(card);
+            drawPile.draw(card);
+            centerDirty = true;
+            return centerIndex;
+        }
+        players.get(owner).getHand().removeCard(card);
+        handsDirty = true;
+        return -1;
+    }
+
+    /**
+     * @return La variation de la clé des emplacements lorsque deux coéquipiers échangent deux cartes.
+     */
+    private static long swapKey(int initiatorIndex, int teammateIndex, int givenCardId, int receivedCardId) {
+        return Zobrist.location(givenCardId, initiatorIndex) ^ Zobrist.location(givenCardId, teammateIndex)
+                ^ Zobrist.location(receivedCardId, teammateIndex) ^ Zobrist.location(receivedCardId, initiatorIndex);
+    }
+
+    private void fireCardRevealed(int cardId, int owner, Action.Type type) {
+        belief.onCardRevealed(cardId, owner, type);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onCardRevealed(cardId, owner, type);
+        }
+    }
+
+    private void fireTurnEnded(int playerIndex, boolean trioFormed) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onTurnEnded(playerIndex, trioFormed);
+        }
+    }
+
+    private void fireResync() {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onResync(this);
+        }
+    }
+
+    private void markAllStateDirty() {
+        handsDirty = true;
+        centerDirty = true;
+        triosDirtyMask = (1 << numPlayers) - 1;
+    }
+
+    /**
+     * Publie un nouvel instantané immuable de la partie.
+     * Seules les parties marquées comme modifiées depuis l'instantané précédent sont copiées,
+     * les autres tableaux sont partagés avec lui.
+     */
+    private void publishState() {
+        if (!statePublishing) {
+            return;
+        }
+        GameState previous = state;
+
+        long[] handMasks;
+        if (previous == null || handsDirty) {
+            handMasks = new long[numPlayers];
+            for (int i = 0; i < numPlayers; i++) {
+                handMasks[i] = players.get(i).getHand().getMask();
+            }
+        } else {
+            handMasks = previous.handMasksArray();
+        }
+
+        int[] centerCardIds;
+        if (previous == null || centerDirty) {
+            centerCardIds = new int[drawPile.getRemainingCardCount()];
+            for (int k = 0; k < centerCardIds.length; k++) {
+                centerCardIds[k] = drawPile.getCard(k).getId();
+            }
+        } else {
+            centerCardIds = previous.centerCardIdsArray();
+        }
+
+        int[] trioMasks;
+        int[] trioCounts;
+        int[][] trioCardIds;
+        if (previous == null || triosDirtyMask != 0) {
+            trioMasks = new int[numPlayers];
+            trioCounts = new int[numPlayers];
+            trioCardIds = new int[numPlayers][];
+            for (int i = 0; i < numPlayers; i++) {
+                trioMasks[i] = completedTrios.getTrioMask(i);
+                trioCounts[i] = completedTrios.getTrioCount(i);
+                if (previous != null && (triosDirtyMask & (1 << i)) == 0) {
+                    trioCardIds[i] = previous.trioCardIdsArray()[i];
+                } else {
+                    trioCardIds[i] = new int[trioCounts[i] * 3];
+                    for (int k = 0; k < trioCardIds[i].length; k++) {
+                        trioCardIds[i][k] = completedTrios.getTrioCardId(i, k);
+                    }
+                }
+            }
+        } else {
+            trioMasks = previous.trioMasksArray();
+            trioCounts = previous.trioCountsArray();
+            trioCardIds = previous.trioCardIdsArray();
+        }
+
+        handsDirty = false;
+        centerDirty = false;
+        triosDirtyMask = 0;
+        state = new GameState(++stateVersion, isTeamMode, isPiquant, isGameStarted, currentPhase, playerTurn,
+                handMasks, centerCardIds, trioMasks, trioCardIds, trioCounts,
+                revealedCount, revealedIds, revealedOwners, revealedMask,
+                swapAllowedMask, swapDoneMask, completedTrios.getWinnerIndex(), completedTrios.getWinReason());
+    }
+
+    private static boolean sameValue(int firstId, int secondId) {
+        return firstId / Card.COPIES_PER_VALUE == secondId / Card.COPIES_PER_VALUE;
+    }
+
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * @return Vrai si la carte a déjà été révélée pendant le tour courant.
+     */
+    private boolean isRevealed(Card card) {
+        return (revealedMask & (1L << card.getId())) != 0;
+    }
+
+    /**
+     * Remplace tout l'état de la partie par celui d'une partie sauvegardée (voir {@link GameSnapshot}).
+     * Les clés de hachage et les trios (donc le gagnant éventuel) sont recalculés, puis les écouteurs se recalent.
+     *
+     * @param handMasks La main de chaque joueur.
+     * @param centerCardIds Les cartes du centre, dans l'ordre, et leur nombre {@code centerCount}.
+     * @param trioCardIds Les cartes des trios de chaque joueur (3 par trio, dans l'ordre), et leur nombre {@code trioCounts}.
+     * @param revealedIds Les cartes révélées pendant le tour, leur emplacement d'origine et leur nombre.
+     * @param seenMask Les cartes déjà montrées et restées à leur place.
+     * @param playerTurn Le joueur courant.
+     * @param phase La phase de jeu, et les masques d'échange {@code swapAllowedMask} et {@code swapDoneMask}.
+     * @param valueConstraints Les valeurs possibles des cartes inconnues de chaque joueur ({@link BeliefState}).
+     * @throws IllegalArgumentException Si les trios sont invalides.
+     */
+    void restore(long[] handMasks, int[] centerCardIds, int centerCount, int[][] trioCardIds, int[] trioCounts,
+                 int[] revealedIds, int[] revealedOwners, int revealedCount, long seenMask,
+                 int playerTurn, GamePhase phase, int swapAllowedMask, int swapDoneMask, int[] valueConstraints) {
+        this.isGameStarted = true;
+        this.inPlayMask = 0L;
+        for (int p = 0; p < numPlayers; p++) {
+            players.get(p).getHand().setMask(handMasks[p]);
+            inPlayMask |= handMasks[p];
+        }
+        drawPile.setCards(centerCardIds, centerCount);
+        inPlayMask |= drawPile.getMask();
+
+        this.winner = null;
+        this.completedTrios = new CompletedTrios(numPlayers, isTeamMode, isPiquant);
+        this.completedTrios.addWinListener((winnerIndex, reason) -> this.winner = players.get(winnerIndex));
+        for (int p = 0; p < numPlayers; p++) {
+            for (int t = 0; t < trioCounts[p]; t++) {
+                completedTrios.addTrio(p, trioCardIds[p][3 * t], trioCardIds[p][3 * t + 1], trioCardIds[p][3 * t + 2]);
+            }
+        }
+
+        clearRevealedCards();
+        for (int i = 0; i < revealedCount; i++) {
+            addRevealedCard(revealedIds[i], revealedOwners[i]);
+        }
+        this.seenMask = seenMask;
+        this.playerTurn = playerTurn;
+        this.currentPhase = phase;
+        this.swapAllowedMask = swapAllowedMask;
+        this.swapDoneMask = swapDoneMask;
+        this.locationKey = Zobrist.locations(this);
+        belief.resync(this);
+        for (int p = 0; p < numPlayers; p++) {
+            belief.setValueConstraint(p, valueConstraints[p]);
         }
-        this.revealedCards.clear();
-        this.cardsInPlayThisTurn.clear();
+
+        markAllStateDirty();
+        fireResync();
+        publishState();
     }
 
     /**
      * Méthode utilitaire interne pour révéler une carte d'un joueur.
      */
-    private void revealCardFromPlayer(Card card, Actor player) {
-        if (canRevealCard() && !cardsInPlayThisTurn.contains(card)) {
-            this.revealedCards.add(CardLocation.fromPlayer(card, player));
-            this.cardsInPlayThisTurn.add(card);
+    private void revealCardFromPlayer(Card card, Actor player, Action.Type type) {
+        if (canRevealCard() && !isRevealed(card)) {
+            addRevealedCard(card.getId(), player.getPlayerIndex());
+            fireCardRevealed(card.getId(), player.getPlayerIndex(), type);
+            publishState();
+        }
+    }
+
+    /**
+     * Recrée des joueurs de même nature que ceux d'une autre partie, avec des mains identiques.
+     */
+    private void copyPlayers(List<Actor> source) {
+        this.players = new ArrayList<>(source.size());
+        for (Actor original : source) {
+            Actor player;
+            if (original instanceof IAEquipe) {
+                player = new IAEquipe(original.getName(), original.getPlayerIndex(), original.getPolicy());
+            } else if (original instanceof JoueurEquipe) {
+                player = new JoueurEquipe(original.getName(), original.getPlayerIndex());
+            } else if (original instanceof IA) {
+                player = new IA(original.getName(), original.getPlayerIndex(), original.getPolicy());
+            } else {
+                player = new Joueur(original.getName(), original.getPlayerIndex());
+            }
+            player.getHand().setMask(original.getHand().getMask());
+            players.add(player);
+        }
+        for (Actor original : source) {
+            if (original instanceof JoueurEquipe && ((JoueurEquipe) original).getTeammate() != null) {
+                int teammateIndex = ((JoueurEquipe) original).getTeammate().getPlayerIndex();
+                ((JoueurEquipe) players.get(original.getPlayerIndex())).setTeammate((JoueurEquipe) players.get(teammateIndex));
+            }
         }
     }
 
@@ -428,6 +1497,9 @@ public class Game {
             for (String name : playerNames) {
                 players.add(new JoueurEquipe(name, playerIndex++));
             }
+            for (int i = 0; i < numAI; i++) {
+                players.add(new IAEquipe("IA " + (i + 1), playerIndex++));
+            }
 
             // Appariement des coéquipiers (Joueur i avec Joueur i + offset)
             int teamMateOffset = players.size() / 2;
@@ -0,0 +1,261 @@
+package fr.utbm.ap4b.model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Archive de parties enregistrées, lue dans un fichier projeté en mémoire : on accède directement à la partie n
+ * ou aux parties gagnées par un camp donné, sans parcourir les parties qui précèdent.
+ * <p>
+ * Format du fichier (ordre des octets gros-boutiste) :
+ * <ul>
+ *     <li>{@link #HEADER_SIZE} octets d'en-tête : {@link #MAGIC}, nombre de parties (8 octets),
+ *     position de la zone des parties (8 octets), 8 octets réservés ;</li>
+ *     <li>l'index : une entrée de {@link #ENTRY_SIZE} octets par partie, position de la partie dans la zone des parties
+ *     (8 octets), taille de la partie (4 octets), configuration ({@link GameRecord#config(int, boolean, boolean)}),
+ *     camp gagnant (1 octet, 0xFF pour une partie non terminée) et nombre de tours (2 octets) ;</li>
+ *     <li>la zone des parties : les parties au format de {@link GameRecord}, les unes à la suite des autres.</li>
+ * </ul>
+ * Une projection ne dépassant pas 2 Go, le fichier est projeté par tranches : une entrée de l'index n'est jamais
+ * à cheval sur deux tranches, et chaque tranche de la zone des parties déborde de {@link GameRecord#MAX_RECORD_SIZE}
+ * octets sur la suivante, de sorte qu'une partie est toujours lue d'un bloc. La lecture de l'index et des parties
+ * n'alloue pas de mémoire : {@link #replay(long)} n'alloue que la partie recréée, et {@link #replay(long, Game)},
+ * qui réutilise une partie existante, n'alloue rien.
+ */
+public class GameArchive implements AutoCloseable {
+
+    /**
+     * Signature du fichier : "TRIOAR01".
+     */
+    public static final long MAGIC = 0x5452494F41523031L;
+
+    public static final int HEADER_SIZE = 32;
+
+    public static final int ENTRY_SIZE = 16;
+
+    /**
+     * Camp gagnant inscrit dans l'index pour une partie non terminée.
+     */
+    public static final int NO_WINNER = 0xFF;
+
+    /**
+     * Taille par défaut d'une tranche projetée : 2^30 octets.
+     */
+    public static final int DEFAULT_CHUNK_BITS = 30;
+
+    private final FileChannel channel;
+    private final long gameCount;
+    private final int chunkBits;
+    private final long chunkMask;
+    private final MappedByteBuffer[] indexChunks;
+    private final MappedByteBuffer[] dataChunks;
+
+    private GameArchive(FileChannel channel, long gameCount, int chunkBits, MappedByteBuffer[] indexChunks,
+                        MappedByteBuffer[] dataChunks) {
+        this.channel = channel;
+        this.gameCount = gameCount;
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1L << chunkBits) - 1;
+        this.indexChunks = indexChunks;
+        this.dataChunks = dataChunks;
+    }
+
+    /**
+     * Ouvre une archive en lecture, projetée par tranches de taille par défaut.
+     *
+     * @param path Le fichier produit par le constructeur d'archives.
+     * @return L'archive, à fermer après usage.
+     * @throws IOException Si le fichier est illisible ou n'est pas une archive complète.
+     */
+    public static GameArchive open(Path path) throws IOException {
+        return open(path, DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Ouvre une archive en lecture.
+     *
+     * @param path Le fichier produit par le constructeur d'archives.
+     * @param chunkBits Le logarithme de la taille d'une tranche projetée, de 17 à 30.
+     * @return L'archive, à fermer après usage.
+     * @throws IOException Si le fichier est illisible ou n'est pas une archive complète.
+     * @throws IllegalArgumentException Si la taille des tranches est hors limites.
+     */
+    public static GameArchive open(Path path, int chunkBits) throws IOException {
+        if (chunkBits < 17 || chunkBits > 30) {
+            throw new IllegalArgumentException("Taille de tranche invalide : 2^" + chunkBits + " octets.");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_SIZE));
+            if (header.limit() < HEADER_SIZE || header.getLong(0) != MAGIC) {
+                throw new IOException("Le fichier " + path + " n'est pas une archive de parties.");
+            }
+            long gameCount = header.getLong(8);
+            long dataStart = header.getLong(16);
+            if (gameCount < 0 || dataStart != dataStart(gameCount) || dataStart > size) {
+                throw new IOException("L'archive de parties " + path + " est incomplète.");
+            }
+
+            long chunkSize = 1L << chunkBits;
+            long indexSize = gameCount * ENTRY_SIZE;
+            MappedByteBuffer[] indexChunks = new MappedByteBuffer[(int) ((indexSize + chunkSize - 1) >>> chunkBits)];
+            for (int k = 0; k < indexChunks.length; k++) {
+                long start = (long) k << chunkBits;
+                indexChunks[k] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + start,
+                        Math.min(chunkSize, indexSize - start));
+            }
+            long dataSize = size - dataStart;
+            MappedByteBuffer[] dataChunks = new MappedByteBuffer[(int) ((dataSize + chunkSize - 1) >>> chunkBits)];
+            for (int k = 0; k < dataChunks.length; k++) {
+                long start = (long) k << chunkBits;
+                dataChunks[k] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + start,
+                        Math.min(chunkSize + GameRecord.MAX_RECORD_SIZE, dataSize - start));
+            }
+            return new GameArchive(channel, gameCount, chunkBits, indexChunks, dataChunks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("Archive de parties invalide : " + path, e);
+        }
+    }
+
+    /**
+     * @return La position de la zone des parties dans une archive de {@code gameCount} parties.
+     */
+    public static long dataStart(long gameCount) {
+        return HEADER_SIZE + gameCount * ENTRY_SIZE;
+    }
+
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * @return La position de la partie dans la zone des parties.
+     */
+    public long getOffset(long game) {
+        return indexChunk(game).getLong(indexPosition(game));
+    }
+
+    /**
+     * @return La taille de la partie, en-tête compris.
+     */
+    public int getLength(long game) {
+        return indexChunk(game).getInt(indexPosition(game) + 8);
+    }
+
+    /**
+     * @return L'octet de configuration de la partie ({@link GameRecord#config(int, boolean, boolean)}).
+     */
+    public int getConfig(long game) {
+        return indexChunk(game).get(indexPosition(game) + 12) & 0xFF;
+    }
+
+    /**
+     * @return Le camp gagnant de la partie (joueur, ou équipe en mode équipe), ou -1 si elle n'est pas terminée.
+     */
+    public int getWinner(long game) {
+        int winner = indexChunk(game).get(indexPosition(game) + 13) & 0xFF;
+        return winner == NO_WINNER ? -1 : winner;
+    }
+
+    /**
+     * @return Le nombre de tours terminés de la partie.
+     */
+    public int getTurnCount(long game) {
+        return indexChunk(game).getShort(indexPosition(game) + 14) & 0xFFFF;
+    }
+
+    /**
+     * @return La graine de la distribution de la partie.
+     */
+    public long getSeed(long game) {
+        long offset = getOffset(game);
+        return dataChunk(offset).getLong(dataPosition(offset));
+    }
+
+    /**
+     * Cherche la prochaine partie gagnée par un camp, en ne lisant que l'index.
+     *
+     * @param winner Le camp gagnant (joueur, ou équipe en mode équipe).
+     * @param fromGame L'index de la première partie examinée.
+     * @return L'index de la partie, ou -1 s'il n'y en a plus.
+     */
+    public long nextGameWonBy(int winner, long fromGame) {
+        for (long game = Math.max(fromGame, 0); game < gameCount; game++) {
+            if (getWinner(game) == winner) {
+                return game;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recrée une partie de l'archive et rejoue ses actions, lues en place dans le fichier projeté :
+     * seule la partie recréée est allouée.
+     *
+     * @param game L'index de la partie.
+     * @return La partie, dans son état final.
+     * @throws IllegalStateException Si une action enregistrée est invalide.
+     */
+    public Game replay(long game) {
+        long offset = getOffset(game);
+        MappedByteBuffer chunk = dataChunk(offset);
+        int position = dataPosition(offset);
+        Game replayed = GameRecord.newGame(chunk.getLong(position), chunk.get(position + 8) & 0xFF);
+        GameRecord.replay(replayed, chunk, position + GameRecord.RECORD_HEADER_SIZE,
+                getLength(game) - GameRecord.RECORD_HEADER_SIZE);
+        return replayed;
+    }
+
+    /**
+     * Rejoue une partie de l'archive dans une partie existante, sans allocation : la partie cible est redistribuée
+     * à partir de la graine enregistrée (voir {@link Game#reset(long)}), puis les actions sont lues en place.
+     * Une même partie cible peut ainsi servir à rejouer toutes les parties d'une configuration.
+     *
+     * @param game L'index de la partie.
+     * @param target La partie réutilisée, de même configuration que la partie enregistrée
+     * (par exemple créée par {@link GameRecord#newGame(long, int)}) ; elle est laissée dans l'état final.
+     * @throws IllegalArgumentException Si la configuration de la partie cible diffère de celle de la partie enregistrée.
+     * @throws IllegalStateException Si une action enregistrée est invalide.
+     */
+    public void replay(long game, Game target) {
+        long offset = getOffset(game);
+        MappedByteBuffer chunk = dataChunk(offset);
+        int position = dataPosition(offset);
+        int config = chunk.get(position + 8) & 0xFF;
+        if (GameRecord.config(target) != config) {
+            throw new IllegalArgumentException("La partie cible n'a pas la configuration de la partie " + game + ".");
+        }
+        target.reset(chunk.getLong(position));
+        GameRecord.replay(target, chunk, position + GameRecord.RECORD_HEADER_SIZE,
+                getLength(game) - GameRecord.RECORD_HEADER_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private MappedByteBuffer indexChunk(long game) {
+        if (game < 0 || game >= gameCount) {
+            throw new IndexOutOfBoundsException("Partie " + game + " hors de l'archive (" + gameCount + " parties).");
+        }
+        return indexChunks[(int) ((game * ENTRY_SIZE) >>> chunkBits)];
+    }
+
+    private int indexPosition(long game) {
+        return (int) ((game * ENTRY_SIZE) & chunkMask);
+    }
+
+    private MappedByteBuffer dataChunk(long offset) {
+        return dataChunks[(int) (offset >>> chunkBits)];
+    }
+
+    private int dataPosition(long offset) {
+        return (int) (offset & chunkMask);
+    }
+}
@@ -0,0 +1,161 @@
+package fr.utbm.ap4b.model;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+/**
+ * Format binaire des parties enregistrées : une partie est entièrement déterminée par la graine de sa distribution,
+ * sa configuration et la suite de ses actions, ce qui tient en quelques dizaines d'octets.
+ * <p>
+ * Format d'un fichier de parties (ordre des octets gros-boutiste) : 8 octets {@link #MAGIC}, puis les parties
+ * les unes à la suite des autres. Chaque partie comporte :
+ * <ul>
+ *     <li>8 octets : la graine de la distribution ({@link Game#getSeed()}) ;</li>
+ *     <li>1 octet : la configuration ({@link #config(int, boolean, boolean)}) ;</li>
+ *     <li>2 octets : la taille des actions en octets (non signée) ;</li>
+ *     <li>les actions : une révélation ou une fin de tour sur un octet, son code {@link LegalActions}
+ *     (inférieur à {@link #EXCHANGE_FLAG}) ; un échange sur deux octets, {@link #EXCHANGE_FLAG} {@code |} carte donnée
+ *     puis carte reçue. L'initiateur d'un échange est le joueur qui possède la carte donnée.</li>
+ * </ul>
+ */
+public final class GameRecord {
+
+    /**
+     * Signature d'un fichier de parties : "TRIOGR01".
+     */
+    public static final long MAGIC = 0x5452494F47523031L;
+
+    /**
+     * Taille de l'en-tête d'un fichier de parties.
+     */
+    public static final int FILE_HEADER_SIZE = 8;
+
+    /**
+     * Taille de l'en-tête de chaque partie (graine, configuration et taille des actions).
+     */
+    public static final int RECORD_HEADER_SIZE = 11;
+
+    /**
+     * Taille maximale des actions d'une partie, en octets.
+     */
+    public static final int MAX_ACTIONS_LENGTH = 0xFFFF;
+
+    /**
+     * Taille maximale d'une partie enregistrée, en octets.
+     */
+    public static final int MAX_RECORD_SIZE = RECORD_HEADER_SIZE + MAX_ACTIONS_LENGTH;
+
+    /**
+     * Bit marquant le premier octet d'un échange.
+     */
+    public static final int EXCHANGE_FLAG = 0x80;
+
+    private static final int TEAM_FLAG = 0x08;
+    private static final int PIQUANT_FLAG = 0x10;
+
+    private GameRecord() {
+    }
+
+    /**
+     * @return L'octet de configuration d'une partie : nombre de joueurs (3 bits de poids faible), mode équipe et piquant.
+     */
+    public static int config(int numPlayers, boolean isTeamMode, boolean isPiquant) {
+        return numPlayers | (isTeamMode ? TEAM_FLAG : 0) | (isPiquant ? PIQUANT_FLAG : 0);
+    }
+
+    /**
+     * @return L'octet de configuration d'une partie.
+     */
+    public static int config(Game game) {
+        return config(game.getNumPlayers(), game.isTeamMode(), game.isPiquant());
+    }
+
+    public static int getNumPlayers(int config) {
+        return config & 0x07;
+    }
+
+    public static boolean isTeamMode(int config) {
+        return (config & TEAM_FLAG) != 0;
+    }
+
+    public static boolean isPiquant(int config) {
+        return (config & PIQUANT_FLAG) != 0;
+    }
+
+    /**
+     * Recrée une partie enregistrée, distribuée et prête à rejouer ses actions.
+     * Toutes les places sont tenues par des IA ; la partie n'affiche rien et ne publie pas d'instantanés.
+     *
+     * @param seed La graine de la distribution.
+     * @param config L'octet de configuration.
+     * @return La partie, au moment de la distribution.
+     * @throws IllegalArgumentException Si la configuration est invalide.
+     */
+    public static Game newGame(long seed, int config) {
+        Game game = new Game(Collections.emptyList(), getNumPlayers(config), isTeamMode(config), isPiquant(config), seed);
+        game.setVerbose(false);
+        game.setStatePublishing(false);
+        game.startGame();
+        return game;
+    }
+
+    /**
+     * Rejoue des actions enregistrées sur une partie, sans allocation.
+     *
+     * @param game La partie, dans l'état qui précède la première action.
+     * @param buffer Le tampon contenant les actions.
+     * @param offset La position de la première action dans le tampon.
+     * @param length La taille des actions en octets.
+     * @throws IllegalStateException Si une action est tronquée ou interdite dans l'état de la partie.
+     */
+    public static void replay(Game game, ByteBuffer buffer, int offset, int length) {
+        int end = offset + length;
+        int position = offset;
+        while (position < end) {
+            int code = buffer.get(position++) & 0xFF;
+            if (code < EXCHANGE_FLAG) {
+                game.play(LegalActions.toAction(code));
+                continue;
+            }
+            if (position == end) {
+                throw new IllegalStateException("Échange tronqué dans la partie enregistrée.");
+            }
+            int give = code & ~EXCHANGE_FLAG;
+            int receive = buffer.get(position++);
+            int initiator = give < Card.DECK_SIZE ? ownerOf(game, give) : -1;
+            if (initiator < 0 || receive < 0 || receive >= Card.DECK_SIZE
+                    || !game.exchangeCards(initiator, Card.fromId(give), Card.fromId(receive))) {
+                throw new IllegalStateException("Échange impossible dans la partie enregistrée : " + give + " contre " + receive);
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de tours terminés par des actions enregistrées.
+     */
+    public static int countTurns(ByteBuffer buffer, int offset, int length) {
+        int turns = 0;
+        int end = offset + length;
+        for (int position = offset; position < end; position++) {
+            int code = buffer.get(position) & 0xFF;
+            if (code == LegalActions.END_TURN) {
+                turns++;
+            } else if (code >= EXCHANGE_FLAG) {
+                position++; // Carte reçue
+            }
+        }
+        return turns;
+    }
+
+    /**
+     * @return Le joueur qui possède une carte, ou -1.
+     */
+    private static int ownerOf(GameView game, int cardId) {
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            if ((game.getHandMask(p) & (1L << cardId)) != 0L) {
+                return p;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,164 @@
+package fr.utbm.ap4b.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lit séquentiellement un fichier de parties au format de {@link GameRecord}.
+ * Le fichier est lu par blocs dans un tampon direct réutilisé ; chaque partie y est lue en place,
+ * sans copie ni allocation, et peut être rejouée dans une partie neuve ({@link #replay()}).
+ * <pre>
+ * try (GameRecordReader reader = GameRecordReader.open(path)) {
+ *     while (reader.next()) {
+ *         Game game = reader.replay();
+ *     }
+ * }
+ * </pre>
+ */
+public class GameRecordReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean endOfFile = false;
+
+    // Partie courante : ses actions restent dans le tampon, à partir de actionsOffset, jusqu'à l'appel suivant de next
+    private long seed;
+    private int config;
+    private int actionsOffset;
+    private int actionsLength;
+
+    private GameRecordReader(FileChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Ouvre un fichier de parties en lecture.
+     *
+     * @param path Le fichier produit par un {@link GameRecordWriter}.
+     * @return Le lecteur, positionné avant la première partie, à fermer après usage.
+     * @throws IOException Si le fichier est illisible ou n'est pas un fichier de parties.
+     */
+    public static GameRecordReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(GameRecordWriter.DEFAULT_BUFFER_SIZE);
+            buffer.limit(0);
+            GameRecordReader reader = new GameRecordReader(channel, buffer);
+            if (!reader.fill(GameRecord.FILE_HEADER_SIZE) || buffer.getLong() != GameRecord.MAGIC) {
+                throw new IOException("Le fichier " + path + " n'est pas un fichier de parties.");
+            }
+            return reader;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Passe à la partie suivante.
+     *
+     * @return Faux s'il n'y a plus de partie.
+     * @throws IOException Si la lecture échoue.
+     * @throws EOFException Si le fichier se termine au milieu d'une partie.
+     */
+    public boolean next() throws IOException {
+        actionsLength = 0;
+        if (!fill(GameRecord.RECORD_HEADER_SIZE)) {
+            if (buffer.hasRemaining()) {
+                throw new EOFException("Fichier de parties tronqué.");
+            }
+            return false;
+        }
+        // La partie entière, en-tête compris, est gardée d'un bloc dans le tampon
+        int length = buffer.getShort(buffer.position() + 9) & 0xFFFF;
+        if (!fill(GameRecord.RECORD_HEADER_SIZE + length)) {
+            throw new EOFException("Fichier de parties tronqué.");
+        }
+        int start = buffer.position();
+        seed = buffer.getLong(start);
+        config = buffer.get(start + 8) & 0xFF;
+        actionsOffset = start + GameRecord.RECORD_HEADER_SIZE;
+        actionsLength = length;
+        buffer.position(actionsOffset + length);
+        return true;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return L'octet de configuration de la partie courante ({@link GameRecord#config(int, boolean, boolean)}).
+     */
+    public int getConfig() {
+        return config;
+    }
+
+    /**
+     * @return La taille des actions de la partie courante, en octets.
+     */
+    public int getActionsLength() {
+        return actionsLength;
+    }
+
+    /**
+     * @return Le nombre de tours terminés de la partie courante.
+     */
+    public int getTurnCount() {
+        return GameRecord.countTurns(buffer, actionsOffset, actionsLength);
+    }
+
+    /**
+     * Copie la partie courante, en-tête compris, au format de {@link GameRecord}.
+     * @param target Le tampon de destination, dont la position avance de la taille de la partie.
+     */
+    public void copyRecordTo(ByteBuffer target) {
+        int start = actionsOffset - GameRecord.RECORD_HEADER_SIZE;
+        int position = buffer.position();
+        int limit = buffer.limit();
+        buffer.limit(actionsOffset + actionsLength).position(start);
+        target.put(buffer);
+        buffer.limit(limit).position(position);
+    }
+
+    /**
+     * Recrée la partie courante et rejoue toutes ses actions.
+     *
+     * @return La partie, dans son état final.
+     * @throws IllegalStateException Si une action enregistrée est invalide.
+     */
+    public Game replay() {
+        Game game = GameRecord.newGame(seed, config);
+        GameRecord.replay(game, buffer, actionsOffset, actionsLength);
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * S'assure que les {@code count} octets suivants sont dans le tampon, en déplaçant les octets non lus
+     * au début du tampon et en lisant la suite du fichier si nécessaire.
+     * @return Faux si le fichier se termine avant.
+     */
+    private boolean fill(int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < count && !endOfFile) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= count;
+    }
+}
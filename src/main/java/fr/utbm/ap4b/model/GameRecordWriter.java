@@ -0,0 +1,126 @@
+package fr.utbm.ap4b.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Écrit des parties au format de {@link GameRecord} à la fin d'un fichier.
+ * Les parties sont accumulées dans un tampon direct réutilisé, écrit d'un bloc dans le fichier lorsqu'il est plein :
+ * enregistrer une partie ne coûte qu'une copie de quelques dizaines d'octets.
+ * Les écritures sont synchronisées : un même écrivain peut être partagé entre les threads d'une simulation.
+ */
+public class GameRecordWriter implements AutoCloseable {
+
+    /**
+     * Taille par défaut du tampon d'écriture (au moins une partie de taille maximale).
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 17;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long recordCount = 0;
+
+    private GameRecordWriter(FileChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Ouvre un fichier de parties pour y ajouter des parties ; il est créé s'il n'existe pas.
+     *
+     * @param path Le fichier.
+     * @return L'écrivain, à fermer après usage (les parties encore dans le tampon sont alors écrites).
+     * @throws IOException Si le fichier ne peut pas être ouvert ou n'est pas un fichier de parties.
+     */
+    public static GameRecordWriter open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+            if (channel.size() == 0) {
+                buffer.putLong(GameRecord.MAGIC).flip();
+                channel.write(buffer, 0);
+                buffer.clear();
+            } else {
+                buffer.limit(GameRecord.FILE_HEADER_SIZE);
+                if (channel.read(buffer, 0) != GameRecord.FILE_HEADER_SIZE || buffer.getLong(0) != GameRecord.MAGIC) {
+                    throw new IOException("Le fichier " + path + " n'est pas un fichier de parties.");
+                }
+                buffer.clear();
+            }
+            channel.position(channel.size());
+            return new GameRecordWriter(channel, buffer);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ajoute la partie capturée par un enregistreur.
+     *
+     * @param recorder L'enregistreur.
+     * @throws IOException Si l'écriture du tampon dans le fichier échoue.
+     * @throws IllegalArgumentException Si la partie dépasse {@link GameRecord#MAX_ACTIONS_LENGTH} octets d'actions.
+     */
+    public void write(GameRecorder recorder) throws IOException {
+        write(recorder.getSeed(), recorder.getConfig(), recorder.getActions(), 0, recorder.getLength());
+    }
+
+    /**
+     * Ajoute une partie.
+     *
+     * @param seed La graine de la distribution.
+     * @param config L'octet de configuration ({@link GameRecord#config(int, boolean, boolean)}).
+     * @param actions Les actions encodées.
+     * @param offset La position de la première action dans le tableau.
+     * @param length La taille des actions en octets.
+     * @throws IOException Si l'écriture du tampon dans le fichier échoue.
+     * @throws IllegalArgumentException Si la partie dépasse {@link GameRecord#MAX_ACTIONS_LENGTH} octets d'actions.
+     */
+    public synchronized void write(long seed, int config, byte[] actions, int offset, int length) throws IOException {
+        if (length > GameRecord.MAX_ACTIONS_LENGTH) {
+            throw new IllegalArgumentException("Partie trop longue pour être enregistrée : " + length + " octets d'actions.");
+        }
+        if (buffer.remaining() < GameRecord.RECORD_HEADER_SIZE + length) {
+            flushBuffer();
+        }
+        buffer.putLong(seed).put((byte) config).putShort((short) length).put(actions, offset, length);
+        recordCount++;
+    }
+
+    /**
+     * @return Le nombre de parties ajoutées par cet écrivain.
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Écrit dans le fichier les parties encore dans le tampon.
+     * @throws IOException Si l'écriture échoue.
+     */
+    public synchronized void flush() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,134 @@
+package fr.utbm.ap4b.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Enregistre les actions d'une partie au format de {@link GameRecord}, au fil des événements de la partie
+ * ({@link Game.GameListener}) : les révélations, fins de tour et échanges sont capturés quelle que soit la façon
+ * dont ils sont joués (interface, stratégies, {@link Game#play(Action)}).
+ * <p>
+ * Un même enregistreur peut servir à plusieurs parties successives (voir {@link #attach(Game)}) : son tampon
+ * n'est pas réalloué d'une partie à l'autre. Les annulations ({@link Game#undo(UndoRecord)}) ne sont pas enregistrées.
+ */
+public class GameRecorder implements Game.GameListener {
+
+    private Game game;
+    private long seed;
+    private int config;
+    private byte[] actions = new byte[256];
+    private int length;
+
+    /**
+     * Commence l'enregistrement d'une partie, avant sa première action.
+     * L'enregistreur est détaché de la partie précédente et ses actions sont oubliées.
+     *
+     * @param game La partie à enregistrer.
+     * @throws IllegalArgumentException Si la partie n'a pas de graine (créée avec un générateur externe).
+     */
+    public void attach(Game game) {
+        if (game.getSeed().isEmpty()) {
+            throw new IllegalArgumentException("Seule une partie créée avec une graine peut être enregistrée.");
+        }
+        detach();
+        this.game = game;
+        this.seed = game.getSeed().getAsLong();
+        this.config = GameRecord.config(game);
+        this.length = 0;
+        game.addGameListener(this);
+    }
+
+    /**
+     * Reprend l'enregistrement d'une partie restaurée depuis une sauvegarde ({@link GameSnapshot}),
+     * à la suite des actions enregistrées avant la sauvegarde.
+     *
+     * @param game La partie restaurée.
+     * @param actions Le tampon contenant les actions déjà enregistrées.
+     * @param offset La position de la première action dans le tampon.
+     * @param length La taille des actions en octets.
+     * @throws IllegalArgumentException Si la partie n'a pas de graine.
+     */
+    public void resume(Game game, ByteBuffer actions, int offset, int length) {
+        attach(game);
+        if (this.actions.length < length) {
+            this.actions = new byte[Math.max(length, 2 * this.actions.length)];
+        }
+        actions.get(offset, this.actions, 0, length);
+        this.length = length;
+    }
+
+    /**
+     * Arrête l'enregistrement ; les actions enregistrées restent disponibles.
+     */
+    public void detach() {
+        if (game != null) {
+            game.removeGameListener(this);
+            game = null;
+        }
+    }
+
+    /**
+     * @return La partie en cours d'enregistrement, ou null si l'enregistreur est détaché.
+     */
+    public Game getGame() {
+        return game;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return L'octet de configuration de la partie ({@link GameRecord#config(int, boolean, boolean)}).
+     */
+    public int getConfig() {
+        return config;
+    }
+
+    /**
+     * @return La taille des actions enregistrées, en octets.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return Le tampon des actions enregistrées (les {@link #getLength()} premiers octets), sans copie.
+     */
+    public byte[] getActions() {
+        return actions;
+    }
+
+    @Override
+    public void onCardRevealed(int cardId, int owner, Action.Type type) {
+        switch (type) {
+            case REVEAL_SMALLEST:
+                append(owner);
+                break;
+            case REVEAL_LARGEST:
+                append(LegalActions.REVEAL_LARGEST_BASE + owner);
+                break;
+            default:
+                append(LegalActions.REVEAL_CENTER_BASE + game.getCenterIndex(cardId));
+                break;
+        }
+    }
+
+    @Override
+    public void onTurnEnded(int playerIndex, boolean trioFormed) {
+        append(LegalActions.END_TURN);
+    }
+
+    @Override
+    public void onCardsExchanged(int initiatorIndex, int teammateIndex, int givenCardId, int receivedCardId) {
+        append(GameRecord.EXCHANGE_FLAG | givenCardId);
+        append(receivedCardId);
+    }
+
+    private void append(int code) {
+        if (length == actions.length) {
+            actions = Arrays.copyOf(actions, length * 2);
+        }
+        actions[length++] = (byte) code;
+    }
+}
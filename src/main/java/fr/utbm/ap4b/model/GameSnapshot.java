@@ -0,0 +1,248 @@
+package fr.utbm.ap4b.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Sauvegarde compacte de l'état complet d'une partie en cours, pour la suspendre et la reprendre.
+ * <p>
+ * Contrairement à un enregistrement ({@link GameRecord}), qui rejoue toute la partie depuis la distribution,
+ * un instantané décrit directement la position : mains, centre, trios, cartes révélées, phase et échanges,
+ * soit une centaine d'octets. L'encodage n'écrit que des types primitifs dans le tampon fourni et n'alloue rien :
+ * il peut être appelé à chaque tour sur le thread JavaFX. Les actions enregistrées par un {@link GameRecorder}
+ * peuvent être sauvegardées avec la position (un octet par action environ), pour que la partie reprise
+ * reste enregistrée en entier.
+ * <p>
+ * Format (ordre des octets gros-boutiste) : {@link #MAGIC} (4 octets), configuration
+ * ({@link GameRecord#config(int, boolean, boolean)}), indicateurs (graine, enregistrement), graine (8 octets),
+ * nombre de joueurs humains puis le nom de chacun (longueur sur 1 octet, caractères sur 2 octets),
+ * joueur courant, phase, masques d'échange autorisés et effectués, cartes vues (8 octets), main de chaque joueur
+ * (8 octets), valeurs possibles des cartes inconnues de chaque joueur ({@link BeliefState}, 2 octets), cartes du centre (nombre puis identifiants), cartes révélées (nombre puis identifiant et emplacement + 1),
+ * trios de chaque joueur (nombre puis 3 identifiants par trio), actions enregistrées (taille sur 2 octets puis octets),
+ * et une somme de contrôle CRC-32 de tout ce qui précède.
+ */
+public class GameSnapshot {
+
+    /**
+     * Signature d'un instantané : "TRSN".
+     */
+    public static final int MAGIC = 0x5452534E;
+
+    /**
+     * Taille maximale d'un nom de joueur sauvegardé, en caractères.
+     */
+    public static final int MAX_NAME_LENGTH = 0xFF;
+
+    /**
+     * Taille suffisante du tampon d'encodage pour toute partie.
+     */
+    public static final int MAX_SIZE = 4 + 1 + 1 + 8 + 1 + LegalActions.MAX_PLAYERS * (1 + 2 * MAX_NAME_LENGTH)
+            + 4 + 8 + 8 * LegalActions.MAX_PLAYERS + 2 * LegalActions.MAX_PLAYERS + 1 + Card.DECK_SIZE + 1 + 2 * 3
+            + LegalActions.MAX_PLAYERS + Card.DECK_SIZE + 2 + GameRecord.MAX_ACTIONS_LENGTH + 4;
+
+    private static final int SEED_FLAG = 0x01;
+    private static final int RECORDED_FLAG = 0x02;
+
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * Écrit l'instantané d'une partie commencée.
+     *
+     * @param game La partie.
+     * @param recorder L'enregistreur de la partie, dont les actions sont sauvegardées avec elle, ou null.
+     * @param buffer Le tampon de destination ; l'instantané est écrit à partir de sa position, qui avance d'autant.
+     * @throws IllegalStateException Si la partie n'est pas commencée.
+     * @throws java.nio.BufferOverflowException Si le tampon est trop petit (voir {@link #MAX_SIZE}).
+     */
+    public void encode(Game game, GameRecorder recorder, ByteBuffer buffer) {
+        if (!game.isGameStarted()) {
+            throw new IllegalStateException("Seule une partie commencée peut être sauvegardée.");
+        }
+        int start = buffer.position();
+        int numPlayers = game.getNumPlayers();
+        boolean recorded = recorder != null && recorder.getLength() <= GameRecord.MAX_ACTIONS_LENGTH;
+
+        buffer.putInt(MAGIC).put((byte) GameRecord.config(game))
+                .put((byte) ((game.hasSeed() ? SEED_FLAG : 0) | (recorded ? RECORDED_FLAG : 0)))
+                .putLong(game.getSeedValue());
+
+        // Les joueurs humains occupent les premières places
+        List<Actor> players = game.getPlayers();
+        int humans = 0;
+        while (humans < numPlayers && players.get(humans).getPolicy() == null) {
+            humans++;
+        }
+        buffer.put((byte) humans);
+        for (int p = 0; p < humans; p++) {
+            String name = players.get(p).getName();
+            int length = Math.min(name.length(), MAX_NAME_LENGTH);
+            buffer.put((byte) length);
+            for (int i = 0; i < length; i++) {
+                buffer.putChar(name.charAt(i));
+            }
+        }
+
+        buffer.put((byte) game.getPlayerTurn()).put((byte) game.getCurrentPhase().ordinal())
+                .put((byte) game.getSwapAllowedMask()).put((byte) game.getSwapDoneMask())
+                .putLong(game.getSeenMask());
+        for (int p = 0; p < numPlayers; p++) {
+            buffer.putLong(game.getHandMask(p));
+        }
+        for (int p = 0; p < numPlayers; p++) {
+            buffer.putShort((short) game.getBeliefState().getValueConstraint(p));
+        }
+
+        DrawPile center = game.getDrawPile();
+        buffer.put((byte) center.getRemainingCardCount());
+        for (int k = 0; k < center.getRemainingCardCount(); k++) {
+            buffer.put((byte) center.getCard(k).getId());
+        }
+
+        buffer.put((byte) game.getRevealedCount());
+        for (int i = 0; i < game.getRevealedCount(); i++) {
+            buffer.put((byte) game.getRevealedCardId(i)).put((byte) (game.getRevealedOwner(i) + 1));
+        }
+
+        CompletedTrios trios = game.getCompletedTrios();
+        for (int p = 0; p < numPlayers; p++) {
+            int count = trios.getTrioCount(p);
+            buffer.put((byte) count);
+            for (int i = 0; i < 3 * count; i++) {
+                buffer.put((byte) trios.getTrioCardId(p, i));
+            }
+        }
+
+        if (recorded) {
+            buffer.putShort((short) recorder.getLength()).put(recorder.getActions(), 0, recorder.getLength());
+        } else {
+            buffer.putShort((short) 0);
+        }
+
+        buffer.putInt(checksum(buffer, start, buffer.position()));
+    }
+
+    /**
+     * Recrée une partie à partir de son instantané. Les IA reçoivent leur stratégie par défaut.
+     *
+     * @param buffer Le tampon contenant l'instantané, à partir de sa position (qui avance jusqu'à la fin de l'instantané).
+     * @param recorder Un enregistreur qui reprend l'enregistrement de la partie si l'instantané en contient un, ou null.
+     * @return La partie, dans l'état sauvegardé.
+     * @throws IllegalArgumentException Si l'instantané est tronqué, altéré ou incohérent.
+     */
+    public Game decode(ByteBuffer buffer, GameRecorder recorder) {
+        int start = buffer.position();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Ce n'est pas une sauvegarde de partie.");
+            }
+            int config = buffer.get() & 0xFF;
+            int flags = buffer.get();
+            long seed = buffer.getLong();
+            int numPlayers = GameRecord.getNumPlayers(config);
+
+            int humans = buffer.get();
+            List<String> names = new ArrayList<>(humans);
+            for (int p = 0; p < humans; p++) {
+                char[] name = new char[buffer.get() & 0xFF];
+                for (int i = 0; i < name.length; i++) {
+                    name[i] = buffer.getChar();
+                }
+                names.add(new String(name));
+            }
+
+            int playerTurn = buffer.get();
+            int phaseIndex = buffer.get();
+            int swapAllowedMask = buffer.get() & 0xFF;
+            int swapDoneMask = buffer.get() & 0xFF;
+            long seenMask = buffer.getLong();
+            long[] handMasks = new long[numPlayers];
+            for (int p = 0; p < numPlayers; p++) {
+                handMasks[p] = buffer.getLong();
+            }
+            int[] valueConstraints = new int[numPlayers];
+            for (int p = 0; p < numPlayers; p++) {
+                valueConstraints[p] = buffer.getShort() & BeliefState.ALL_VALUES;
+            }
+
+            int centerCount = buffer.get();
+            int[] centerCardIds = new int[Card.DECK_SIZE];
+            for (int k = 0; k < centerCount; k++) {
+                centerCardIds[k] = checkCardId(buffer.get());
+            }
+
+            int revealedCount = buffer.get();
+            if (revealedCount < 0 || revealedCount > 3) {
+                throw new IllegalArgumentException("Nombre de cartes révélées invalide : " + revealedCount);
+            }
+            int[] revealedIds = new int[3];
+            int[] revealedOwners = new int[3];
+            for (int i = 0; i < revealedCount; i++) {
+                revealedIds[i] = checkCardId(buffer.get());
+                revealedOwners[i] = buffer.get() - 1;
+            }
+
+            int[][] trioCardIds = new int[numPlayers][Card.DECK_SIZE];
+            int[] trioCounts = new int[numPlayers];
+            for (int p = 0; p < numPlayers; p++) {
+                trioCounts[p] = buffer.get();
+                for (int i = 0; i < 3 * trioCounts[p]; i++) {
+                    trioCardIds[p][i] = checkCardId(buffer.get());
+                }
+            }
+
+            int actionsLength = buffer.getShort() & 0xFFFF;
+            int actionsOffset = buffer.position();
+            if (actionsLength > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            buffer.position(actionsOffset + actionsLength);
+
+            if (checksum(buffer, start, buffer.position()) != buffer.getInt()) {
+                throw new IllegalArgumentException("La sauvegarde de partie est altérée.");
+            }
+            if (playerTurn < 0 || playerTurn >= numPlayers || phaseIndex < 0 || phaseIndex >= Game.GamePhase.values().length
+                    || centerCount < 0 || centerCount > Card.DECK_SIZE) {
+                throw new IllegalArgumentException("La sauvegarde de partie est incohérente.");
+            }
+
+            boolean isTeamMode = GameRecord.isTeamMode(config);
+            boolean isPiquant = GameRecord.isPiquant(config);
+            Game game = (flags & SEED_FLAG) != 0
+                    ? new Game(names, numPlayers - humans, isTeamMode, isPiquant, seed)
+                    : new Game(names, numPlayers - humans, isTeamMode, isPiquant, new SplittableRandom());
+            game.restore(handMasks, centerCardIds, centerCount, trioCardIds, trioCounts,
+                    revealedIds, revealedOwners, revealedCount, seenMask,
+                    playerTurn, Game.GamePhase.values()[phaseIndex], swapAllowedMask, swapDoneMask, valueConstraints);
+
+            if (recorder != null && (flags & RECORDED_FLAG) != 0 && game.getSeed().isPresent()) {
+                recorder.resume(game, buffer, actionsOffset, actionsLength);
+            }
+            return game;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("La sauvegarde de partie est tronquée.", e);
+        }
+    }
+
+    /**
+     * @return La somme de contrôle des octets {@code [start, end)} du tampon, dont la position est ensuite {@code end}.
+     */
+    private int checksum(ByteBuffer buffer, int start, int end) {
+        int limit = buffer.limit();
+        buffer.limit(end).position(start);
+        checksum.reset();
+        checksum.update(buffer);
+        buffer.limit(limit);
+        return (int) checksum.getValue();
+    }
+
+    private static int checkCardId(int cardId) {
+        if (cardId < 0 || cardId >= Card.DECK_SIZE) {
+            throw new IllegalArgumentException("Carte invalide dans la sauvegarde : " + cardId);
+        }
+        return cardId;
+    }
+}
@@ -0,0 +1,209 @@
+package fr.utbm.ap4b.model;
+
+/**
+ * Instantané immuable de l'état d'une partie.
+ * Un nouvel instantané est publié par {@link Game} après chaque modification ; il peut être lu
+ * sans verrou depuis n'importe quel thread (analyse en arrière-plan, spectateur, rendu).
+ * Les instantanés successifs partagent les tableaux qui n'ont pas changé (mains, centre, trios de
+ * chaque joueur) : publier un instantané ne coûte que la copie des parties modifiées.
+ * Les tableaux internes ne sont jamais exposés ni modifiés après publication.
+ */
+public final class GameState {
+
+    private final long version;
+    private final boolean isTeamMode;
+    private final boolean isPiquant;
+    private final boolean isGameStarted;
+    private final Game.GamePhase phase;
+    private final int currentPlayer;
+    private final long[] handMasks;      // Partagé tant qu'aucune main ne change
+    private final int[] centerCardIds;   // Partagé tant que le centre ne change pas
+    private final int[] trioMasks;       // Partagé tant qu'aucun trio n'est ajouté ou retiré
+    private final int[][] trioCardIds;   // Chaque tableau de joueur est partagé tant que ses trios ne changent pas
+    private final int[] trioCounts;
+    private final int revealedCount;
+    private final int revealed0;
+    private final int revealed1;
+    private final int revealed2;
+    private final int owner0;
+    private final int owner1;
+    private final int owner2;
+    private final long revealedMask;
+    private final int swapAllowedMask;
+    private final int swapDoneMask;
+    private final int winnerIndex;
+    private final CompletedTrios.WinReason winReason;
+
+    GameState(long version, boolean isTeamMode, boolean isPiquant, boolean isGameStarted,
+              Game.GamePhase phase, int currentPlayer,
+              long[] handMasks, int[] centerCardIds, int[] trioMasks, int[][] trioCardIds, int[] trioCounts,
+              int revealedCount, int[] revealedIds, int[] revealedOwners, long revealedMask,
+              int swapAllowedMask, int swapDoneMask, int winnerIndex, CompletedTrios.WinReason winReason) {
+        this.version = version;
+        this.isTeamMode = isTeamMode;
+        this.isPiquant = isPiquant;
+        this.isGameStarted = isGameStarted;
+        this.phase = phase;
+        this.currentPlayer = currentPlayer;
+        this.handMasks = handMasks;
+        this.centerCardIds = centerCardIds;
+        this.trioMasks = trioMasks;
+        this.trioCardIds = trioCardIds;
+        this.trioCounts = trioCounts;
+        this.revealedCount = revealedCount;
+        this.revealed0 = revealedIds[0];
+        this.revealed1 = revealedIds[1];
+        this.revealed2 = revealedIds[2];
+        this.owner0 = revealedOwners[0];
+        this.owner1 = revealedOwners[1];
+        this.owner2 = revealedOwners[2];
+        this.revealedMask = revealedMask;
+        this.swapAllowedMask = swapAllowedMask;
+        this.swapDoneMask = swapDoneMask;
+        this.winnerIndex = winnerIndex;
+        this.winReason = winReason;
+    }
+
+    /**
+     * @return Le numéro de version de l'instantané, strictement croissant pour une même partie.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isTeamMode() {
+        return isTeamMode;
+    }
+
+    public boolean isPiquant() {
+        return isPiquant;
+    }
+
+    public boolean isGameStarted() {
+        return isGameStarted;
+    }
+
+    public boolean isGameEnded() {
+        return winnerIndex >= 0;
+    }
+
+    public Game.GamePhase getPhase() {
+        return phase;
+    }
+
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getNumPlayers() {
+        return handMasks.length;
+    }
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @return Le masque des identifiants de cartes de la main du joueur.
+     */
+    public long getHandMask(int playerIndex) {
+        return handMasks[playerIndex];
+    }
+
+    public int getHandSize(int playerIndex) {
+        return Long.bitCount(handMasks[playerIndex]);
+    }
+
+    public int getCenterCount() {
+        return centerCardIds.length;
+    }
+
+    /**
+     * @param index La position de la carte parmi les cartes restantes du centre.
+     * @return L'identifiant de la carte.
+     */
+    public int getCenterCardId(int index) {
+        return centerCardIds[index];
+    }
+
+    public int getRevealedCount() {
+        return revealedCount;
+    }
+
+    public int getRevealedCardId(int index) {
+        return index == 0 ? revealed0 : index == 1 ? revealed1 : revealed2;
+    }
+
+    /**
+     * @return L'index du joueur d'où vient la carte, ou {@link Game#CENTER_OWNER} si elle vient du centre.
+     */
+    public int getRevealedOwner(int index) {
+        return index == 0 ? owner0 : index == 1 ? owner1 : owner2;
+    }
+
+    public long getRevealedMask() {
+        return revealedMask;
+    }
+
+    public int getTrioMask(int playerIndex) {
+        return trioMasks[playerIndex];
+    }
+
+    public int getTrioCount(int playerIndex) {
+        return trioCounts[playerIndex];
+    }
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @param position La position de la carte parmi les cartes des trios du joueur (3 par trio).
+     * @return L'identifiant de la carte.
+     */
+    public int getTrioCardId(int playerIndex, int position) {
+        return trioCardIds[playerIndex][position];
+    }
+
+    public int getSwapAllowedMask() {
+        return swapAllowedMask;
+    }
+
+    public int getSwapDoneMask() {
+        return swapDoneMask;
+    }
+
+    public int getWinnerIndex() {
+        return winnerIndex;
+    }
+
+    public CompletedTrios.WinReason getWinReason() {
+        return winReason;
+    }
+
+    long[] handMasksArray() {
+        return handMasks;
+    }
+
+    int[] centerCardIdsArray() {
+        return centerCardIds;
+    }
+
+    int[] trioMasksArray() {
+        return trioMasks;
+    }
+
+    int[][] trioCardIdsArray() {
+        return trioCardIds;
+    }
+
+    int[] trioCountsArray() {
+        return trioCounts;
+    }
+
+    @Override
+    public String toString() {
+        return "GameState{" +
+                "version=" + version +
+                ", phase=" + phase +
+                ", currentPlayer=" + currentPlayer +
+                ", revealedCount=" + revealedCount +
+                ", centerCount=" + centerCardIds.length +
+                ", winnerIndex=" + winnerIndex +
+                '}';
+    }
+}
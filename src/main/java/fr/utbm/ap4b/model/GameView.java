@@ -0,0 +1,106 @@
+package fr.utbm.ap4b.model;
+
+/**
+ * Vue en lecture seule d'une partie, fournie aux stratégies ({@link Policy}).
+ * Les cartes sont désignées par leur identifiant dense ({@link Card#getId()}) et les ensembles de cartes
+ * par des masques de bits indexés par identifiant.
+ * <p>
+ * La vue donne accès à toute la partie, y compris aux informations cachées (mains, centre) :
+ * une stratégie loyale ne consulte que la main du joueur pour lequel elle décide (et celle de son
+ * coéquipier lors d'un échange), les cartes révélées et les cartes déjà vues ({@link #getSeenMask()}).
+ */
+public interface GameView {
+
+    int getNumPlayers();
+
+    /**
+     * @return L'index du joueur dont c'est le tour.
+     */
+    int getPlayerTurn();
+
+    Game.GamePhase getCurrentPhase();
+
+    /**
+     * @return L'index du prochain joueur devant échanger, ou -1 si aucun échange n'est attendu.
+     */
+    int getNextPendingSwapPlayerIndex();
+
+    /**
+     * @return Le masque des joueurs autorisés à échanger qui ne l'ont pas encore fait (bit {@code 1 << index}).
+     */
+    int getPendingSwapMask();
+
+    boolean isTeamMode();
+
+    boolean isPiquant();
+
+    boolean isGameEnded();
+
+    /**
+     * @return Vrai si le joueur courant peut encore révéler une carte.
+     */
+    boolean canRevealCard();
+
+    /**
+     * @return Vrai si le joueur courant peut (ou doit) terminer son tour.
+     */
+    boolean canEndTurn();
+
+    int getRevealedCount();
+
+    /**
+     * @param index La position de la révélation dans le tour (0 à 2).
+     * @return L'identifiant de la carte révélée.
+     */
+    int getRevealedCardId(int index);
+
+    /**
+     * @param index La position de la révélation dans le tour (0 à 2).
+     * @return L'index du joueur d'où vient la carte, ou {@link Game#CENTER_OWNER} si elle vient du centre.
+     */
+    int getRevealedOwner(int index);
+
+    /**
+     * @return Le masque des cartes révélées pendant le tour courant.
+     */
+    long getRevealedMask();
+
+    /**
+     * @return Le masque des cartes déjà montrées à tous et restées à leur place.
+     */
+    long getSeenMask();
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @return Le masque des cartes de la main du joueur (information privée).
+     */
+    long getHandMask(int playerIndex);
+
+    /**
+     * @return Le masque des cartes restantes au centre (information cachée, faces cachées).
+     */
+    long getCenterMask();
+
+    /**
+     * @param cardId L'identifiant d'une carte du centre.
+     * @return La position de la carte parmi les cartes du centre, ou -1 si elle n'y est pas.
+     */
+    int getCenterIndex(int cardId);
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @return Le masque des valeurs des trios formés par le joueur (bit {@code 1 << valeur}).
+     */
+    int getTrioMask(int playerIndex);
+
+    /**
+     * @param playerIndex L'index du joueur.
+     * @return L'index de son coéquipier, ou -1 s'il n'en a pas.
+     */
+    int getTeammateIndex(int playerIndex);
+
+    /**
+     * @return Ce que tous les joueurs savent des mains cachées, tenu à jour à chaque action.
+     */
+    BeliefState getBeliefState();
+}
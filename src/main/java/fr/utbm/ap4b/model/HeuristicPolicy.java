@@ -0,0 +1,356 @@
+package fr.utbm.ap4b.model;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Stratégie heuristique de base utilisée par défaut par les IA.
+ * Elle ne consulte que les informations dont dispose réellement le joueur : sa propre main, les cartes révélées,
+ * les cartes déjà vues restées à leur place et les valeurs encore possibles des cartes inconnues de chaque adversaire
+ * ({@link GameView#getBeliefState()}). Les mains des adversaires ne sont jamais lues.
+ * <ul>
+ *     <li>En début de tour, elle vise la valeur dont elle peut atteindre le plus d'exemplaires à coup sûr
+ *     (ses propres extrémités, les extrémités des adversaires connues de tous, les cartes vues du centre),
+ *     en privilégiant les valeurs gagnantes (les 7, un trio lié en mode piquant, le dernier trio).</li>
+ *     <li>Ensuite, elle révèle un exemplaire connu de la valeur visée, ou à défaut interroge la plus petite
+ *     carte d'un adversaire pour une petite valeur, sa plus grande pour une grande valeur, ou le centre.</li>
+ *     <li>Les adversaires dont aucune carte inconnue ne peut avoir la valeur visée sont ignorés.</li>
+ *     <li>En mode équipe, lors d'un échange, elle regroupe les exemplaires de chaque valeur dans une seule des
+ *     deux mains de l'équipe, en priorité ceux des valeurs gagnantes. Lorsque la carte donnée est déjà choisie
+ *     (par un coéquipier humain), elle choisit la carte rendue en fonction de celle-ci
+ *     ({@link #chooseReply(GameView, int, int)}).</li>
+ * </ul>
+ * Le choix ne fait que des opérations sur des masques de bits et n'alloue rien (hors échanges) :
+ * une décision prend de l'ordre de la microseconde. La stratégie est sans état et peut être partagée entre threads.
+ */
+public class HeuristicPolicy implements Policy {
+
+    private static final int SEVEN = Trios.DEUTEC.getValue();
+    private static final int NUM_VALUES = Trios.values().length;
+    private static final int MIDDLE_VALUE = (NUM_VALUES + 1) / 2;
+
+    private static final RandomPolicy FALLBACK = new RandomPolicy();
+
+    @Override
+    public Action chooseAction(GameView game, RandomGenerator random) {
+        if (game.getCurrentPhase() != Game.GamePhase.PLAYING) {
+            return chooseExchange(game);
+        }
+        if (game.canEndTurn()) {
+            return Action.endTurn();
+        }
+
+        int me = game.getPlayerTurn();
+        int value = game.getRevealedCount() == 0
+                ? chooseTargetValue(game, me)
+                : valueOf(game.getRevealedCardId(0));
+
+        Action action = value > 0 ? revealKnownCopy(game, me, value) : null;
+        if (action == null && value > 0) {
+            action = guessCopy(game, me, value, random);
+        }
+        return action != null ? action : FALLBACK.chooseAction(game, random);
+    }
+
+    /**
+     * Choisit la valeur à viser en début de tour.
+     * @return La valeur visée, ou 0 si aucune carte n'est connue.
+     */
+    private int chooseTargetValue(GameView game, int me) {
+        int bestValue = 0;
+        int bestScore = 0;
+        for (int value = 1; value <= NUM_VALUES; value++) {
+            int known = Math.min(countKnownCopies(game, me, value), Card.COPIES_PER_VALUE);
+            if (known == 0) {
+                continue;
+            }
+            // Un trio assuré l'emporte sur tout, puis les valeurs gagnantes à nombre d'exemplaires égal
+            int score = known * 4 + (isWinningValue(game, me, value) ? 2 : 0) + (value == SEVEN ? 1 : 0);
+            if (score > bestScore) {
+                bestScore = score;
+                bestValue = value;
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * Compte les exemplaires d'une valeur que le joueur peut révéler à coup sûr, les uns après les autres.
+     * Les cartes d'une même valeur étant contiguës dans une main triée, tous les exemplaires situés
+     * à une extrémité connue sont accessibles.
+     */
+    private static int countKnownCopies(GameView game, int me, int value) {
+        long revealedMask = game.getRevealedMask();
+        long valueMask = valueMask(value);
+        BeliefState belief = game.getBeliefState();
+
+        int count = Long.bitCount(game.getCenterMask() & game.getSeenMask() & valueMask & ~revealedMask);
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            if (p == me) {
+                long available = game.getHandMask(p) & ~revealedMask;
+                if (available != 0L && (valueOf(Long.numberOfTrailingZeros(available)) == value
+                        || valueOf(63 - Long.numberOfLeadingZeros(available)) == value)) {
+                    count += Long.bitCount(available & valueMask);
+                }
+            } else if (knownSmallestValue(belief, p, revealedMask) == value
+                    || knownLargestValue(belief, p, revealedMask) == value) {
+                count += Long.bitCount(belief.getSeenCards(p) & valueMask & ~revealedMask);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Une action révélant un exemplaire connu et accessible de la valeur, ou null s'il n'y en a pas.
+     */
+    private static Action revealKnownCopy(GameView game, int me, int value) {
+        long revealedMask = game.getRevealedMask();
+        BeliefState belief = game.getBeliefState();
+
+        // Ses propres cartes d'abord, puis le centre, puis les adversaires
+        long mine = game.getHandMask(me) & ~revealedMask;
+        if (mine != 0L) {
+            if (valueOf(Long.numberOfTrailingZeros(mine)) == value) {
+                return Action.revealSmallest(me);
+            }
+            if (valueOf(63 - Long.numberOfLeadingZeros(mine)) == value) {
+                return Action.revealLargest(me);
+            }
+        }
+        long center = game.getCenterMask() & game.getSeenMask() & valueMask(value) & ~revealedMask;
+        if (center != 0L) {
+            return Action.revealCenter(game.getCenterIndex(Long.numberOfTrailingZeros(center)));
+        }
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            if (p == me) {
+                continue;
+            }
+            if (knownSmallestValue(belief, p, revealedMask) == value) {
+                return Action.revealSmallest(p);
+            }
+            if (knownLargestValue(belief, p, revealedMask) == value) {
+                return Action.revealLargest(p);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tente de trouver un exemplaire inconnu de la valeur : extrémité inconnue d'un adversaire
+     * (la plus petite carte pour une petite valeur, la plus grande sinon) ou carte non vue du centre.
+     * @return L'action choisie, ou null si aucune source plausible ne reste.
+     */
+    private static Action guessCopy(GameView game, int me, int value, RandomGenerator random) {
+        long revealedMask = game.getRevealedMask();
+        long seenMask = game.getSeenMask();
+        BeliefState belief = game.getBeliefState();
+        boolean lowValue = value <= MIDDLE_VALUE;
+
+        Action best = null;
+        int bestUnseen = 0;
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            // Les extrémités connues ne sont pas la valeur visée (voir revealKnownCopy) : seule une carte inconnue peut l'être
+            if (p == me || (belief.getPossibleValues(p) & (1 << value)) == 0) {
+                continue;
+            }
+            int smallest = knownSmallestValue(belief, p, revealedMask);
+            int largest = knownLargestValue(belief, p, revealedMask);
+            // Une extrémité connue encadre la main : la valeur visée peut être exclue
+            if ((smallest != 0 && smallest > value) || (largest != 0 && largest < value)) {
+                continue;
+            }
+            Action candidate;
+            if (smallest == 0 && (lowValue || largest != 0)) {
+                candidate = Action.revealSmallest(p);
+            } else if (largest == 0) {
+                candidate = Action.revealLargest(p);
+            } else {
+                continue;
+            }
+            int unseen = belief.getUnknownCount(p);
+            if (unseen > bestUnseen) {
+                bestUnseen = unseen;
+                best = candidate;
+            }
+        }
+
+        // Les valeurs extrêmes se trouvent surtout aux extrémités des mains, les autres au centre
+        long unseenCenter = game.getCenterMask() & ~seenMask & ~revealedMask;
+        int distance = Math.abs(2 * value - (NUM_VALUES + 1));
+        if (unseenCenter != 0L && (best == null || distance < MIDDLE_VALUE)) {
+            int skip = random.nextInt(Long.bitCount(unseenCenter));
+            for (; skip > 0; skip--) {
+                unseenCenter &= unseenCenter - 1;
+            }
+            return Action.revealCenter(game.getCenterIndex(Long.numberOfTrailingZeros(unseenCenter)));
+        }
+        return best;
+    }
+
+    /**
+     * Déduit de ce que tous savent la valeur de la plus petite carte disponible d'un adversaire :
+     * sa plus petite carte vue, si aucune de ses cartes inconnues ne peut être plus petite,
+     * ou la seule valeur encore possible de ses cartes inconnues, si elle est plus petite.
+     *
+     * @param revealedMask Les cartes révélées pendant le tour, qui ne sont plus disponibles.
+     * @return La valeur, ou 0 si elle n'est pas connue de tous.
+     */
+    private static int knownSmallestValue(BeliefState belief, int playerIndex, long revealedMask) {
+        long seen = belief.getSeenCards(playerIndex) & ~revealedMask;
+        int possible = belief.getPossibleValues(playerIndex);
+        int seenValue = seen == 0L ? 0 : valueOf(Long.numberOfTrailingZeros(seen));
+        if (possible == 0) {
+            return seenValue;
+        }
+        int lowestPossible = Integer.numberOfTrailingZeros(possible);
+        if (seenValue != 0 && seenValue <= lowestPossible) {
+            return seenValue;
+        }
+        return Integer.bitCount(possible) == 1 ? lowestPossible : 0;
+    }
+
+    /**
+     * Équivalent de {@link #knownSmallestValue} pour la plus grande carte disponible d'un adversaire.
+     * @return La valeur, ou 0 si elle n'est pas connue de tous.
+     */
+    private static int knownLargestValue(BeliefState belief, int playerIndex, long revealedMask) {
+        long seen = belief.getSeenCards(playerIndex) & ~revealedMask;
+        int possible = belief.getPossibleValues(playerIndex);
+        int seenValue = seen == 0L ? 0 : valueOf(63 - Long.numberOfLeadingZeros(seen));
+        if (possible == 0) {
+            return seenValue;
+        }
+        int highestPossible = 31 - Integer.numberOfLeadingZeros(possible);
+        if (seenValue >= highestPossible) {
+            return seenValue;
+        }
+        return Integer.bitCount(possible) == 1 ? highestPossible : 0;
+    }
+
+    /**
+     * Choisit un échange pour le prochain joueur attendu, en connaissant la main de son coéquipier.
+     */
+    private static Action chooseExchange(GameView game) {
+        int initiatorIndex = game.getNextPendingSwapPlayerIndex();
+        return chooseExchange(game, initiatorIndex, game.getHandMask(initiatorIndex));
+    }
+
+    /**
+     * Choisit la carte que rend un coéquipier en réponse à celle que l'initiateur de l'échange lui donne,
+     * par exemple lorsqu'un joueur humain a déjà choisi sa carte : seules les paires qui donnent cette carte
+     * sont évaluées, pour regrouper les exemplaires autour de la carte réellement reçue.
+     *
+     * @param game La partie en cours, en phase d'échange.
+     * @param initiatorIndex L'index du joueur qui a initié l'échange.
+     * @param giveCardId La carte qu'il donne.
+     * @return L'échange complet, avec la carte rendue par le coéquipier.
+     * @throws IllegalArgumentException Si la carte n'est pas dans la main de l'initiateur.
+     */
+    public Action chooseReply(GameView game, int initiatorIndex, int giveCardId) {
+        long give = 1L << giveCardId;
+        if ((game.getHandMask(initiatorIndex) & give) == 0L) {
+            throw new IllegalArgumentException("La carte donnée n'est pas dans la main du joueur.");
+        }
+        return chooseExchange(game, initiatorIndex, give);
+    }
+
+    /**
+     * Évalue chaque paire (carte donnée parmi {@code gives}, carte reçue de la main du coéquipier)
+     * par {@link #evaluateTeamHands} et retient la meilleure répartition des deux mains
+     * (au plus 12 x 12 paires, sans allocation).
+     *
+     * @param gives Les cartes que l'initiateur peut donner, sous-ensemble non vide de sa main.
+     */
+    private static Action chooseExchange(GameView game, int initiatorIndex, long gives) {
+        int teammateIndex = game.getTeammateIndex(initiatorIndex);
+        long mine = game.getHandMask(initiatorIndex);
+        long theirs = game.getHandMask(teammateIndex);
+        boolean isFirst = initiatorIndex < teammateIndex;
+        int initiatorTrios = game.getTrioMask(initiatorIndex);
+        int teammateTrios = game.getTrioMask(teammateIndex);
+
+        int giveCardId = -1;
+        int receiveCardId = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for (; gives != 0L; gives &= gives - 1) {
+            long give = gives & -gives;
+            for (long receives = theirs; receives != 0L; receives &= receives - 1) {
+                long receive = receives & -receives;
+                int score = evaluateTeamHands(game.isPiquant(), isFirst, initiatorTrios, teammateTrios,
+                        mine ^ give ^ receive, theirs ^ receive ^ give);
+                if (score > bestScore) {
+                    bestScore = score;
+                    giveCardId = Long.numberOfTrailingZeros(give);
+                    receiveCardId = Long.numberOfTrailingZeros(receive);
+                }
+            }
+        }
+        return Action.exchange(initiatorIndex, giveCardId, receiveCardId);
+    }
+
+    /**
+     * Évalue la répartition des cartes entre deux coéquipiers : les exemplaires d'une même valeur
+     * doivent être regroupés dans une seule main (carré du nombre d'exemplaires), de préférence à une extrémité
+     * de cette main, où ils se révèlent sans risque. Les valeurs dont le trio ferait gagner l'équipe,
+     * formé par le coéquipier qui en détient le plus d'exemplaires, comptent triple.
+     */
+    private static int evaluateTeamHands(boolean isPiquant, boolean isFirst, int myTrios, int theirTrios,
+                                         long mine, long theirs) {
+        int score = 0;
+        for (int value = 1; value <= NUM_VALUES; value++) {
+            long valueMask = valueMask(value);
+            int inMine = Long.bitCount(mine & valueMask);
+            int inTheirs = Long.bitCount(theirs & valueMask);
+            if (inMine + inTheirs == 0) {
+                continue;
+            }
+            boolean winning = inMine >= inTheirs
+                    ? isWinningValue(isPiquant, isFirst, myTrios, theirTrios, value)
+                    : isWinningValue(isPiquant, !isFirst, theirTrios, myTrios, value);
+            int weight = winning ? 3 : 1;
+            long holder = inMine >= inTheirs ? mine : theirs;
+            int copies = Math.max(inMine, inTheirs);
+            score += weight * copies * copies;
+            if (copies >= 2 && (valueOf(Long.numberOfTrailingZeros(holder)) == value
+                    || valueOf(63 - Long.numberOfLeadingZeros(holder)) == value)) {
+                score += weight;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * @return Vrai si un trio de cette valeur ferait gagner le joueur (ou son équipe).
+     */
+    private static boolean isWinningValue(GameView game, int me, int value) {
+        int teammate = game.getTeammateIndex(me);
+        int teammateTrios = teammate >= 0 ? game.getTrioMask(teammate) : 0;
+        return isWinningValue(game.isPiquant(), me < teammate, game.getTrioMask(me), teammateTrios, value);
+    }
+
+    /**
+     * @param isFirst Vrai si le joueur range ses trios avant ceux de son coéquipier (mode équipe, plus petit index).
+     * @param myTrios Les trios déjà formés par le joueur, bit {@code 1 << valeur}.
+     * @param theirTrios Ceux de son coéquipier (0 hors mode équipe).
+     * @return Vrai si un trio de cette valeur formé par le joueur serait gagnant (voir {@link CompletedTrios}).
+     */
+    private static boolean isWinningValue(boolean isPiquant, boolean isFirst, int myTrios, int theirTrios, int value) {
+        if (value == SEVEN) {
+            return true;
+        }
+        if (!isPiquant) {
+            return Integer.bitCount(myTrios | theirTrios | (1 << value)) >= 3;
+        }
+        return isFirst ? Trios.isLinked(myTrios, theirTrios, value) : Trios.isLinked(myTrios | theirTrios, 0, value);
+    }
+
+    private static int valueOf(int cardId) {
+        return cardId / Card.COPIES_PER_VALUE + 1;
+    }
+
+    /**
+     * @return Le masque des identifiants des trois exemplaires d'une valeur.
+     */
+    private static long valueMask(int value) {
+        return 7L << ((value - 1) * Card.COPIES_PER_VALUE);
+    }
+}
@@ -1,20 +1,33 @@
 package fr.utbm.ap4b.model;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Représente un joueur contrôlé par l'ordinateur (IA).
- * Ses actions sont automatisées.
+ * Ses actions sont automatisées : elles sont choisies par une stratégie ({@link Policy}),
+ * par défaut une {@link HeuristicPolicy}.
  */
 public class IA implements Actor {
 
     private final String name;
     private final int playerIndex;
     private ActorHand hand;
+    private Policy policy;
 
     public IA(String name, int playerIndex) {
+        this(name, playerIndex, new HeuristicPolicy());
+    }
+
+    /**
+     * @param name Le nom de l'IA.
+     * @param playerIndex L'index du joueur dans la partie.
+     * @param policy La stratégie qui décide de ses actions.
+     */
+    public IA(String name, int playerIndex, Policy policy) {
         this.name = name;
         this.playerIndex = playerIndex;
+        this.policy = Objects.requireNonNull(policy, "La stratégie ne peut pas être nulle");
         this.hand = new ActorHand(); // Initialise avec une main vide
     }
 
@@ -37,4 +50,13 @@ public class IA implements Actor {
     public void setupHand(List<Card> initialCards) {
         this.hand = new ActorHand(initialCards);
     }
+
+    @Override
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = Objects.requireNonNull(policy, "La stratégie ne peut pas être nulle");
+    }
 }
\ No newline at end of file
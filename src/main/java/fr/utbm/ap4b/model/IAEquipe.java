@@ -0,0 +1,37 @@
+package fr.utbm.ap4b.model;
+
+import java.util.Objects;
+
+/**
+ * Représente un joueur contrôlé par l'ordinateur (IA) qui fait partie d'une équipe.
+ * Il se comporte comme un {@link JoueurEquipe} (coéquipier, échanges), mais ses actions,
+ * y compris le choix des cartes lors des phases d'échange, sont décidées par une stratégie ({@link Policy}),
+ * par défaut une {@link HeuristicPolicy}.
+ */
+public class IAEquipe extends JoueurEquipe {
+
+    private Policy policy;
+
+    public IAEquipe(String name, int playerIndex) {
+        this(name, playerIndex, new HeuristicPolicy());
+    }
+
+    /**
+     * @param name Le nom de l'IA.
+     * @param playerIndex L'index du joueur dans la partie.
+     * @param policy La stratégie qui décide de ses actions.
+     */
+    public IAEquipe(String name, int playerIndex, Policy policy) {
+        super(name, playerIndex);
+        this.policy = Objects.requireNonNull(policy, "La stratégie ne peut pas être nulle");
+    }
+
+    @Override
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = Objects.requireNonNull(policy, "La stratégie ne peut pas être nulle");
+    }
+}
@@ -0,0 +1,473 @@
+package fr.utbm.ap4b.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.random.RandomGenerator;
+
+/**
+ * Stratégie de recherche arborescente Monte-Carlo à ensembles d'information (ISMCTS).
+ * <p>
+ * Le joueur ne connaît pas les cartes cachées : à chaque itération, les cartes qu'il n'a pas vues sont
+ * redistribuées au hasard de façon compatible avec ce qui a été révélé ({@link Game#determinize(int, RandomGenerator)}),
+ * puis la recherche descend dans un arbre commun à toutes ces distributions. Les nœuds de décision sont indexés
+ * par action (plus petite ou plus grande carte d'un joueur, position d'une carte du centre), ce qui a le même sens
+ * quelle que soit la distribution tirée. Une révélation est un nœud de hasard : ses enfants sont indexés par la valeur
+ * révélée, que tous les joueurs voient, de sorte que la décision suivante dépend de ce qui vient d'être montré
+ * (l'arbre suit les ensembles d'information des joueurs au lieu de ne retenir que la suite des actions).
+ * La sélection utilise la formule UCB1 en comptant, pour chaque action, le nombre de visites de son parent
+ * où elle était jouable, plus un biais progressif vers l'action que jouerait la {@link HeuristicPolicy} ; celle-ci
+ * termine aussi les parties. Sans ce biais, quelques milliers d'itérations réparties sur une quinzaine d'actions
+ * donnent des statistiques trop bruitées et la recherche joue moins bien que l'heuristique qu'elle simule.
+ * <p>
+ * La recherche est parallélisée à la racine : chaque thread développe son propre arbre sur sa propre copie
+ * de la partie, puis les visites des actions de la racine sont additionnées. Les phases d'échange
+ * sont laissées à l'heuristique.
+ * <p>
+ * Les issues des parties simulées sont mémorisées dans une {@link TranspositionTable} commune à tous les threads,
+ * indexée par la position (distribution tirée comprise) atteinte au bout de l'arbre : une position déjà simulée
+ * assez souvent, y compris par un autre ordre de révélations ou lors d'une décision précédente, n'est plus simulée
+ * et son issue est tirée parmi celles déjà observées. Une {@link Tablebase} éventuelle donne directement l'issue
+ * des finales qu'elle couvre. La stratégie peut être partagée entre threads. Si le thread appelant est interrompu,
+ * toutes les recherches s'arrêtent et l'action la plus visitée jusque-là est renvoyée.
+ */
+public class IsmctsPolicy implements Policy {
+
+    /**
+     * Budget de réflexion par défaut, en millisecondes.
+     */
+    public static final long DEFAULT_BUDGET_MILLIS = 200;
+
+    /**
+     * Nombre d'entrées par défaut de la table de transposition (16 octets chacune).
+     */
+    public static final int DEFAULT_TABLE_CAPACITY = 1 << 20;
+
+    private static final double EXPLORATION = 0.7;
+
+    /**
+     * Bonus de sélection de l'action que jouerait l'heuristique, divisé par le nombre de visites (biais progressif) :
+     * il domine tant que les statistiques sont trop bruitées pour départager les actions, puis s'efface.
+     */
+    private static final double PROGRESSIVE_BIAS = 10.0;
+
+    /**
+     * Nombre maximal d'actions d'une partie simulée (au-delà, elle est comptée comme perdue pour tous).
+     */
+    private static final int MAX_ROLLOUT_ACTIONS = 2_000;
+
+    /**
+     * Emplacements des enfants d'un nœud : le code de la révélation ({@link LegalActions}),
+     * plus petite carte de chaque joueur, plus grande carte, puis positions du centre.
+     */
+    private static final int ACTION_SLOTS = LegalActions.END_TURN;
+
+    /**
+     * Emplacements des ensembles d'information qui suivent une révélation, indexés par la valeur révélée (1 à 12).
+     */
+    private static final int VALUE_SLOTS = Trios.values().length + 1;
+
+    /**
+     * Nombre d'issues observées à partir duquel une position n'est plus simulée.
+     */
+    private static final int MIN_CACHED_OUTCOMES = 16;
+
+    // Issues mémorisées : nombre de victoires de chaque camp sur 10 bits
+    private static final int OUTCOME_BITS = 10;
+    private static final int MAX_OUTCOME_COUNT = (1 << OUTCOME_BITS) - 1;
+
+    private static final HeuristicPolicy HEURISTIC = new HeuristicPolicy();
+
+    private final long budgetMillis;
+    private final int parallelism;
+    private final long maxIterations;
+    private final TranspositionTable table;
+    private final Tablebase tablebase;
+
+    /**
+     * Construit une stratégie utilisant le budget par défaut et tous les cœurs disponibles.
+     */
+    public IsmctsPolicy() {
+        this(DEFAULT_BUDGET_MILLIS);
+    }
+
+    /**
+     * Construit une stratégie utilisant tous les cœurs disponibles.
+     * @param budgetMillis Le temps de réflexion par décision, en millisecondes.
+     */
+    public IsmctsPolicy(long budgetMillis) {
+        this(budgetMillis, Runtime.getRuntime().availableProcessors(), 0);
+    }
+
+    /**
+     * @param budgetMillis Le temps de réflexion par décision, en millisecondes.
+     * @param parallelism Le nombre d'arbres développés en parallèle.
+     * @param maxIterations Le nombre maximal d'itérations par décision (réparties entre les arbres), 0 pour ne pas le limiter.
+     * @throws IllegalArgumentException Si un paramètre est invalide.
+     */
+    public IsmctsPolicy(long budgetMillis, int parallelism, long maxIterations) {
+        this(budgetMillis, parallelism, maxIterations, new TranspositionTable(DEFAULT_TABLE_CAPACITY));
+    }
+
+    /**
+     * @param budgetMillis Le temps de réflexion par décision, en millisecondes.
+     * @param parallelism Le nombre d'arbres développés en parallèle.
+     * @param maxIterations Le nombre maximal d'itérations par décision (réparties entre les arbres), 0 pour ne pas le limiter.
+     * @param table La table des issues simulées, éventuellement partagée avec d'autres stratégies, ou null pour s'en passer.
+     * @throws IllegalArgumentException Si un paramètre est invalide.
+     */
+    public IsmctsPolicy(long budgetMillis, int parallelism, long maxIterations, TranspositionTable table) {
+        this(budgetMillis, parallelism, maxIterations, table, null);
+    }
+
+    /**
+     * @param budgetMillis Le temps de réflexion par décision, en millisecondes.
+     * @param parallelism Le nombre d'arbres développés en parallèle.
+     * @param maxIterations Le nombre maximal d'itérations par décision (réparties entre les arbres), 0 pour ne pas le limiter.
+     * @param table La table des issues simulées, éventuellement partagée avec d'autres stratégies, ou null pour s'en passer.
+     * @param tablebase La table de finales qui termine les parties simulées dès qu'elle les couvre, ou null.
+     * @throws IllegalArgumentException Si un paramètre est invalide.
+     */
+    public IsmctsPolicy(long budgetMillis, int parallelism, long maxIterations, TranspositionTable table,
+                        Tablebase tablebase) {
+        if (budgetMillis < 0) {
+            throw new IllegalArgumentException("Le budget de réflexion ne peut pas être négatif.");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Le nombre de threads doit être au moins 1.");
+        }
+        if (maxIterations < 0) {
+            throw new IllegalArgumentException("Le nombre d'itérations ne peut pas être négatif.");
+        }
+        this.budgetMillis = budgetMillis;
+        this.parallelism = parallelism;
+        this.maxIterations = maxIterations;
+        this.table = table;
+        this.tablebase = tablebase;
+    }
+
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * @return La table des issues simulées, ou null si la stratégie n'en utilise pas.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return La table de finales utilisée, ou null.
+     */
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    @Override
+    public Action chooseAction(GameView game, RandomGenerator random) {
+        if (game.getCurrentPhase() != Game.GamePhase.PLAYING || !(game instanceof Game)) {
+            return HEURISTIC.chooseAction(game, random);
+        }
+        if (game.canEndTurn()) {
+            return Action.endTurn();
+        }
+
+        // Les copies sont faites par l'appelant : la partie d'origine n'est jamais lue par les autres threads
+        Game root = (Game) game;
+        Thread caller = Thread.currentThread();
+        long start = System.nanoTime();
+        long budgetNanos = budgetMillis >= Long.MAX_VALUE / 1_000_000L ? Long.MAX_VALUE : budgetMillis * 1_000_000L;
+        List<Search> searches = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            long iterations = maxIterations == 0 ? Long.MAX_VALUE
+                    : maxIterations / parallelism + (i < maxIterations % parallelism ? 1 : 0);
+            searches.add(new Search(root.copy(), root.getPlayerTurn(), new SplittableRandom(random.nextLong()),
+                    start, budgetNanos, caller, iterations, table, tablebase));
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(parallelism - 1);
+        for (int i = 1; i < parallelism; i++) {
+            tasks.add(ForkJoinPool.commonPool().submit(searches.get(i)));
+        }
+        searches.get(0).run();
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        // Action la plus visitée, toutes recherches confondues
+        long[] visits = new long[ACTION_SLOTS];
+        for (Search search : searches) {
+            search.addRootVisits(visits);
+        }
+        int best = -1;
+        for (int slot = 0; slot < ACTION_SLOTS; slot++) {
+            if (visits[slot] > 0 && (best < 0 || visits[slot] > visits[best])) {
+                best = slot;
+            }
+        }
+        return best < 0 ? HEURISTIC.chooseAction(game, random) : LegalActions.toAction(best);
+    }
+
+    /**
+     * @return Le camp d'un joueur : son index, ou celui de son équipe en mode équipe
+     * (même numérotation que {@link CompletedTrios#getWinnerIndex()}).
+     */
+    private static int sideOf(Game game, int playerIndex) {
+        return game.isTeamMode() ? playerIndex % (game.getNumPlayers() / 2) : playerIndex;
+    }
+
+    /**
+     * Nœud de l'arbre : une révélation jouée par un joueur donné depuis l'ensemble d'information du parent.
+     * Ses enfants sont les ensembles d'information qui suivent, un par valeur révélée ; ceux-ci portent
+     * les décisions suivantes. La racine est un ensemble d'information.
+     */
+    private static final class Node {
+
+        private final int mover;
+        private Node[] children;
+        private Node[] outcomes;
+        private int visits;
+        private int availability;
+        private int wins;
+
+        Node(int mover) {
+            this.mover = mover;
+        }
+
+        Node child(int slot) {
+            return children == null ? null : children[slot];
+        }
+
+        /**
+         * @param value La valeur révélée par l'action de ce nœud.
+         * @return L'ensemble d'information atteint, créé à la première visite.
+         */
+        Node outcome(int value) {
+            if (outcomes == null) {
+                outcomes = new Node[VALUE_SLOTS];
+            }
+            Node next = outcomes[value];
+            if (next == null) {
+                next = new Node(-1);
+                outcomes[value] = next;
+            }
+            return next;
+        }
+
+        Node addChild(int slot, int childMover) {
+            if (children == null) {
+                children = new Node[ACTION_SLOTS];
+            }
+            Node child = new Node(childMover);
+            children[slot] = child;
+            return child;
+        }
+
+        double ucb(double exploration) {
+            return (double) wins / visits + exploration * Math.sqrt(Math.log(availability) / visits);
+        }
+    }
+
+    /**
+     * Recherche confiée à un thread, avec sa propre copie de la partie et son propre arbre.
+     */
+    private static final class Search implements Runnable {
+
+        private final Game base;
+        private final int observer;
+        private final RandomGenerator random;
+        private final long start;
+        private final long budgetNanos;
+        private final Thread caller;
+        private final long iterations;
+        private final TranspositionTable table;
+        private final Tablebase tablebase;
+        private final Node root = new Node(-1);
+        private final int[] slots = new int[LegalActions.MAX_ACTIONS];
+        private final Node[] path = new Node[MAX_ROLLOUT_ACTIONS + 1];
+
+        Search(Game base, int observer, RandomGenerator random, long start, long budgetNanos, Thread caller,
+               long iterations, TranspositionTable table, Tablebase tablebase) {
+            this.base = base;
+            this.observer = observer;
+            this.random = random;
+            this.start = start;
+            this.budgetNanos = budgetNanos;
+            this.caller = caller;
+            this.iterations = iterations;
+            this.table = table;
+            this.tablebase = tablebase;
+        }
+
+        @Override
+        public void run() {
+            // Au moins une itération, même avec un budget nul ; arrêt anticipé si l'appelant est interrompu
+            for (long i = 0; i < iterations
+                    && (i == 0 || (System.nanoTime() - start < budgetNanos && !caller.isInterrupted())); i++) {
+                iterate();
+            }
+        }
+
+        void addRootVisits(long[] visits) {
+            for (int slot = 0; slot < ACTION_SLOTS; slot++) {
+                Node child = root.child(slot);
+                if (child != null) {
+                    visits[slot] += child.visits;
+                }
+            }
+        }
+
+        private void iterate() {
+            Game game = base.determinize(observer, random);
+            int depth = 0;
+            int actions = 0;
+            Node node = root;
+            boolean expanded = false;
+
+            // Sélection puis expansion d'un nœud
+            while (!expanded && !game.isGameEnded() && actions < MAX_ROLLOUT_ACTIONS) {
+                actions++;
+                if (game.getCurrentPhase() != Game.GamePhase.PLAYING) {
+                    game.play(HEURISTIC.chooseAction(game, random));
+                    continue;
+                }
+                if (game.canEndTurn()) {
+                    game.play(Action.endTurn());
+                    continue;
+                }
+                int mover = game.getPlayerTurn();
+                int count = LegalActions.generate(game, slots);
+                // Action de l'heuristique : développée en premier, puis favorisée par le biais progressif
+                int preferred = LegalActions.encode(HEURISTIC.chooseAction(game, random));
+                Node selected = null;
+                int selectedSlot = -1;
+                int untried = 0;
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < count; i++) {
+                    Node child = node.child(slots[i]);
+                    if (child == null) {
+                        // Tirage uniforme parmi les actions jamais essayées (échantillonnage par réservoir)
+                        untried++;
+                        if (random.nextInt(untried) == 0) {
+                            selectedSlot = slots[i];
+                        }
+                        continue;
+                    }
+                    child.availability++;
+                }
+                if (untried > 0 && node.child(preferred) == null) {
+                    selectedSlot = preferred;
+                }
+                if (untried > 0) {
+                    selected = node.addChild(selectedSlot, mover);
+                    selected.availability++;
+                    expanded = true;
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        Node child = node.child(slots[i]);
+                        double score = child.ucb(EXPLORATION)
+                                + (slots[i] == preferred ? PROGRESSIVE_BIAS / (child.visits + 1) : 0.0);
+                        if (score > bestScore) {
+                            bestScore = score;
+                            selected = child;
+                            selectedSlot = slots[i];
+                        }
+                    }
+                }
+                game.play(LegalActions.toAction(selectedSlot));
+                path[depth++] = selected;
+                if (!expanded) {
+                    // La suite dépend de la valeur révélée, visible de tous
+                    node = selected.outcome(game.getRevealedCardId(game.getRevealedCount() - 1) / Card.COPIES_PER_VALUE + 1);
+                }
+            }
+
+            int winnerSide = game.isGameEnded() ? game.getCompletedTrios().getWinnerIndex() : simulate(game, actions);
+
+            // Rétropropagation du point de vue de chaque joueur ayant choisi une action
+            for (int i = 0; i < depth; i++) {
+                Node visited = path[i];
+                visited.visits++;
+                if (winnerSide >= 0 && sideOf(game, visited.mover) == winnerSide) {
+                    visited.wins++;
+                }
+            }
+        }
+
+        /**
+         * Termine la partie avec l'heuristique, ou tire son issue parmi celles déjà observées depuis cette position.
+         * @return Le camp gagnant, ou -1 si la partie n'a pas abouti.
+         */
+        private int simulate(Game game, int actions) {
+            long key = game.getZobristKey();
+            long outcomes = table == null ? 0L : table.get(key, 0L);
+            int total = 0;
+            for (int side = 0; side < game.getNumPlayers(); side++) {
+                total += outcomeCount(outcomes, side);
+            }
+            if (total >= MIN_CACHED_OUTCOMES) {
+                int draw = random.nextInt(total);
+                for (int side = 0; ; side++) {
+                    draw -= outcomeCount(outcomes, side);
+                    if (draw < 0) {
+                        return side;
+                    }
+                }
+            }
+
+            int winnerSide = -1;
+            while (actions < MAX_ROLLOUT_ACTIONS) {
+                if (game.isGameEnded()) {
+                    winnerSide = game.getCompletedTrios().getWinnerIndex();
+                    break;
+                }
+                // Une finale couverte par la table n'a pas besoin d'être jouée
+                if (tablebase != null && game.getRevealedCount() == 0) {
+                    int outcome = tablebase.lookup(game);
+                    if (outcome != Tablebase.UNKNOWN) {
+                        winnerSide = outcome == Tablebase.DRAW ? -1 : outcome;
+                        break;
+                    }
+                }
+                actions++;
+                game.play(HEURISTIC.chooseAction(game, random));
+            }
+            if (winnerSide < 0) {
+                return -1;
+            }
+            if (table != null) {
+                table.put(key, addOutcome(outcomes, winnerSide, game.getNumPlayers()));
+            }
+            return winnerSide;
+        }
+    }
+
+    private static int outcomeCount(long outcomes, int side) {
+        return (int) (outcomes >>> (side * OUTCOME_BITS)) & MAX_OUTCOME_COUNT;
+    }
+
+    /**
+     * Ajoute une victoire d'un camp aux issues mémorisées ; les compteurs sont divisés par deux avant de déborder.
+     */
+    private static long addOutcome(long outcomes, int winnerSide, int numSides) {
+        if (outcomeCount(outcomes, winnerSide) == MAX_OUTCOME_COUNT) {
+            long halved = 0L;
+            for (int side = 0; side < numSides; side++) {
+                halved |= (long) (outcomeCount(outcomes, side) >>> 1) << (side * OUTCOME_BITS);
+            }
+            outcomes = halved;
+        }
+        return outcomes + (1L << (winnerSide * OUTCOME_BITS));
+    }
+}
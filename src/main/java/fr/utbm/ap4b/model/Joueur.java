@@ -15,7 +15,6 @@ public class Joueur implements Actor {
     public Joueur(String name, int playerIndex) {
         this.name = name;
         this.playerIndex = playerIndex;
-        System.out.println("Joueur créé : " + playerIndex + "");
         this.hand = new ActorHand(); // Initialise avec une main vide
     }
 
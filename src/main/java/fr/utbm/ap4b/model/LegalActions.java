@@ -0,0 +1,224 @@
+package fr.utbm.ap4b.model;
+
+/**
+ * Générateur des actions autorisées dans l'état courant d'une partie, codées par des entiers.
+ * <p>
+ * Codage des actions :
+ * <ul>
+ *     <li>{@code p} : révéler la plus petite carte disponible du joueur {@code p} ;</li>
+ *     <li>{@link #REVEAL_LARGEST_BASE} {@code + p} : révéler sa plus grande carte disponible ;</li>
+ *     <li>{@link #REVEAL_CENTER_BASE} {@code + k} : révéler la k-ième carte restante du centre ;</li>
+ *     <li>{@link #END_TURN} : terminer le tour ;</li>
+ *     <li>{@link #EXCHANGE_BASE} {@code + (initiateur * 36 + carte donnée) * 36 + carte reçue} : échanger.</li>
+ * </ul>
+ * Les révélations et la fin de tour ont un code inférieur à 64 : leur ensemble tient dans un masque de bits
+ * ({@link #revealMask(GameView)}). La génération ne fait que des opérations sur des masques et n'alloue rien ;
+ * {@link #toAction(int)} renvoie les instances partagées de {@link Action} (hors échanges).
+ */
+public final class LegalActions {
+
+    /**
+     * Nombre maximal de joueurs couvert par le codage.
+     */
+    public static final int MAX_PLAYERS = 6;
+
+    public static final int REVEAL_LARGEST_BASE = MAX_PLAYERS;
+    public static final int REVEAL_CENTER_BASE = 2 * MAX_PLAYERS;
+    public static final int END_TURN = REVEAL_CENTER_BASE + Card.DECK_SIZE;
+    public static final int EXCHANGE_BASE = END_TURN + 1;
+
+    /**
+     * Nombre maximal d'actions autorisées simultanément : taille suffisante du tableau passé à
+     * {@link #generate(GameView, int[])} (au plus 18 x 18 échanges, quand deux coéquipiers se partagent le jeu).
+     */
+    public static final int MAX_ACTIONS = Math.max(END_TURN + 1, (Card.DECK_SIZE / 2) * (Card.DECK_SIZE / 2));
+
+    private LegalActions() {
+    }
+
+    /**
+     * Écrit le code de chaque action autorisée dans le tableau fourni.
+     * Pendant le jeu, la fin de tour n'est autorisée que lorsqu'aucune révélation ne l'est (et inversement),
+     * et la plus grande carte d'un joueur n'est proposée que si elle diffère de sa plus petite ;
+     * pendant une phase d'échange, chaque équipe attendue apparaît une fois, initiée par son plus petit index.
+     *
+     * @param game La partie.
+     * @param codes Le tableau à remplir, d'au moins {@link #MAX_ACTIONS} cases.
+     * @return Le nombre d'actions écrites (0 si la partie est terminée).
+     */
+    public static int generate(GameView game, int[] codes) {
+        if (game.isGameEnded()) {
+            return 0;
+        }
+        if (game.getCurrentPhase() != Game.GamePhase.PLAYING) {
+            return generateExchanges(game, codes);
+        }
+        if (game.canEndTurn()) {
+            codes[0] = END_TURN;
+            return 1;
+        }
+        if (!game.canRevealCard()) {
+            return 0;
+        }
+        long revealedMask = game.getRevealedMask();
+        int count = 0;
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            long available = game.getHandMask(p) & ~revealedMask;
+            if (available != 0L) {
+                codes[count++] = p;
+                // La plus grande carte est distincte de la plus petite dès qu'il en reste deux
+                if ((available & (available - 1)) != 0L) {
+                    codes[count++] = REVEAL_LARGEST_BASE + p;
+                }
+            }
+        }
+        for (long center = centerRevealMask(game, revealedMask); center != 0L; center &= center - 1) {
+            codes[count++] = Long.numberOfTrailingZeros(center);
+        }
+        return count;
+    }
+
+    /**
+     * @return Le masque des révélations et de la fin de tour autorisées (bit {@code 1L << code}),
+     * 0 pendant une phase d'échange ou si la partie est terminée.
+     */
+    public static long revealMask(GameView game) {
+        if (game.isGameEnded() || game.getCurrentPhase() != Game.GamePhase.PLAYING) {
+            return 0L;
+        }
+        if (game.canEndTurn()) {
+            return 1L << END_TURN;
+        }
+        if (!game.canRevealCard()) {
+            return 0L;
+        }
+        long revealedMask = game.getRevealedMask();
+        long mask = 0L;
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            long available = game.getHandMask(p) & ~revealedMask;
+            if (available != 0L) {
+                mask |= 1L << p;
+                if ((available & (available - 1)) != 0L) {
+                    mask |= 1L << (REVEAL_LARGEST_BASE + p);
+                }
+            }
+        }
+        return mask | centerRevealMask(game, revealedMask);
+    }
+
+    /**
+     * Les cartes du centre occupent les positions 0 à n - 1 : toutes sont révélables sauf les (au plus trois)
+     * cartes déjà révélées, dont on ne calcule que la position.
+     * @return Le masque des codes de révélation du centre.
+     */
+    private static long centerRevealMask(GameView game, long revealedMask) {
+        long centerMask = game.getCenterMask();
+        long mask = ((1L << Long.bitCount(centerMask)) - 1) << REVEAL_CENTER_BASE;
+        for (long revealed = centerMask & revealedMask; revealed != 0L; revealed &= revealed - 1) {
+            mask &= ~(1L << (REVEAL_CENTER_BASE + game.getCenterIndex(Long.numberOfTrailingZeros(revealed))));
+        }
+        return mask;
+    }
+
+    /**
+     * @return Vrai si l'action codée est autorisée dans l'état courant. Contrairement à la génération,
+     * la plus grande carte d'un joueur à qui il n'en reste qu'une est acceptée (c'est aussi sa plus petite).
+     */
+    public static boolean isLegal(GameView game, int code) {
+        if (code < EXCHANGE_BASE) {
+            if (code >= REVEAL_LARGEST_BASE && code < REVEAL_CENTER_BASE) {
+                code -= REVEAL_LARGEST_BASE;
+            }
+            return code >= 0 && (revealMask(game) & (1L << code)) != 0L;
+        }
+        if (game.isGameEnded() || game.getCurrentPhase() == Game.GamePhase.PLAYING) {
+            return false;
+        }
+        int initiator = exchangeInitiator(code);
+        if (initiator >= game.getNumPlayers()) {
+            return false;
+        }
+        int teammate = game.getTeammateIndex(initiator);
+        return teammate >= 0 && (game.getPendingSwapMask() & (1 << initiator)) != 0
+                && (game.getHandMask(initiator) & (1L << exchangeGiveCardId(code))) != 0L
+                && (game.getHandMask(teammate) & (1L << exchangeReceiveCardId(code))) != 0L;
+    }
+
+    private static int generateExchanges(GameView game, int[] codes) {
+        int pending = game.getPendingSwapMask();
+        int count = 0;
+        for (int initiator = 0; initiator < game.getNumPlayers(); initiator++) {
+            int teammate = game.getTeammateIndex(initiator);
+            if ((pending & (1 << initiator)) == 0 || teammate < initiator) {
+                continue;
+            }
+            for (long gives = game.getHandMask(initiator); gives != 0L; gives &= gives - 1) {
+                int give = Long.numberOfTrailingZeros(gives);
+                for (long receives = game.getHandMask(teammate); receives != 0L; receives &= receives - 1) {
+                    codes[count++] = exchangeCode(initiator, give, Long.numberOfTrailingZeros(receives));
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Le code d'un échange.
+     */
+    public static int exchangeCode(int initiatorIndex, int giveCardId, int receiveCardId) {
+        return EXCHANGE_BASE + (initiatorIndex * Card.DECK_SIZE + giveCardId) * Card.DECK_SIZE + receiveCardId;
+    }
+
+    public static int exchangeInitiator(int code) {
+        return (code - EXCHANGE_BASE) / (Card.DECK_SIZE * Card.DECK_SIZE);
+    }
+
+    public static int exchangeGiveCardId(int code) {
+        return (code - EXCHANGE_BASE) / Card.DECK_SIZE % Card.DECK_SIZE;
+    }
+
+    public static int exchangeReceiveCardId(int code) {
+        return (code - EXCHANGE_BASE) % Card.DECK_SIZE;
+    }
+
+    /**
+     * @return Le code d'une action.
+     */
+    public static int encode(Action action) {
+        switch (action.getType()) {
+            case REVEAL_SMALLEST:
+                return action.getPlayerIndex();
+            case REVEAL_LARGEST:
+                return REVEAL_LARGEST_BASE + action.getPlayerIndex();
+            case REVEAL_CENTER:
+                return REVEAL_CENTER_BASE + action.getCenterIndex();
+            case END_TURN:
+                return END_TURN;
+            default:
+                return exchangeCode(action.getPlayerIndex(), action.getGiveCardId(), action.getReceiveCardId());
+        }
+    }
+
+    /**
+     * @return L'action correspondant à un code (instance partagée, sauf pour un échange).
+     * @throws IllegalArgumentException Si le code est négatif.
+     */
+    public static Action toAction(int code) {
+        if (code < 0) {
+            throw new IllegalArgumentException("Code d'action invalide : " + code);
+        }
+        if (code < REVEAL_LARGEST_BASE) {
+            return Action.revealSmallest(code);
+        }
+        if (code < REVEAL_CENTER_BASE) {
+            return Action.revealLargest(code - REVEAL_LARGEST_BASE);
+        }
+        if (code < END_TURN) {
+            return Action.revealCenter(code - REVEAL_CENTER_BASE);
+        }
+        if (code == END_TURN) {
+            return Action.endTurn();
+        }
+        return Action.exchange(exchangeInitiator(code), exchangeGiveCardId(code), exchangeReceiveCardId(code));
+    }
+}
@@ -0,0 +1,24 @@
+package fr.utbm.ap4b.model;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Stratégie de jeu : choisit l'action à jouer dans l'état courant d'une partie.
+ * Une stratégie ne voit la partie qu'au travers d'une vue en lecture seule et se contente de proposer
+ * une action ; elle peut ainsi être utilisée aussi bien par les simulations sans interface que par les IA.
+ */
+@FunctionalInterface
+public interface Policy {
+
+    /**
+     * Choisit l'action à jouer.
+     * En phase de jeu, l'action est celle du joueur courant ({@link GameView#getPlayerTurn()}) ;
+     * pendant une phase d'échange, c'est l'échange du prochain joueur attendu
+     * ({@link GameView#getNextPendingSwapPlayerIndex()}).
+     *
+     * @param game La partie en cours (démarrée et non terminée).
+     * @param random Le générateur à utiliser pour les choix aléatoires, afin que les parties soient reproductibles.
+     * @return Une action autorisée dans l'état courant.
+     */
+    Action chooseAction(GameView game, RandomGenerator random);
+}
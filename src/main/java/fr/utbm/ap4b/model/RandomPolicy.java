@@ -0,0 +1,51 @@
+package fr.utbm.ap4b.model;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Stratégie choisissant uniformément une action parmi les actions autorisées.
+ * Sert de référence pour les simulations : le tirage se fait dans le masque des actions autorisées
+ * ({@link LegalActions#revealMask(GameView)}), sans rien allouer (hors échanges).
+ */
+public class RandomPolicy implements Policy {
+
+    @Override
+    public Action chooseAction(GameView game, RandomGenerator random) {
+        if (game.getCurrentPhase() != Game.GamePhase.PLAYING) {
+            return chooseExchange(game, random);
+        }
+        // La fin de tour est imposée dès qu'aucune révélation n'est possible (elle est alors seule dans le masque)
+        long legal = LegalActions.revealMask(game);
+        return LegalActions.toAction(nthBit(legal, random.nextInt(Long.bitCount(legal))));
+    }
+
+    /**
+     * Choisit un échange aléatoire pour le prochain joueur attendu : une carte de sa main
+     * contre une carte de la main de son coéquipier.
+     */
+    private Action chooseExchange(GameView game, RandomGenerator random) {
+        int initiatorIndex = game.getNextPendingSwapPlayerIndex();
+        int teammateIndex = game.getTeammateIndex(initiatorIndex);
+        int giveCardId = randomCardId(game.getHandMask(initiatorIndex), random);
+        int receiveCardId = randomCardId(game.getHandMask(teammateIndex), random);
+        return Action.exchange(initiatorIndex, giveCardId, receiveCardId);
+    }
+
+    /**
+     * @return L'identifiant d'une carte tirée uniformément dans le masque (non vide).
+     */
+    private static int randomCardId(long mask, RandomGenerator random) {
+        return nthBit(mask, random.nextInt(Long.bitCount(mask)));
+    }
+
+    /**
+     * @return La position du n-ième bit du masque (en partant de 0, par position croissante) : l'identifiant
+     * d'une carte dans un masque de cartes, le code d'une action dans un masque d'actions.
+     */
+    private static int nthBit(long mask, int n) {
+        for (; n > 0; n--) {
+            mask &= mask - 1;
+        }
+        return Long.numberOfTrailingZeros(mask);
+    }
+}
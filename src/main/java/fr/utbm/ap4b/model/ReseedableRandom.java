@@ -0,0 +1,51 @@
+package fr.utbm.ap4b.model;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Générateur pseudo-aléatoire produisant exactement la même suite que {@code new SplittableRandom(seed)},
+ * mais dont la graine peut être changée sans allocation : une partie redistribuée à partir d'une graine
+ * (voir {@link Game#reset(long)}) mélange sa pioche comme une partie neuve créée avec la même graine.
+ * Comme {@link SplittableRandom}, il ne doit pas être partagé entre plusieurs threads.
+ */
+final class ReseedableRandom implements RandomGenerator {
+
+    // Incrément de SplittableRandom pour un générateur créé à partir d'une graine
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+
+    ReseedableRandom(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Repart de la graine fournie, comme un générateur neuf.
+     * @param seed La nouvelle graine.
+     */
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(seed += GOLDEN_GAMMA);
+    }
+
+    @Override
+    public int nextInt() {
+        return mix32(seed += GOLDEN_GAMMA);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+}
@@ -0,0 +1,179 @@
+package fr.utbm.ap4b.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Table de finales : issue exacte, en information complète, de chaque position de fin de partie
+ * numérotée par un {@link EndgameIndex}, lue dans un fichier projeté en mémoire.
+ * <p>
+ * L'issue est celle obtenue lorsque chaque joueur connaît toutes les cartes et joue au mieux pour son camp
+ * (victoire de son camp, sinon partie bloquée, sinon indifférent). Elle sert par exemple à terminer
+ * immédiatement les parties simulées d'une recherche sur une distribution tirée des cartes cachées.
+ * La table ne dépend que du nombre de joueurs et du mode équipe : les modes normal et piquant la partagent,
+ * leurs règles de victoire étant prises en compte lors du calcul du numéro de la position.
+ * <p>
+ * Format du fichier (ordre des octets gros-boutiste) :
+ * <ul>
+ *     <li>8 octets : {@link #MAGIC} ;</li>
+ *     <li>1 octet : nombre de joueurs, 1 octet : mode équipe (0 ou 1), 1 octet : nombre maximal de valeurs
+ *     restantes, 1 octet réservé ;</li>
+ *     <li>4 octets : nombre de tranches de calcul, puis un octet par tranche (1 si elle est calculée),
+ *     ce qui permet de reprendre une génération interrompue ;</li>
+ *     <li>à partir de {@link #dataStart(int)} : l'issue de chaque position sur 4 bits, deux positions par octet
+ *     (position paire dans les bits de poids faible).</li>
+ * </ul>
+ * Les issues valent 0 pour une position non calculée, 1 + camp gagnant, ou {@link #DRAW_CODE} pour une partie bloquée.
+ */
+public class Tablebase implements AutoCloseable {
+
+    /**
+     * Signature du fichier : "TRIOTB01".
+     */
+    public static final long MAGIC = 0x5452494F54423031L;
+
+    /**
+     * Issue renvoyée pour une partie bloquée (aucun camp ne peut plus gagner).
+     */
+    public static final int DRAW = -1;
+
+    /**
+     * Issue renvoyée pour une position que la table ne couvre pas.
+     */
+    public static final int UNKNOWN = -2;
+
+    /**
+     * Code d'une partie bloquée dans le fichier.
+     */
+    public static final int DRAW_CODE = 0xF;
+
+    /**
+     * Position du nombre de tranches dans l'en-tête.
+     */
+    public static final int CHUNK_COUNT_OFFSET = 12;
+
+    /**
+     * Position du premier indicateur de tranche calculée dans l'en-tête.
+     */
+    public static final int CHUNK_FLAGS_OFFSET = 16;
+
+    private final EndgameIndex index;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int dataStart;
+
+    private Tablebase(EndgameIndex index, FileChannel channel, MappedByteBuffer buffer, int dataStart) {
+        this.index = index;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.dataStart = dataStart;
+    }
+
+    /**
+     * Ouvre une table de finales complète en lecture.
+     *
+     * @param path Le fichier produit par le générateur de tables.
+     * @return La table, à fermer après usage.
+     * @throws IOException Si le fichier est illisible, invalide ou incomplet.
+     */
+    public static Tablebase open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < CHUNK_FLAGS_OFFSET || buffer.getLong(0) != MAGIC) {
+                throw new IOException("Le fichier " + path + " n'est pas une table de finales.");
+            }
+            EndgameIndex index = new EndgameIndex(buffer.get(8), buffer.get(9) != 0, buffer.get(10));
+            int chunkCount = buffer.getInt(CHUNK_COUNT_OFFSET);
+            int dataStart = dataStart(chunkCount);
+            if (buffer.limit() != dataStart + dataLength(index)) {
+                throw new IOException("La table de finales " + path + " est tronquée.");
+            }
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                if (buffer.get(CHUNK_FLAGS_OFFSET + chunk) == 0) {
+                    throw new IOException("La table de finales " + path + " est incomplète : relancez sa génération.");
+                }
+            }
+            return new Tablebase(index, channel, buffer, dataStart);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("Table de finales invalide : " + path, e);
+        }
+    }
+
+    /**
+     * @return La position des issues dans le fichier, pour un nombre de tranches donné (alignée sur 8 octets).
+     */
+    public static int dataStart(int chunkCount) {
+        return (CHUNK_FLAGS_OFFSET + chunkCount + 7) & ~7;
+    }
+
+    /**
+     * @return La taille en octets des issues de toutes les positions d'une numérotation.
+     */
+    public static long dataLength(EndgameIndex index) {
+        return (index.getTotalSize() + 1) / 2;
+    }
+
+    /**
+     * Lit l'issue d'une position numérotée dans un tampon au format de la table.
+     * @return Le code de l'issue (0 si elle n'est pas encore calculée).
+     */
+    public static int readCode(ByteBuffer buffer, int dataStart, long position) {
+        int shift = (int) (position & 1) * 4;
+        return (buffer.get(Math.toIntExact(dataStart + (position >>> 1))) >>> shift) & 0xF;
+    }
+
+    /**
+     * Écrit l'issue d'une position numérotée dans un tampon au format de la table.
+     * Les deux positions d'un même octet doivent être écrites par le même thread.
+     */
+    public static void writeCode(ByteBuffer buffer, int dataStart, long position, int code) {
+        int offset = Math.toIntExact(dataStart + (position >>> 1));
+        int shift = (int) (position & 1) * 4;
+        int current = buffer.get(offset) & ~(0xF << shift);
+        buffer.put(offset, (byte) (current | (code << shift)));
+    }
+
+    /**
+     * @return L'issue correspondant à un code lu dans le fichier (camp gagnant, {@link #DRAW} ou {@link #UNKNOWN}).
+     */
+    public static int decode(int code) {
+        if (code == 0) {
+            return UNKNOWN;
+        }
+        return code == DRAW_CODE ? DRAW : code - 1;
+    }
+
+    /**
+     * @return Le code d'une issue (camp gagnant ou {@link #DRAW}).
+     */
+    public static int encode(int outcome) {
+        return outcome == DRAW ? DRAW_CODE : outcome + 1;
+    }
+
+    public EndgameIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Cherche l'issue exacte d'une position de la partie.
+     *
+     * @param game La partie, en début de tour.
+     * @return Le camp gagnant (joueur, ou équipe en mode équipe), {@link #DRAW}, ou {@link #UNKNOWN}
+     * si la position n'est pas couverte par la table.
+     */
+    public int lookup(GameView game) {
+        long position = index.indexOf(game);
+        return position < 0 ? UNKNOWN : decode(readCode(buffer, dataStart, position));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
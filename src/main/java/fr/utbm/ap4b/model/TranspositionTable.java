@@ -0,0 +1,77 @@
+package fr.utbm.ap4b.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Table de transposition de taille fixe, indexée par clé de Zobrist ({@link Game#getZobristKey()})
+ * et partagée sans verrou entre les threads d'une recherche.
+ * <p>
+ * Chaque entrée occupe deux longs : la clé combinée par OU exclusif avec la donnée, puis la donnée.
+ * Deux threads qui écrivent la même entrée en même temps peuvent laisser un mélange des deux écritures ;
+ * le contrôle {@code clé ^ donnée} ne correspond alors plus à aucune clé et l'entrée est simplement ignorée
+ * à la lecture. Une nouvelle écriture remplace toujours l'ancienne entrée du même emplacement.
+ */
+public class TranspositionTable {
+
+    private final AtomicLongArray entries;
+    private final int indexMask;
+
+    /**
+     * @param capacity Le nombre d'entrées souhaité (arrondi à la puissance de deux supérieure).
+     * @throws IllegalArgumentException Si la capacité n'est pas comprise entre 1 et 2^29.
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity < 1 || capacity > 1 << 29) {
+            throw new IllegalArgumentException("La capacité de la table doit être comprise entre 1 et 2^29.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.entries = new AtomicLongArray(2 * size);
+        this.indexMask = size - 1;
+    }
+
+    /**
+     * @param key La clé de la position.
+     * @param missingValue La valeur à renvoyer si la position n'est pas dans la table.
+     * @return La donnée associée à la position, ou {@code missingValue}.
+     */
+    public long get(long key, long missingValue) {
+        int slot = slot(key);
+        long check = entries.get(slot);
+        long data = entries.get(slot + 1);
+        return (check ^ data) == key ? data : missingValue;
+    }
+
+    /**
+     * Associe une donnée à une position, en remplaçant l'entrée occupant le même emplacement.
+     * @param key La clé de la position.
+     * @param data La donnée à enregistrer.
+     */
+    public void put(long key, long data) {
+        int slot = slot(key);
+        entries.set(slot, key ^ data);
+        entries.set(slot + 1, data);
+    }
+
+    /**
+     * Vide la table (à n'appeler que lorsqu'aucune recherche ne l'utilise).
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, 0L);
+        }
+    }
+
+    /**
+     * @return Le nombre d'entrées de la table.
+     */
+    public int getCapacity() {
+        return indexMask + 1;
+    }
+
+    private int slot(long key) {
+        return ((int) (key ^ (key >>> 32)) & indexMask) << 1;
+    }
+}
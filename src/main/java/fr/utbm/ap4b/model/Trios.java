@@ -20,8 +20,18 @@ public enum Trios {
     SY34(11, 4),
     LG(12, 5);
 
+    // Copie unique de values() : chaque appel à values() alloue un nouveau tableau
+    private static final Trios[] VALUES = values();
+
+    // Table précalculée : NEIGHBOR_UNIONS[masque >>> 1] est l'union des voisins des valeurs du masque
+    private static final int[] NEIGHBOR_UNIONS = createNeighborUnionsTable();
+
+    // Table précalculée : ONE_WAY_LINKS[valeur] contient les valeurs liées à celle-ci dans un seul sens
+    private static final int[] ONE_WAY_LINKS = createOneWayLinksTable();
+
     private final int value;
     private final int[] neighbors;
+    private final int neighborMask; // Bit (1 << valeur) positionné pour chaque voisin (13 bits, bit 0 inutilisé)
 
     /**
      * Constructeur de l'énumération.
@@ -31,6 +41,11 @@ public enum Trios {
     Trios(int value, int... neighbors) {
         this.value = value;
         this.neighbors = neighbors;
+        int mask = 0;
+        for (int neighbor : neighbors) {
+            mask |= 1 << neighbor;
+        }
+        this.neighborMask = mask;
     }
 
     public int getValue() {
@@ -40,9 +55,78 @@ public enum Trios {
     /**
      * Récupère la liste des valeurs voisines de cette carte.
      * Ces voisins sont utilisés pour déterminer les conditions de victoire en mode "Piquant".
-     * @return Un tableau d'entiers contenant les valeurs voisines.
+     * @return Une copie du tableau d'entiers contenant les valeurs voisines.
      */
     public int[] getNeighbors() {
-        return this.neighbors;
+        return this.neighbors.clone();
+    }
+
+    /**
+     * @return Le masque d'adjacence précalculé (bit {@code 1 << valeur} pour chaque voisin).
+     */
+    public int getNeighborMask() {
+        return neighborMask;
+    }
+
+    /**
+     * @param value Une valeur de carte (1-12).
+     * @return Le type de carte correspondant.
+     */
+    public static Trios fromValue(int value) {
+        return VALUES[value - 1];
+    }
+
+    /**
+     * Calcule l'union des masques de voisins des valeurs présentes dans un masque de trios.
+     * @param trioMask Masque des valeurs (bit {@code 1 << valeur}).
+     * @return L'union des masques d'adjacence.
+     */
+    public static int neighborUnion(int trioMask) {
+        return NEIGHBOR_UNIONS[(trioMask >>> 1) & 0xFFF];
+    }
+
+    /**
+     * Indique si un nouveau trio serait lié à des trios déjà formés (condition de victoire du mode Piquant).
+     * Le lien est orienté, comme la table des voisins : deux trios sont liés lorsque celui qui est rangé
+     * le premier liste l'autre parmi ses voisins.
+     *
+     * @param earlierMask Les valeurs des trios rangés avant le nouveau (bit {@code 1 << valeur}).
+     * @param laterMask Les valeurs des trios rangés après lui (en mode équipe, ceux du second coéquipier
+     *                  lorsque le premier forme le trio ; 0 sinon).
+     * @param value La valeur du nouveau trio.
+     * @return Vrai si le nouveau trio est lié à l'un des autres.
+     */
+    public static boolean isLinked(int earlierMask, int laterMask, int value) {
+        return (neighborUnion(earlierMask) & (1 << value)) != 0 || (fromValue(value).neighborMask & laterMask) != 0;
+    }
+
+    /**
+     * @param value Une valeur de carte (1-12).
+     * @return Le masque des valeurs liées à celle-ci dans un seul sens (l'une liste l'autre, mais pas l'inverse) :
+     * pour ces paires, l'ordre dans lequel les trios sont formés décide du lien.
+     */
+    public static int oneWayLinks(int value) {
+        return ONE_WAY_LINKS[value];
+    }
+
+    private static int[] createNeighborUnionsTable() {
+        int[] table = new int[1 << 12];
+        for (int i = 1; i < table.length; i++) {
+            table[i] = table[i & (i - 1)] | VALUES[Integer.numberOfTrailingZeros(i)].neighborMask;
+        }
+        return table;
+    }
+
+    private static int[] createOneWayLinksTable() {
+        int[] table = new int[VALUES.length + 1];
+        for (Trios trio : VALUES) {
+            for (Trios other : VALUES) {
+                if ((other.neighborMask & (1 << trio.value)) != 0) {
+                    table[trio.value] |= 1 << other.value; // Valeurs qui listent celle-ci
+                }
+            }
+            table[trio.value] ^= trio.neighborMask;
+        }
+        return table;
     }
 }
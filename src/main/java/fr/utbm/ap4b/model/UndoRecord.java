@@ -0,0 +1,80 @@
+package fr.utbm.ap4b.model;
+
+/**
+ * Enregistrement compact permettant d'annuler une action appliquée par {@link Game#apply(Action)}.
+ * Il ne contient que des valeurs primitives décrivant l'état modifié par l'action :
+ * {@link Game#undo(UndoRecord)} restaure ainsi l'état précédent en temps constant.
+ * Les enregistrements doivent être annulés dans l'ordre inverse de leur création.
+ */
+public final class UndoRecord {
+
+    final Action action;
+    final int previousPlayerTurn;
+    final Game.GamePhase previousPhase;
+    final int previousSwapAllowedMask;
+    final int previousSwapDoneMask;
+    final long previousSeenMask;
+
+    // Cartes révélées avant une fin de tour
+    int revealedCount;
+    int revealed0;
+    int revealed1;
+    int revealed2;
+    int owner0;
+    int owner1;
+    int owner2;
+
+    // Fin de tour avec trio : joueur ayant marqué et positions des cartes retirées du centre
+    boolean trioFormed;
+    int scoringPlayer;
+    int centerIndex0 = -1;
+    int centerIndex1 = -1;
+    int centerIndex2 = -1;
+
+    // Échange : coéquipier ayant reçu la carte
+    int teammateIndex;
+
+    // Valeurs possibles des cartes inconnues (BeliefState) du joueur visé par une révélation,
+    // ou de l'initiateur et du coéquipier d'un échange, avant l'action
+    int previousValueConstraint;
+    int previousTeammateValueConstraint;
+
+    UndoRecord(Action action, int previousPlayerTurn, Game.GamePhase previousPhase,
+               int previousSwapAllowedMask, int previousSwapDoneMask, long previousSeenMask) {
+        this.action = action;
+        this.previousPlayerTurn = previousPlayerTurn;
+        this.previousPhase = previousPhase;
+        this.previousSwapAllowedMask = previousSwapAllowedMask;
+        this.previousSwapDoneMask = previousSwapDoneMask;
+        this.previousSeenMask = previousSeenMask;
+    }
+
+    /**
+     * @return L'action dont cet enregistrement permet l'annulation.
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    int getRevealed(int index) {
+        return index == 0 ? revealed0 : index == 1 ? revealed1 : revealed2;
+    }
+
+    int getOwner(int index) {
+        return index == 0 ? owner0 : index == 1 ? owner1 : owner2;
+    }
+
+    int getCenterIndex(int index) {
+        return index == 0 ? centerIndex0 : index == 1 ? centerIndex1 : centerIndex2;
+    }
+
+    void setCenterIndex(int index, int centerIndex) {
+        if (index == 0) {
+            centerIndex0 = centerIndex;
+        } else if (index == 1) {
+            centerIndex1 = centerIndex;
+        } else {
+            centerIndex2 = centerIndex;
+        }
+    }
+}
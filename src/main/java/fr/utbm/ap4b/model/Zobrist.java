@@ -0,0 +1,104 @@
+package fr.utbm.ap4b.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Tables de hachage de Zobrist des positions de jeu.
+ * La clé d'une position est le OU exclusif des clés de ses éléments (emplacement de chaque carte en jeu,
+ * cartes révélées, trios de chaque joueur, joueur courant, phase et joueurs ayant échangé) : elle se met à jour
+ * en temps constant à chaque changement en retirant l'ancienne clé de l'élément et en ajoutant la nouvelle.
+ * Les tables sont tirées d'une graine fixe, les clés sont donc identiques d'une exécution à l'autre.
+ */
+final class Zobrist {
+
+    private static final int MAX_PLAYERS = 6;
+    private static final int LOCATIONS = MAX_PLAYERS + 1; // Mains des joueurs, puis le centre
+    private static final int NUM_VALUES = Trios.values().length;
+
+    private static final long[] LOCATION = new long[Card.DECK_SIZE * LOCATIONS];
+    private static final long[] REVEALED = new long[Card.DECK_SIZE];
+    private static final long[] TRIO = new long[MAX_PLAYERS * NUM_VALUES];
+    private static final long[] TURN = new long[MAX_PLAYERS];
+    private static final long[] PHASE = new long[Game.GamePhase.values().length];
+    private static final long[] SWAP_DONE = new long[1 << MAX_PLAYERS]; // Indexé par masque de joueurs
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x7210_2B5E_A3C1_94D7L);
+        fill(LOCATION, random);
+        fill(REVEALED, random);
+        fill(TRIO, random);
+        fill(TURN, random);
+        fill(PHASE, random);
+        long[] swapDone = new long[MAX_PLAYERS];
+        fill(swapDone, random);
+        for (int mask = 1; mask < SWAP_DONE.length; mask++) {
+            int lowest = Integer.numberOfTrailingZeros(mask);
+            SWAP_DONE[mask] = SWAP_DONE[mask & (mask - 1)] ^ swapDone[lowest];
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param cardId L'identifiant de la carte.
+     * @param owner L'index du joueur qui la détient, ou {@link Game#CENTER_OWNER}.
+     * @return La clé de la carte à cet emplacement.
+     */
+    static long location(int cardId, int owner) {
+        return LOCATION[cardId * LOCATIONS + (owner == Game.CENTER_OWNER ? MAX_PLAYERS : owner)];
+    }
+
+    /**
+     * @return La clé d'une carte révélée pendant le tour courant.
+     */
+    static long revealed(int cardId) {
+        return REVEALED[cardId];
+    }
+
+    /**
+     * @param playerIndex Le joueur qui a formé le trio.
+     * @param cardId L'identifiant de l'une des cartes du trio.
+     * @return La clé du trio.
+     */
+    static long trio(int playerIndex, int cardId) {
+        return TRIO[playerIndex * NUM_VALUES + cardId / Card.COPIES_PER_VALUE];
+    }
+
+    static long turn(int playerIndex) {
+        return TURN[playerIndex];
+    }
+
+    static long phase(Game.GamePhase phase) {
+        return PHASE[phase.ordinal()];
+    }
+
+    /**
+     * @param swapDoneMask Le masque des joueurs ayant déjà échangé.
+     */
+    static long swapDone(int swapDoneMask) {
+        return SWAP_DONE[swapDoneMask];
+    }
+
+    /**
+     * Calcule la clé des emplacements de toutes les cartes en jeu (mains et centre).
+     */
+    static long locations(GameView game) {
+        long key = 0L;
+        for (long center = game.getCenterMask(); center != 0L; center &= center - 1) {
+            key ^= location(Long.numberOfTrailingZeros(center), Game.CENTER_OWNER);
+        }
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            for (long hand = game.getHandMask(p); hand != 0L; hand &= hand - 1) {
+                key ^= location(Long.numberOfTrailingZeros(hand), p);
+            }
+        }
+        return key;
+    }
+
+    private static void fill(long[] table, SplittableRandom random) {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextLong();
+        }
+    }
+}
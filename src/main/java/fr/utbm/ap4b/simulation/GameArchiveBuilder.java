@@ -0,0 +1,195 @@
+package fr.utbm.ap4b.simulation;
+
+import fr.utbm.ap4b.model.Game;
+import fr.utbm.ap4b.model.GameArchive;
+import fr.utbm.ap4b.model.GameRecord;
+import fr.utbm.ap4b.model.GameRecordReader;
+import fr.utbm.ap4b.model.GameRecordWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Construit une {@link GameArchive} à partir d'un fichier de parties ({@link GameRecordWriter}), et l'interroge.
+ * <p>
+ * Le fichier de parties est lu deux fois : une première fois pour compter les parties et placer la zone des parties
+ * après l'index, une seconde fois pour rejouer chaque partie (camp gagnant) et écrire son entrée d'index et ses octets.
+ * L'en-tête de l'archive n'est écrit qu'à la fin : une construction interrompue ne laisse pas d'archive valide.
+ */
+public class GameArchiveBuilder {
+
+    /**
+     * Option de la ligne de commande de {@link fr.utbm.ap4b.Main} sélectionnant les archives.
+     */
+    public static final String OPTION = "--archive";
+
+    private static final int INDEX_BUFFER_SIZE = 1 << 16;
+
+    private GameArchiveBuilder() {
+    }
+
+    /**
+     * Construit une archive.
+     *
+     * @param records Le fichier de parties.
+     * @param archive Le fichier de l'archive, remplacé s'il existe.
+     * @return Le nombre de parties archivées.
+     * @throws IOException Si un fichier est illisible, invalide, ou ne peut pas être écrit.
+     */
+    public static long build(Path records, Path archive) throws IOException {
+        long gameCount = 0;
+        try (GameRecordReader reader = GameRecordReader.open(records)) {
+            while (reader.next()) {
+                gameCount++;
+            }
+        }
+
+        try (GameRecordReader reader = GameRecordReader.open(records);
+             FileChannel channel = FileChannel.open(archive, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer index = ByteBuffer.allocateDirect(INDEX_BUFFER_SIZE);
+            ByteBuffer data = ByteBuffer.allocateDirect(GameRecordWriter.DEFAULT_BUFFER_SIZE);
+            long dataStart = GameArchive.dataStart(gameCount);
+            long indexPosition = GameArchive.HEADER_SIZE;
+            long dataPosition = dataStart;
+            long offset = 0;
+
+            while (reader.next()) {
+                int length = GameRecord.RECORD_HEADER_SIZE + reader.getActionsLength();
+                Game game = reader.replay();
+                int winner = game.isGameEnded() ? game.getCompletedTrios().getWinnerIndex() : GameArchive.NO_WINNER;
+
+                if (index.remaining() < GameArchive.ENTRY_SIZE) {
+                    indexPosition += flush(channel, index, indexPosition);
+                }
+                index.putLong(offset).putInt(length).put((byte) reader.getConfig()).put((byte) winner)
+                        .putShort((short) Math.min(reader.getTurnCount(), 0xFFFF));
+                if (data.remaining() < length) {
+                    dataPosition += flush(channel, data, dataPosition);
+                }
+                reader.copyRecordTo(data);
+                offset += length;
+            }
+            flush(channel, index, indexPosition);
+            flush(channel, data, dataPosition);
+
+            ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_SIZE);
+            header.putLong(GameArchive.MAGIC).putLong(gameCount).putLong(dataStart).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        return gameCount;
+    }
+
+    /**
+     * Écrit le contenu d'un tampon à une position du fichier et le vide.
+     * @return Le nombre d'octets écrits.
+     */
+    private static int flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int written = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        buffer.clear();
+        return written;
+    }
+
+    /**
+     * Point d'entrée, appelé par {@link fr.utbm.ap4b.Main} avec les arguments suivant {@link #OPTION}.
+     * Construction : {@code --input FICHIER} (fichier de parties) et {@code --output FICHIER} (archive).
+     * Interrogation : {@code --open FICHIER} (archive), avec {@code --game N} pour rejouer la partie N
+     * et {@code --winner C} pour compter les parties gagnées par le camp C, numéroté à partir de 1
+     * comme dans les résultats de {@link SimulationRunner} ("Joueur 1", "Équipe 1").
+     *
+     * @param args Les arguments.
+     */
+    public static void main(String[] args) {
+        String input = null;
+        String output = null;
+        String open = null;
+        long game = -1;
+        int winner = -1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--input":
+                        input = args[++i];
+                        break;
+                    case "--output":
+                        output = args[++i];
+                        break;
+                    case "--open":
+                        open = args[++i];
+                        break;
+                    case "--game":
+                        game = Long.parseLong(args[++i]);
+                        break;
+                    case "--winner":
+                        winner = Integer.parseInt(args[++i]);
+                        if (winner < 1) {
+                            throw new IllegalArgumentException("Le camp est numéroté à partir de 1 : " + winner);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Option inconnue : " + args[i]);
+                }
+            }
+            if ((input == null || output == null) && open == null) {
+                throw new IllegalArgumentException("Indiquez --input et --output, ou --open.");
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            printUsage("Valeur d'option invalide : " + Arrays.toString(args));
+            return;
+        } catch (IllegalArgumentException e) {
+            printUsage(e.getMessage());
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (open == null) {
+                long count = build(Paths.get(input), Paths.get(output));
+                System.out.printf("Archive %s : %d parties, construite en %.1f s.%n", output, count,
+                        (System.nanoTime() - start) / 1e9);
+                return;
+            }
+            try (GameArchive archive = GameArchive.open(Paths.get(open))) {
+                System.out.println("Archive " + open + " : " + archive.getGameCount() + " parties.");
+                if (game >= 0) {
+                    Game replayed = archive.replay(game);
+                    int config = archive.getConfig(game);
+                    System.out.println("Partie " + game + " : graine " + archive.getSeed(game) + ", "
+                            + GameRecord.getNumPlayers(config) + " joueurs" + (GameRecord.isTeamMode(config) ? ", mode équipe" : "")
+                            + (GameRecord.isPiquant(config) ? ", mode piquant" : "") + ", " + archive.getTurnCount(game)
+                            + " tours, " + (replayed.isGameEnded() ? "gagnée par " + replayed.getWinner().getName() : "non terminée"));
+                }
+                if (winner > 0) {
+                    int winnerIndex = winner - 1;
+                    long count = 0;
+                    for (long g = archive.nextGameWonBy(winnerIndex, 0); g >= 0;
+                         g = archive.nextGameWonBy(winnerIndex, g + 1)) {
+                        count++;
+                    }
+                    System.out.printf("Parties gagnées par le camp %d : %d (recherche en %.1f ms)%n", winner, count,
+                            (System.nanoTime() - start) / 1e6);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erreur d'archive : " + e.getMessage());
+        }
+    }
+
+    private static void printUsage(String error) {
+        System.err.println(error);
+        System.err.println("Usage : " + OPTION + " --input FICHIER --output FICHIER");
+        System.err.println("        " + OPTION + " --open FICHIER [--game N] [--winner C]   (C : camp gagnant, à partir de 1)");
+    }
+}
@@ -0,0 +1,518 @@
+package fr.utbm.ap4b.simulation;
+
+import fr.utbm.ap4b.model.Action;
+import fr.utbm.ap4b.model.CompletedTrios;
+import fr.utbm.ap4b.model.Game;
+import fr.utbm.ap4b.model.GameRecordWriter;
+import fr.utbm.ap4b.model.GameRecorder;
+import fr.utbm.ap4b.model.HeuristicPolicy;
+import fr.utbm.ap4b.model.IsmctsPolicy;
+import fr.utbm.ap4b.model.Policy;
+import fr.utbm.ap4b.model.RandomPolicy;
+import fr.utbm.ap4b.model.Tablebase;
+import fr.utbm.ap4b.model.TranspositionTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Joue des parties complètes sans interface graphique, chaque place étant contrôlée par une stratégie.
+ * Aucune boîte à outils JavaFX n'est démarrée : les parties sont créées directement à partir du modèle,
+ * sans messages console ni publication d'instantanés, afin de mesurer le débit (parties par seconde)
+ * lors de la mise au point des IA.
+ */
+public class SimulationRunner {
+
+    /**
+     * Option de la ligne de commande de {@link fr.utbm.ap4b.Main} sélectionnant la simulation.
+     */
+    public static final String OPTION = "--simulate";
+
+    /**
+     * Nombre maximal d'actions par partie : au-delà, la partie est comptée comme non terminée.
+     */
+    public static final int MAX_ACTIONS_PER_GAME = 10_000;
+
+    private final int numPlayers;
+    private final boolean isTeamMode;
+    private final boolean isPiquant;
+    private final List<String> playerNames;
+    private final int numAI;
+    private final Policy[] policies;
+
+    // Enregistrement des parties jouées (facultatif), un enregistreur par thread
+    private volatile GameRecordWriter recordWriter;
+    private final ThreadLocal<GameRecorder> recorders = ThreadLocal.withInitial(GameRecorder::new);
+
+    /**
+     * Construit un simulateur.
+     * Les stratégies peuvent être partagées entre plusieurs threads (voir {@link Tournament}) :
+     * elles ne doivent alors conserver aucun état propre à une partie.
+     *
+     * @param numPlayers Le nombre de joueurs de chaque partie.
+     * @param isTeamMode Vrai si le mode équipe est activé.
+     * @param isPiquant Vrai si le mode "Piquant" est activé.
+     * @param policies Une stratégie commune à tous les joueurs, ou une stratégie par place.
+     * @throws IllegalArgumentException Si le nombre de stratégies ne correspond pas au nombre de joueurs.
+     */
+    public SimulationRunner(int numPlayers, boolean isTeamMode, boolean isPiquant, Policy... policies) {
+        if (policies.length != 1 && policies.length != numPlayers) {
+            throw new IllegalArgumentException("Il faut une stratégie commune ou une stratégie par joueur.");
+        }
+        this.numPlayers = numPlayers;
+        this.isTeamMode = isTeamMode;
+        this.isPiquant = isPiquant;
+        this.policies = policies.clone();
+
+        // Toutes les places sont tenues par des IA (IAEquipe en mode équipe)
+        this.playerNames = Collections.emptyList();
+        this.numAI = numPlayers;
+    }
+
+    public int getNumPlayers() {
+        return numPlayers;
+    }
+
+    public boolean isTeamMode() {
+        return isTeamMode;
+    }
+
+    public boolean isPiquant() {
+        return isPiquant;
+    }
+
+    /**
+     * Enregistre les parties jouées à partir de maintenant, ou arrête de les enregistrer.
+     * @param recordWriter L'écrivain qui reçoit chaque partie terminée (partagé entre les threads), ou null.
+     */
+    public void setRecordWriter(GameRecordWriter recordWriter) {
+        this.recordWriter = recordWriter;
+    }
+
+    /**
+     * Joue une partie complète.
+     * La distribution et les choix des stratégies sont entièrement déterminés par la graine.
+     * La partie est enregistrée si un écrivain a été fourni ({@link #setRecordWriter(GameRecordWriter)}).
+     *
+     * @param gameSeed La graine de la partie.
+     * @param result Le résultat dans lequel la partie est comptabilisée.
+     * @return L'index du gagnant (l'index de l'équipe en mode équipe),
+     * ou -1 si la partie a dépassé {@link #MAX_ACTIONS_PER_GAME} actions.
+     * @throws UncheckedIOException Si l'enregistrement de la partie échoue.
+     */
+    public int playGame(long gameSeed, Result result) {
+        SplittableRandom random = new SplittableRandom(gameSeed);
+        // Distribution tirée d'une graine, pour que la partie puisse être enregistrée et rejouée
+        Game game = new Game(playerNames, numAI, isTeamMode, isPiquant, random.nextLong());
+        game.setVerbose(false);
+        game.setStatePublishing(false);
+        game.startGame();
+        GameRecordWriter writer = recordWriter;
+        GameRecorder recorder = null;
+        if (writer != null) {
+            recorder = recorders.get();
+            recorder.attach(game);
+        }
+
+        int actions = 0;
+        int turns = 0;
+        while (!game.isGameEnded() && actions < MAX_ACTIONS_PER_GAME) {
+            int actorIndex = game.getCurrentPhase() == Game.GamePhase.PLAYING
+                    ? game.getPlayerTurn()
+                    : game.getNextPendingSwapPlayerIndex();
+            Action action = policyFor(actorIndex).chooseAction(game, random);
+            if (action.getType() == Action.Type.END_TURN) {
+                turns++;
+            }
+            game.play(action);
+            actions++;
+        }
+
+        if (recorder != null) {
+            recorder.detach();
+            try {
+                writer.write(recorder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        CompletedTrios completedTrios = game.getCompletedTrios();
+        int winnerIndex = game.isGameEnded() ? completedTrios.getWinnerIndex() : -1;
+        result.record(winnerIndex, completedTrios.getWinReason(), actions, turns);
+        return winnerIndex;
+    }
+
+    /**
+     * Joue séquentiellement les parties d'index {@code [fromIndex, toIndex)} d'une série.
+     *
+     * @param fromIndex L'index de la première partie (inclus).
+     * @param toIndex L'index de la dernière partie (exclu).
+     * @param masterSeed La graine maîtresse de la série.
+     * @param result Le résultat dans lequel les parties sont comptabilisées.
+     */
+    public void playGames(long fromIndex, long toIndex, long masterSeed, Result result) {
+        for (long i = fromIndex; i < toIndex; i++) {
+            playGame(gameSeed(masterSeed, i), result);
+        }
+    }
+
+    /**
+     * Joue une série de parties sur le thread courant.
+     * Le résultat est identique à celui d'un {@link Tournament} de même graine maîtresse.
+     *
+     * @param numGames Le nombre de parties à jouer.
+     * @param masterSeed La graine maîtresse.
+     * @return Le résultat cumulé de la série.
+     */
+    public Result run(long numGames, long masterSeed) {
+        Result result = newResult();
+        long start = System.nanoTime();
+        playGames(0, numGames, masterSeed, result);
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * @return Un résultat vide adapté à la configuration du simulateur.
+     */
+    public Result newResult() {
+        return new Result(isTeamMode ? numPlayers / 2 : numPlayers, isTeamMode);
+    }
+
+    /**
+     * Calcule la graine d'une partie à partir de la graine maîtresse et de l'index de la partie
+     * (mélange SplitMix64). Chaque partie ne dépend ainsi que de son index : le résultat d'une série
+     * ne dépend ni de l'ordre dans lequel les parties sont jouées, ni du nombre de threads.
+     *
+     * @param masterSeed La graine maîtresse de la série.
+     * @param gameIndex L'index de la partie dans la série.
+     * @return La graine de la partie.
+     */
+    public static long gameSeed(long masterSeed, long gameIndex) {
+        long z = masterSeed + (gameIndex + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private Policy policyFor(int playerIndex) {
+        return policies.length == 1 ? policies[0] : policies[playerIndex];
+    }
+
+    /**
+     * Statistiques cumulées d'une série de parties.
+     */
+    public static final class Result {
+
+        private final long[] wins;
+        private final long[] winReasons = new long[CompletedTrios.WinReason.values().length];
+        private final boolean isTeamMode;
+        private long games;
+        private long unfinishedGames;
+        private long actions;
+        private long turns;
+        private long elapsedNanos;
+
+        /**
+         * @param numWinners Le nombre de gagnants possibles (joueurs, ou équipes en mode équipe).
+         * @param isTeamMode Vrai si les victoires sont comptées par équipe.
+         */
+        public Result(int numWinners, boolean isTeamMode) {
+            this.wins = new long[numWinners];
+            this.isTeamMode = isTeamMode;
+        }
+
+        void record(int winnerIndex, CompletedTrios.WinReason winReason, int gameActions, int gameTurns) {
+            games++;
+            if (winnerIndex < 0) {
+                unfinishedGames++;
+            } else {
+                wins[winnerIndex]++;
+                winReasons[winReason.ordinal()]++;
+            }
+            actions += gameActions;
+            turns += gameTurns;
+        }
+
+        /**
+         * Ajoute des statistiques cumulées à ce résultat.
+         */
+        void add(long games, long unfinishedGames, long actions, long turns, long[] wins, long[] winReasons) {
+            this.games += games;
+            this.unfinishedGames += unfinishedGames;
+            this.actions += actions;
+            this.turns += turns;
+            for (int i = 0; i < this.wins.length; i++) {
+                this.wins[i] += wins[i];
+            }
+            for (int i = 0; i < this.winReasons.length; i++) {
+                this.winReasons[i] += winReasons[i];
+            }
+        }
+
+        void setElapsedNanos(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public boolean isTeamMode() {
+            return isTeamMode;
+        }
+
+        /**
+         * @return Le nombre de gagnants possibles (joueurs, ou équipes en mode équipe).
+         */
+        public int getNumWinners() {
+            return wins.length;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getUnfinishedGames() {
+            return unfinishedGames;
+        }
+
+        /**
+         * @param winnerIndex L'index de la place (ou de l'équipe en mode équipe).
+         * @return Le nombre de parties gagnées par cette place.
+         */
+        public long getWins(int winnerIndex) {
+            return wins[winnerIndex];
+        }
+
+        /**
+         * @param reason La condition de victoire.
+         * @return Le nombre de parties gagnées par cette condition.
+         */
+        public long getWins(CompletedTrios.WinReason reason) {
+            return winReasons[reason.ordinal()];
+        }
+
+        public long getActions() {
+            return actions;
+        }
+
+        public long getTurns() {
+            return turns;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return Le débit de la série, en parties par seconde.
+         */
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : games * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Parties : %d (%d non terminées) en %.3f s, soit %.0f parties/s%n",
+                    games, unfinishedGames, elapsedNanos / 1e9, getGamesPerSecond()));
+            sb.append(String.format("Moyenne : %.1f tours et %.1f actions par partie%n",
+                    games == 0 ? 0.0 : (double) turns / games, games == 0 ? 0.0 : (double) actions / games));
+            for (int i = 0; i < wins.length; i++) {
+                sb.append(String.format("%s %d : %d victoires (%.1f %%)%n", isTeamMode ? "Équipe" : "Joueur",
+                        i + 1, wins[i], games == 0 ? 0.0 : 100.0 * wins[i] / games));
+            }
+            for (CompletedTrios.WinReason reason : CompletedTrios.WinReason.values()) {
+                long count = winReasons[reason.ordinal()];
+                if (count > 0) {
+                    sb.append(String.format("Victoires par %s : %d (%.1f %%)%n",
+                            describe(reason), count, 100.0 * count / games));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private static String describe(CompletedTrios.WinReason reason) {
+        switch (reason) {
+            case TRIO_OF_SEVENS:
+                return "trio de 7";
+            case THREE_TRIOS:
+                return "trois trios";
+            default:
+                return "trios liés";
+        }
+    }
+
+    /**
+     * Point d'entrée de la simulation, appelé par {@link fr.utbm.ap4b.Main} avec les arguments suivant {@link #OPTION}.
+     * Options : {@code --games N}, {@code --warmup N} (par défaut 100 000 parties, aucune dès qu'une place est tenue
+     * par {@code ismcts}, dont la réflexion suffit à chauffer le compilateur), {@code --players N}, {@code --team}, {@code --piquant},
+     * {@code --seed S}, {@code --threads N} (au-delà d'un thread, les parties sont réparties par un {@link Tournament}),
+     * {@code --policy P} où P vaut {@code heuristic}, {@code random} ou {@code ismcts}, ou une liste séparée par des virgules
+     * donnant la stratégie de chaque place, et {@code --budget MS} le temps de réflexion par décision des stratégies
+     * {@code ismcts} (leurs résultats dépendent alors de la vitesse de la machine et ne sont plus reproductibles),
+     * {@code --iterations N} le nombre d'itérations par décision des stratégies {@code ismcts} (sans {@code --budget},
+     * le temps n'est plus limité et les résultats sont reproductibles d'une machine à l'autre),
+     * {@code --tablebase FICHIER} une table de finales utilisée par les stratégies {@code ismcts},
+     * et {@code --record FICHIER} le fichier de parties ({@link GameRecordWriter}) auquel ajouter les parties mesurées.
+     *
+     * @param args Les arguments de la simulation.
+     */
+    public static void main(String[] args) {
+        long numGames = 1_000_000;
+        long warmupGames = -1;
+        int threads = 1;
+        int numPlayers = 4;
+        boolean isTeamMode = false;
+        boolean isPiquant = false;
+        long seed = System.nanoTime();
+        String policySpec = "heuristic";
+        long budgetMillis = -1;
+        long iterations = 0;
+        String tablebasePath = null;
+        String recordPath = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--games":
+                        numGames = Long.parseLong(args[++i]);
+                        break;
+                    case "--warmup":
+                        warmupGames = Long.parseLong(args[++i]);
+                        break;
+                    case "--players":
+                        numPlayers = Integer.parseInt(args[++i]);
+                        break;
+                    case "--team":
+                        isTeamMode = true;
+                        break;
+                    case "--piquant":
+                        isPiquant = true;
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--policy":
+                        policySpec = args[++i];
+                        break;
+                    case "--budget":
+                        budgetMillis = Long.parseLong(args[++i]);
+                        break;
+                    case "--iterations":
+                        iterations = Long.parseLong(args[++i]);
+                        if (iterations < 1) {
+                            throw new IllegalArgumentException("Le nombre d'itérations doit être au moins 1.");
+                        }
+                        break;
+                    case "--tablebase":
+                        tablebasePath = args[++i];
+                        break;
+                    case "--record":
+                        recordPath = args[++i];
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("Le nombre de threads doit être au moins 1.");
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Option inconnue : " + args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            printUsage("Valeur d'option invalide : " + Arrays.toString(args));
+            return;
+        } catch (IllegalArgumentException e) {
+            printUsage(e.getMessage());
+            return;
+        }
+
+        if (budgetMillis < 0) {
+            // Un nombre d'itérations seul fixe la réflexion indépendamment de la machine
+            budgetMillis = iterations > 0 ? Long.MAX_VALUE : IsmctsPolicy.DEFAULT_BUDGET_MILLIS;
+        }
+
+        SimulationRunner runner;
+        Policy[] policies;
+        Tablebase tablebase = null;
+        try {
+            if (tablebasePath != null) {
+                tablebase = Tablebase.open(Paths.get(tablebasePath));
+            }
+            policies = parsePolicies(policySpec, budgetMillis, iterations, tablebase);
+            runner = new SimulationRunner(numPlayers, isTeamMode, isPiquant, policies);
+        } catch (IllegalArgumentException | IOException e) {
+            printUsage(e.getMessage());
+            return;
+        }
+        if (warmupGames < 0) {
+            // Une partie de stratégie de recherche dure des secondes : 100 000 parties de préchauffage ne finiraient pas
+            warmupGames = Arrays.stream(policies).anyMatch(IsmctsPolicy.class::isInstance) ? 0 : 100_000;
+        }
+        System.out.println("Simulation : " + numPlayers + " joueurs" + (isTeamMode ? ", mode équipe" : "")
+                + (isPiquant ? ", mode piquant" : "") + ", stratégies " + policySpec + ", graine " + seed
+                + (threads > 1 ? ", " + threads + " threads" : ""));
+
+        // Préchauffage du compilateur à la volée avant la mesure
+        Tournament tournament = threads > 1 ? new Tournament(runner, threads) : null;
+        if (tournament != null) {
+            tournament.run(warmupGames, ~seed);
+        } else {
+            runner.run(warmupGames, ~seed);
+        }
+
+        // Seules les parties mesurées sont enregistrées
+        try (GameRecordWriter writer = recordPath != null ? GameRecordWriter.open(Paths.get(recordPath)) : null) {
+            runner.setRecordWriter(writer);
+            System.out.print(tournament != null ? tournament.run(numGames, seed) : runner.run(numGames, seed));
+            if (writer != null) {
+                System.out.println("Parties enregistrées dans " + recordPath + " : " + writer.getRecordCount());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Erreur d'enregistrement des parties : " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param spec Le nom d'une stratégie, ou une liste de noms séparés par des virgules (une par place).
+     * @param budgetMillis Le temps de réflexion par décision des stratégies {@code ismcts}.
+     * @param iterations Le nombre maximal d'itérations par décision des stratégies {@code ismcts}, 0 pour ne pas le limiter.
+     * @param tablebase La table de finales des stratégies {@code ismcts}, ou null.
+     * @return Les stratégies correspondantes.
+     * @throws IllegalArgumentException Si un nom de stratégie est inconnu.
+     */
+    private static Policy[] parsePolicies(String spec, long budgetMillis, long iterations, Tablebase tablebase) {
+        String[] names = spec.split(",");
+        Policy[] policies = new Policy[names.length];
+        for (int i = 0; i < names.length; i++) {
+            switch (names[i].trim()) {
+                case "heuristic":
+                    policies[i] = new HeuristicPolicy();
+                    break;
+                case "random":
+                    policies[i] = new RandomPolicy();
+                    break;
+                case "ismcts":
+                    policies[i] = new IsmctsPolicy(budgetMillis, Runtime.getRuntime().availableProcessors(), iterations,
+                            new TranspositionTable(IsmctsPolicy.DEFAULT_TABLE_CAPACITY), tablebase);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Stratégie inconnue : " + names[i]);
+            }
+        }
+        return policies;
+    }
+
+    private static void printUsage(String error) {
+        System.err.println(error);
+        System.err.println("Usage : " + OPTION + " [--games N] [--warmup N] [--players N] [--team] [--piquant] [--seed S] [--threads N]"
+                + " [--policy heuristic|random|ismcts|p1,p2,...] [--budget MS] [--iterations N] [--tablebase FICHIER]"
+                + " [--record FICHIER]");
+    }
+}
@@ -0,0 +1,465 @@
+package fr.utbm.ap4b.simulation;
+
+import fr.utbm.ap4b.model.EndgameIndex;
+import fr.utbm.ap4b.model.Tablebase;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Génère une table de finales ({@link Tablebase}) hors ligne.
+ * <p>
+ * Les couches sont résolues dans l'ordre croissant du nombre de valeurs restantes : former un trio fait passer
+ * à la couche précédente, déjà résolue, tandis que passer son tour laisse les cartes en place et donne la main
+ * au joueur suivant. Pour chaque groupe de positions (mêmes cartes, joueur courant différent), on évalue d'abord
+ * les trios que chaque joueur peut former dans son tour, puis on résout le cycle des tours passés en itérant
+ * jusqu'à stabilité à partir d'une partie bloquée. En mode équipe, les échanges qui suivent un trio sont choisis
+ * au mieux par chaque équipe concernée.
+ * <p>
+ * Chaque couche est découpée en tranches résolues en parallèle par un {@link ForkJoinPool}. Une tranche terminée
+ * est écrite sur le disque puis marquée dans l'en-tête : une génération interrompue reprend là où elle s'était
+ * arrêtée en relançant la même commande.
+ */
+public class TablebaseGenerator {
+
+    /**
+     * Option de {@link fr.utbm.ap4b.Main} qui lance la génération sans interface graphique.
+     */
+    public static final String OPTION = "--tablebase";
+
+    /**
+     * Nombre de groupes de positions par tranche (pair, pour que deux tranches ne partagent jamais un octet).
+     */
+    private static final int GROUPS_PER_CHUNK = 1 << 14;
+
+    private static final int NONE = -2;
+    private static final int DRAW = Tablebase.DRAW;
+
+    private final EndgameIndex index;
+    private final int numPlayers;
+    private final int numOwners;
+    private final int numLocations;
+
+    /**
+     * @param index La numérotation des positions à résoudre.
+     */
+    public TablebaseGenerator(EndgameIndex index) {
+        this.index = index;
+        this.numPlayers = index.getNumPlayers();
+        this.numOwners = index.getNumOwners();
+        this.numLocations = index.getNumLocations();
+    }
+
+    /**
+     * Génère (ou termine de générer) la table dans un fichier.
+     *
+     * @param path Le fichier de la table ; s'il existe déjà pour la même configuration, seules les tranches
+     *             manquantes sont calculées.
+     * @param threads Le nombre de threads de calcul.
+     * @throws IOException En cas d'erreur d'écriture, ou si le fichier existant ne correspond pas à la configuration.
+     */
+    public void generate(Path path, int threads) throws IOException {
+        int[] firstChunk = new int[index.getMaxValues() + 2];
+        for (int r = 1; r <= index.getMaxValues(); r++) {
+            firstChunk[r + 1] = firstChunk[r] + chunkCount(r);
+        }
+        int chunkCount = firstChunk[index.getMaxValues() + 1];
+        int dataStart = Tablebase.dataStart(chunkCount);
+        long fileSize = dataStart + Tablebase.dataLength(index);
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("La table demandée est trop grande (" + fileSize + " octets) : réduisez le nombre de cartes.");
+        }
+
+        boolean exists = Files.exists(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (exists && channel.size() != fileSize) {
+                throw new IOException("Le fichier " + path + " existe déjà pour une autre configuration.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (!exists) {
+                buffer.putLong(0, Tablebase.MAGIC);
+                buffer.put(8, (byte) numPlayers);
+                buffer.put(9, (byte) (index.isTeamMode() ? 1 : 0));
+                buffer.put(10, (byte) index.getMaxValues());
+                buffer.putInt(Tablebase.CHUNK_COUNT_OFFSET, chunkCount);
+                buffer.force();
+            } else if (buffer.getLong(0) != Tablebase.MAGIC || buffer.get(8) != numPlayers
+                    || (buffer.get(9) != 0) != index.isTeamMode() || buffer.get(10) != index.getMaxValues()) {
+                throw new IOException("Le fichier " + path + " existe déjà pour une autre configuration.");
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (int r = 1; r <= index.getMaxValues(); r++) {
+                    List<Integer> pending = new ArrayList<>();
+                    for (int chunk = 0; chunk < chunkCount(r); chunk++) {
+                        if (buffer.get(Tablebase.CHUNK_FLAGS_OFFSET + firstChunk[r] + chunk) == 0) {
+                            pending.add(chunk);
+                        }
+                    }
+                    System.out.println("Couche " + r + " (" + index.getLayerSize(r) + " positions) : "
+                            + pending.size() + " tranche(s) sur " + chunkCount(r) + " à calculer.");
+                    pool.invoke(new ChunkRange(buffer, dataStart, r, firstChunk[r], pending, 0, pending.size()));
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private int chunkCount(int r) {
+        long groups = index.getLayerSize(r) / numPlayers;
+        return Math.toIntExact((groups + GROUPS_PER_CHUNK - 1) / GROUPS_PER_CHUNK);
+    }
+
+    /**
+     * Tâche résolvant une liste de tranches d'une couche, découpée en deux tant qu'elle en contient plusieurs.
+     */
+    @SuppressWarnings("serial") // Tâche jamais sérialisée
+    private final class ChunkRange extends RecursiveAction {
+
+        private final MappedByteBuffer buffer;
+        private final int dataStart;
+        private final int r;
+        private final int firstChunk;
+        private final List<Integer> chunks;
+        private final int from;
+        private final int to;
+
+        ChunkRange(MappedByteBuffer buffer, int dataStart, int r, int firstChunk, List<Integer> chunks, int from, int to) {
+            this.buffer = buffer;
+            this.dataStart = dataStart;
+            this.r = r;
+            this.firstChunk = firstChunk;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) {
+                    solveChunk(chunks.get(from));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkRange(buffer, dataStart, r, firstChunk, chunks, from, middle),
+                    new ChunkRange(buffer, dataStart, r, firstChunk, chunks, middle, to));
+        }
+
+        private void solveChunk(int chunk) {
+            long groups = index.getLayerSize(r) / numPlayers;
+            long fromGroup = (long) chunk * GROUPS_PER_CHUNK;
+            long toGroup = Math.min(groups, fromGroup + GROUPS_PER_CHUNK);
+            Solver solver = new Solver(buffer, dataStart);
+            for (long group = fromGroup; group < toGroup; group++) {
+                solver.solveGroup(r, group);
+            }
+            // Les issues sont écrites sur le disque avant que la tranche soit marquée comme calculée
+            long first = index.getLayerOffset(r) + fromGroup * numPlayers;
+            long last = index.getLayerOffset(r) + toGroup * numPlayers;
+            int start = Math.toIntExact(dataStart + (first >>> 1));
+            buffer.force(start, Math.toIntExact(dataStart + ((last + 1) >>> 1)) - start);
+            buffer.put(Tablebase.CHUNK_FLAGS_OFFSET + firstChunk + chunk, (byte) 1);
+            buffer.force(Tablebase.CHUNK_FLAGS_OFFSET + firstChunk + chunk, 1);
+        }
+    }
+
+    /**
+     * Résolution des groupes de positions, avec ses tampons de travail (un par tâche).
+     */
+    private final class Solver {
+
+        private final MappedByteBuffer buffer;
+        private final int dataStart;
+        private final int[] patternIds = new int[EndgameIndex.MAX_VALUES];
+        private final int[] functionIds = new int[numPlayers];
+        private final int[][] copies = new int[EndgameIndex.MAX_VALUES][numLocations];
+        private final int[] trioOutcomes = new int[numPlayers];
+        private final int[] outcomes = new int[numPlayers];
+
+        Solver(MappedByteBuffer buffer, int dataStart) {
+            this.buffer = buffer;
+            this.dataStart = dataStart;
+        }
+
+        void solveGroup(int r, long group) {
+            int sevenRank = index.decodeGroup(r, group, patternIds, functionIds);
+            for (int rank = 0; rank < r; rank++) {
+                for (int location = 0; location < numLocations; location++) {
+                    copies[rank][location] = index.getCopies(patternIds[rank], location);
+                }
+            }
+
+            // Meilleur trio de chaque joueur (les trios accessibles ne dépendent pas du joueur)
+            Arrays.fill(trioOutcomes, NONE);
+            for (int rank = 0; rank < r; rank++) {
+                if (!isReachable(r, rank)) {
+                    continue;
+                }
+                for (int mover = 0; mover < numPlayers; mover++) {
+                    int outcome = trioOutcome(r, rank, sevenRank, mover);
+                    if (trioOutcomes[mover] == NONE || prefers(mover, outcome, trioOutcomes[mover])) {
+                        trioOutcomes[mover] = outcome;
+                    }
+                }
+            }
+
+            // Cycle des tours passés : on part d'une partie bloquée et on itère jusqu'à stabilité
+            Arrays.fill(outcomes, DRAW);
+            for (int round = 0; round < 4 * numPlayers; round++) {
+                boolean changed = false;
+                for (int mover = numPlayers - 1; mover >= 0; mover--) {
+                    int outcome = outcomes[(mover + 1) % numPlayers];
+                    if (trioOutcomes[mover] != NONE && prefers(mover, trioOutcomes[mover], outcome)) {
+                        outcome = trioOutcomes[mover];
+                    }
+                    if (outcome != outcomes[mover]) {
+                        outcomes[mover] = outcome;
+                        changed = true;
+                    }
+                }
+                if (!changed) {
+                    break;
+                }
+            }
+
+            long first = index.getLayerOffset(r) + group * numPlayers;
+            for (int mover = 0; mover < numPlayers; mover++) {
+                Tablebase.writeCode(buffer, dataStart, first + mover, Tablebase.encode(outcomes[mover]));
+            }
+        }
+
+        /**
+         * Un trio est accessible si, dans chaque main qui en contient des exemplaires, sa valeur est la plus petite
+         * ou la plus grande de la main (les exemplaires du centre sont toujours accessibles).
+         */
+        private boolean isReachable(int r, int rank) {
+            for (int player = 0; player < numPlayers; player++) {
+                if (copies[rank][player] == 0) {
+                    continue;
+                }
+                boolean lowest = true;
+                boolean highest = true;
+                for (int other = 0; other < r; other++) {
+                    if (copies[other][player] > 0) {
+                        lowest &= other >= rank;
+                        highest &= other <= rank;
+                    }
+                }
+                if (!lowest && !highest) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return L'issue de la partie si le joueur forme le trio d'un rang.
+         */
+        private int trioOutcome(int r, int rank, int sevenRank, int mover) {
+            int owner = index.ownerOf(mover);
+            if (rank == sevenRank) {
+                return owner;
+            }
+            int k = r - 1;
+            int variable = rank < sevenRank ? rank : rank - 1;
+            int table = index.getTruthTable(k, functionIds[owner]);
+            if ((table & (1 << (1 << variable))) != 0) {
+                return owner;
+            }
+
+            // Position suivante : le rang disparaît, la fonction du camp absorbe la variable
+            int[][] nextCopies = new int[r - 1][];
+            for (int i = 0, j = 0; i < r; i++) {
+                if (i != rank) {
+                    nextCopies[j++] = copies[i].clone();
+                }
+            }
+            int[] nextFunctions = new int[numOwners];
+            for (int o = 0; o < numOwners; o++) {
+                int t = index.getTruthTable(k, functionIds[o]);
+                int projected = o == owner ? EndgameIndex.absorb(t, k, variable) : EndgameIndex.drop(t, k, variable);
+                nextFunctions[o] = index.getFunctionId(k - 1, projected);
+            }
+            int nextSeven = sevenRank > rank ? sevenRank - 1 : sevenRank;
+            int nextMover = (mover + 1) % numPlayers;
+            if (!index.isTeamMode()) {
+                return lookup(r - 1, nextCopies, nextSeven, nextFunctions, nextMover);
+            }
+            return resolveSwaps(r - 1, nextCopies, nextSeven, nextFunctions, nextMover, swappingTeams(nextCopies, owner), 0);
+        }
+
+        /**
+         * @return Le masque des équipes qui échangent après un trio : toutes sauf celle qui a marqué
+         * et celles dont un membre n'a plus de carte.
+         */
+        private int swappingTeams(int[][] nextCopies, int scoringTeam) {
+            int teams = 0;
+            for (int team = 0; team < numOwners; team++) {
+                if (team != scoringTeam && handSize(nextCopies, team) > 0 && handSize(nextCopies, team + numOwners) > 0) {
+                    teams |= 1 << team;
+                }
+            }
+            return teams;
+        }
+
+        private int handSize(int[][] layout, int player) {
+            int size = 0;
+            for (int[] rankCopies : layout) {
+                size += rankCopies[player];
+            }
+            return size;
+        }
+
+        /**
+         * Chaque équipe autorisée, dans l'ordre de leurs index, choisit l'échange le plus favorable à son camp.
+         */
+        private int resolveSwaps(int r, int[][] layout, int sevenRank, int[] functions, int mover, int teams, int team) {
+            while (team < numOwners && (teams & (1 << team)) == 0) {
+                team++;
+            }
+            if (team == numOwners) {
+                return lookup(r, layout, sevenRank, functions, mover);
+            }
+            int first = team;
+            int second = team + numOwners;
+            int best = NONE;
+            for (int given = 0; given < r; given++) {
+                if (layout[given][first] == 0) {
+                    continue;
+                }
+                for (int received = 0; received < r; received++) {
+                    if (layout[received][second] == 0) {
+                        continue;
+                    }
+                    layout[given][first]--;
+                    layout[given][second]++;
+                    layout[received][second]--;
+                    layout[received][first]++;
+                    int outcome = resolveSwaps(r, layout, sevenRank, functions, mover, teams, team + 1);
+                    layout[received][first]--;
+                    layout[received][second]++;
+                    layout[given][second]--;
+                    layout[given][first]++;
+                    if (best == NONE || prefers(first, outcome, best)) {
+                        best = outcome;
+                    }
+                }
+            }
+            return best;
+        }
+
+        private int lookup(int r, int[][] layout, int sevenRank, int[] functions, int mover) {
+            int[] ids = new int[r];
+            for (int rank = 0; rank < r; rank++) {
+                ids[rank] = index.getPatternId(layout[rank]);
+            }
+            long group = index.encodeGroup(r, ids, sevenRank, functions);
+            int code = Tablebase.readCode(buffer, dataStart, index.getLayerOffset(r) + group * numPlayers + mover);
+            if (code == 0) {
+                throw new IllegalStateException("Position de la couche " + r + " non calculée.");
+            }
+            return Tablebase.decode(code);
+        }
+
+        /**
+         * @return Vrai si le joueur préfère strictement la première issue : victoire de son camp,
+         * puis partie bloquée, puis victoire d'un autre camp.
+         */
+        private boolean prefers(int player, int outcome, int other) {
+            return rank(player, outcome) > rank(player, other);
+        }
+
+        private int rank(int player, int outcome) {
+            if (outcome == index.ownerOf(player)) {
+                return 2;
+            }
+            return outcome == DRAW ? 1 : 0;
+        }
+    }
+
+    /**
+     * Point d'entrée de la génération, appelé par {@link fr.utbm.ap4b.Main} avec les arguments suivant {@link #OPTION}.
+     * Options : {@code --players N}, {@code --team}, {@code --cards C} (nombre maximal de cartes restantes,
+     * multiple de 3, 6 par défaut), {@code --threads N} et {@code --output FICHIER}.
+     *
+     * @param args Les arguments de la génération.
+     */
+    public static void main(String[] args) {
+        int numPlayers = 4;
+        boolean isTeamMode = false;
+        int maxCards = 6;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+
+        EndgameIndex index;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--players":
+                        numPlayers = Integer.parseInt(args[++i]);
+                        break;
+                    case "--team":
+                        isTeamMode = true;
+                        break;
+                    case "--cards":
+                        maxCards = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("Le nombre de threads doit être au moins 1.");
+                        }
+                        break;
+                    case "--output":
+                        output = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Option inconnue : " + args[i]);
+                }
+            }
+            if (maxCards % 3 != 0) {
+                throw new IllegalArgumentException("Le nombre de cartes doit être un multiple de 3.");
+            }
+            index = new EndgameIndex(numPlayers, isTeamMode, maxCards / 3);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            printUsage("Valeur d'option invalide : " + Arrays.toString(args));
+            return;
+        } catch (IllegalArgumentException e) {
+            printUsage(e.getMessage());
+            return;
+        }
+
+        Path path = Paths.get(output != null ? output
+                : "finales-" + numPlayers + (isTeamMode ? "-equipe" : "") + "-" + maxCards + ".tb");
+        System.out.println("Table de finales : " + numPlayers + " joueurs" + (isTeamMode ? ", mode équipe" : "")
+                + ", au plus " + maxCards + " cartes, " + index.getTotalSize() + " positions -> " + path);
+        long start = System.nanoTime();
+        try {
+            new TablebaseGenerator(index).generate(path, threads);
+        } catch (IOException e) {
+            System.err.println("Échec de la génération : " + e.getMessage());
+            return;
+        }
+        System.out.printf("Terminé en %.1f s.%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void printUsage(String error) {
+        System.err.println(error);
+        System.err.println("Usage : " + OPTION + " [--players N] [--team] [--cards C] [--threads N] [--output FICHIER]");
+    }
+}
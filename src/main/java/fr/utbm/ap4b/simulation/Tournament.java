@@ -0,0 +1,155 @@
+package fr.utbm.ap4b.simulation;
+
+import fr.utbm.ap4b.model.CompletedTrios;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Répartit une série de parties de simulation sur plusieurs cœurs à l'aide d'un {@link ForkJoinPool}.
+ * Chaque tâche joue sa plage d'index avec ses propres parties et ses propres générateurs aléatoires
+ * (dérivés de l'index de la partie), accumule ses statistiques localement, puis les verse dans des
+ * compteurs répartis ({@link LongAdder}) afin que les threads ne se disputent pas un même compteur.
+ * Comme chaque partie ne dépend que de son index, le résultat est identique quel que soit le nombre de threads.
+ */
+public class Tournament {
+
+    /**
+     * Nombre de parties en dessous duquel une tâche n'est plus découpée.
+     */
+    private static final long GAMES_PER_TASK = 4096;
+
+    private final SimulationRunner runner;
+    private final int parallelism;
+
+    /**
+     * @param runner Le simulateur utilisé par tous les threads (ses stratégies doivent être sans état).
+     * @param parallelism Le nombre de threads de calcul.
+     * @throws IllegalArgumentException Si le nombre de threads est inférieur à 1.
+     */
+    public Tournament(SimulationRunner runner, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Le nombre de threads doit être au moins 1.");
+        }
+        this.runner = runner;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Construit un tournoi utilisant tous les cœurs disponibles.
+     * @param runner Le simulateur utilisé par tous les threads (ses stratégies doivent être sans état).
+     */
+    public Tournament(SimulationRunner runner) {
+        this(runner, Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Joue une série de parties en parallèle et attend la fin de toutes les parties.
+     *
+     * @param numGames Le nombre de parties à jouer.
+     * @param masterSeed La graine maîtresse, de laquelle est dérivée la graine de chaque partie.
+     * @return Le résultat cumulé, identique à celui de {@link SimulationRunner#run(long, long)} pour la même graine.
+     */
+    public SimulationRunner.Result run(long numGames, long masterSeed) {
+        Counters counters = new Counters(runner.newResult().getNumWinners());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new GameRange(0, numGames, masterSeed, counters));
+        } finally {
+            pool.shutdown();
+        }
+        SimulationRunner.Result result = counters.toResult(runner.newResult());
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Tâche jouant les parties d'une plage d'index, découpée en deux tant qu'elle est trop grande.
+     */
+    @SuppressWarnings("serial") // Tâche jamais sérialisée
+    private final class GameRange extends RecursiveAction {
+
+        private final long fromIndex;
+        private final long toIndex;
+        private final long masterSeed;
+        private final Counters counters;
+
+        GameRange(long fromIndex, long toIndex, long masterSeed, Counters counters) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.masterSeed = masterSeed;
+            this.counters = counters;
+        }
+
+        @Override
+        protected void compute() {
+            if (toIndex - fromIndex <= GAMES_PER_TASK) {
+                SimulationRunner.Result local = runner.newResult();
+                runner.playGames(fromIndex, toIndex, masterSeed, local);
+                counters.add(local);
+                return;
+            }
+            long middle = (fromIndex + toIndex) >>> 1;
+            invokeAll(new GameRange(fromIndex, middle, masterSeed, counters),
+                    new GameRange(middle, toIndex, masterSeed, counters));
+        }
+    }
+
+    /**
+     * Compteurs partagés entre les threads du tournoi.
+     */
+    private static final class Counters {
+
+        private final LongAdder games = new LongAdder();
+        private final LongAdder unfinishedGames = new LongAdder();
+        private final LongAdder actions = new LongAdder();
+        private final LongAdder turns = new LongAdder();
+        private final LongAdder[] wins;
+        private final LongAdder[] winReasons;
+
+        Counters(int numWinners) {
+            this.wins = newAdders(numWinners);
+            this.winReasons = newAdders(CompletedTrios.WinReason.values().length);
+        }
+
+        void add(SimulationRunner.Result local) {
+            games.add(local.getGames());
+            unfinishedGames.add(local.getUnfinishedGames());
+            actions.add(local.getActions());
+            turns.add(local.getTurns());
+            for (int i = 0; i < wins.length; i++) {
+                wins[i].add(local.getWins(i));
+            }
+            for (CompletedTrios.WinReason reason : CompletedTrios.WinReason.values()) {
+                winReasons[reason.ordinal()].add(local.getWins(reason));
+            }
+        }
+
+        SimulationRunner.Result toResult(SimulationRunner.Result result) {
+            result.add(games.sum(), unfinishedGames.sum(), actions.sum(), turns.sum(), sums(wins), sums(winReasons));
+            return result;
+        }
+
+        private static LongAdder[] newAdders(int count) {
+            LongAdder[] adders = new LongAdder[count];
+            for (int i = 0; i < count; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+
+        private static long[] sums(LongAdder[] adders) {
+            long[] sums = new long[adders.length];
+            for (int i = 0; i < adders.length; i++) {
+                sums[i] = adders[i].sum();
+            }
+            return sums;
+        }
+    }
+}
@@ -10,16 +10,19 @@ import javafx.scene.layout.*;
 /**
  * Page de sélection du mode de jeu (Menu Principal).
  * Permet de choisir le mode (Normal/Piquant), le type de jeu (Individuel/Équipe)
- * et le nombre de joueurs.
+ * le nombre de joueurs, le nombre d'IA et leur difficulté.
  */
 public class ModeSelectionPage {
 
     private BorderPane root;
     private Button rulesButton;
     private Button nextButton;
+    private Button resumeButton;
     private ComboBox<String> modeComboBox;
     private ComboBox<String> teamComboBox;
     private ComboBox<String> playerComboBox;
+    private ComboBox<String> aiComboBox;
+    private ComboBox<String> difficultyComboBox;
 
     public ModeSelectionPage() {
         showScreen();
@@ -84,7 +87,27 @@ public class ModeSelectionPage {
         playerComboBox.setValue("6");
         playerContainer.getChildren().addAll(playerLabel, playerComboBox);
 
-        vBox.getChildren().addAll(titleLabel, modeContainer, teamContainer, playerContainer);
+        // Choix du nombre d'IA parmi les joueurs
+        HBox aiContainer = createBoxes();
+        Label aiLabel = new Label("Dont IA: ");
+        aiLabel.setAlignment(Pos.CENTER);
+        aiLabel.setStyle("-fx-font-size: 16px;");
+
+        aiComboBox = new ComboBox<>();
+        aiComboBox.getItems().addAll("0", "1", "2", "3", "4", "5");
+        aiComboBox.setValue("0");
+
+        // Difficulté des IA : heuristique (Facile) ou recherche arborescente (Difficile)
+        Label difficultyLabel = new Label("Difficulté: ");
+        difficultyLabel.setAlignment(Pos.CENTER);
+        difficultyLabel.setStyle("-fx-font-size: 16px;");
+
+        difficultyComboBox = new ComboBox<>();
+        difficultyComboBox.getItems().addAll("Facile", "Difficile");
+        difficultyComboBox.setValue("Facile");
+        aiContainer.getChildren().addAll(aiLabel, aiComboBox, difficultyLabel, difficultyComboBox);
+
+        vBox.getChildren().addAll(titleLabel, modeContainer, teamContainer, playerContainer, aiContainer);
 
         return vBox;
     }
@@ -122,23 +145,33 @@ public class ModeSelectionPage {
     }
 
     private HBox nextArea(){
-        HBox hBox = new HBox();
+        HBox hBox = new HBox(20);
         hBox.setPadding(new Insets(10));
         hBox.setAlignment(Pos.CENTER);
 
+        // Reprise d'une partie sauvegardée, affiché seulement s'il y en a une
+        resumeButton = new Button("Reprendre la partie");
+        resumeButton.setOnMouseEntered(e -> resumeButton.setStyle("-fx-background-color: #5C4C38;"));
+        resumeButton.setOnMouseExited(e -> resumeButton.setStyle("-fx-background-color: #8B7355;"));
+        resumeButton.managedProperty().bind(resumeButton.visibleProperty());
+        resumeButton.setVisible(false);
+
         nextButton = new Button("Suivant");
         nextButton.setOnMouseEntered(e -> nextButton.setStyle("-fx-background-color: #5C4C38;"));
         nextButton.setOnMouseExited(e -> nextButton.setStyle("-fx-background-color: #8B7355;"));
 
-        hBox.getChildren().add(nextButton);
+        hBox.getChildren().addAll(resumeButton, nextButton);
 
         return hBox;
     }
 
     public Button getRulesButton() {return rulesButton;}
     public Button getNextButton() {return nextButton;}
+    public Button getResumeButton() {return resumeButton;}
     public ComboBox<String> getModeComboBox() {return modeComboBox;}
     public ComboBox<String> getTeamComboBox() {return teamComboBox;}
     public ComboBox<String> getPlayerComboBox() {return playerComboBox;}
+    public ComboBox<String> getAIComboBox() {return aiComboBox;}
+    public ComboBox<String> getDifficultyComboBox() {return difficultyComboBox;}
     public BorderPane getRoot() {return root;}
 }
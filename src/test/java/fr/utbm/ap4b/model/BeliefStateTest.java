@@ -0,0 +1,233 @@
+package fr.utbm.ap4b.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie la mise à jour de l'état de croyance d'une partie : révélations, trios, échanges et annulations.
+ */
+class BeliefStateTest {
+
+    @Test
+    void revealedExtremesBoundUnknownCards() {
+        Game game = newGame(3, false, false, 1L);
+        BeliefState belief = game.getBeliefState();
+        long hand = game.getHandMask(1);
+        int smallestValue = Long.numberOfTrailingZeros(hand) / Card.COPIES_PER_VALUE + 1;
+        int largestValue = (63 - Long.numberOfLeadingZeros(hand)) / Card.COPIES_PER_VALUE + 1;
+
+        UndoRecord smallest = game.apply(Action.revealSmallest(1));
+        assertEquals(values(smallestValue, 12), belief.getValueConstraint(1));
+        UndoRecord largest = game.apply(Action.revealLargest(1));
+        assertEquals(values(smallestValue, largestValue), belief.getValueConstraint(1));
+        assertEquals(Long.bitCount(hand) - 2, belief.getUnknownCount(1));
+        assertTrue(belief.getMinCount(1, smallestValue) >= 1);
+        assertEquals(0, belief.getMaxCount(1, largestValue + 1));
+        assertEquals(BeliefState.ALL_VALUES, belief.getValueConstraint(0));
+
+        // Les annulations rétablissent les contraintes d'avant chaque révélation
+        game.undo(largest);
+        assertEquals(values(smallestValue, 12), belief.getValueConstraint(1));
+        game.undo(smallest);
+        assertEquals(BeliefState.ALL_VALUES, belief.getValueConstraint(1));
+        assertEquals(Long.bitCount(hand), belief.getUnknownCount(1));
+    }
+
+    @Test
+    void constraintsHoldForActualHandsThroughoutGames() {
+        Policy policy = new HeuristicPolicy();
+        SplittableRandom random = new SplittableRandom(3);
+        int[][] configs = {{3, 0, 0}, {4, 1, 0}, {6, 1, 1}, {5, 0, 1}};
+        int trios = 0;
+        for (int g = 0; g < 400; g++) {
+            int[] config = configs[g % configs.length];
+            Game game = newGame(config[0], config[1] != 0, config[2] != 0, g);
+            Deque<UndoRecord> history = new ArrayDeque<>();
+            while (!game.isGameEnded()) {
+                history.push(game.apply(policy.chooseAction(game, random)));
+                assertConsistent(game);
+                // De temps en temps, annule puis rejoue la dernière action
+                if (random.nextInt(4) == 0) {
+                    UndoRecord last = history.pop();
+                    int[] constraints = constraints(game);
+                    game.undo(last);
+                    assertConsistent(game);
+                    history.push(game.apply(last.getAction()));
+                    assertEquals(Arrays.toString(constraints), Arrays.toString(constraints(game)));
+                }
+            }
+            trios += game.getCompletedTrios().getTrioCount(0);
+            // Les annulations ramènent à l'état de la distribution
+            while (!history.isEmpty()) {
+                game.undo(history.pop());
+            }
+            for (int p = 0; p < game.getNumPlayers(); p++) {
+                assertEquals(BeliefState.ALL_VALUES, game.getBeliefState().getValueConstraint(p));
+            }
+        }
+        assertTrue(trios > 0, "Aucun trio formé : leur suivi n'a pas été exercé");
+    }
+
+    @Test
+    void exchangeForgetsBothHands() {
+        // Mode équipe à 4 : 0 et 2 sont coéquipiers. Le 5 et le 9 de 0 ont été vus, le 4 de 2 aussi ;
+        // l'échange porte sur deux cartes jamais vues, les cartes vues restent dans leur main
+        Game game = position(4, true, Game.GamePhase.POST_TRIO_SWAP, new long[]{
+                cards(id(5, 0), id(7, 0), id(9, 0)), cards(id(1, 0), id(12, 0)),
+                cards(id(2, 0), id(3, 0), id(4, 0)), cards(id(6, 0), id(11, 0))},
+                cards(id(5, 0), id(9, 0), id(4, 0)),
+                new int[]{values(5, 9), BeliefState.ALL_VALUES, values(1, 4), BeliefState.ALL_VALUES});
+        BeliefState belief = game.getBeliefState();
+
+        UndoRecord exchange = game.apply(Action.exchange(0, id(7, 0), id(3, 0)));
+        // Rien ne distingue les cartes restées en place de celles échangées
+        assertEquals(0L, belief.getSeenCards(0));
+        assertEquals(0L, belief.getSeenCards(2));
+        assertEquals(0L, game.getSeenMask() & (game.getHandMask(0) | game.getHandMask(2)));
+        assertEquals(3, belief.getUnknownCount(0));
+        assertEquals(Card.COPIES_PER_VALUE, belief.getHiddenCopies(5));
+        assertEquals(values(1, 9), belief.getPossibleValues(0));
+        assertEquals(values(1, 9), belief.getPossibleValues(2));
+        assertConsistent(game);
+
+        game.undo(exchange);
+        assertEquals(cards(id(5, 0), id(9, 0)), belief.getSeenCards(0));
+        assertEquals(cards(id(4, 0)), belief.getSeenCards(2));
+        assertEquals(values(5, 9), belief.getValueConstraint(0));
+        assertEquals(values(1, 4), belief.getValueConstraint(2));
+    }
+
+    @Test
+    void copyAndSnapshotKeepConstraints() {
+        Game game = newGame(3, false, false, 2L);
+        game.apply(Action.revealSmallest(1));
+        game.apply(Action.revealLargest(1));
+        int constraint = game.getBeliefState().getValueConstraint(1);
+
+        Game copy = game.copy();
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.MAX_SIZE);
+        new GameSnapshot().encode(game, null, buffer);
+        buffer.flip();
+        Game restored = new GameSnapshot().decode(buffer, null);
+
+        for (Game other : new Game[]{copy, restored}) {
+            for (int p = 0; p < game.getNumPlayers(); p++) {
+                assertEquals(game.getBeliefState().getPossibleValues(p), other.getBeliefState().getPossibleValues(p));
+                assertEquals(game.getBeliefState().getSeenCards(p), other.getBeliefState().getSeenCards(p));
+            }
+        }
+        // La copie est indépendante de la partie d'origine
+        copy.apply(Action.endTurn());
+        assertEquals(constraint, game.getBeliefState().getValueConstraint(1));
+    }
+
+    /**
+     * Vérifie que l'état de croyance est compatible avec les mains réelles et les trios formés.
+     */
+    private static void assertConsistent(Game game) {
+        BeliefState belief = game.getBeliefState();
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            long hand = game.getHandMask(p);
+            long unknown = hand & ~game.getSeenMask();
+            assertEquals(hand & game.getSeenMask(), belief.getSeenCards(p));
+            assertEquals(Long.bitCount(unknown), belief.getUnknownCount(p));
+            for (long rest = unknown; rest != 0L; rest &= rest - 1) {
+                int value = Long.numberOfTrailingZeros(rest) / Card.COPIES_PER_VALUE + 1;
+                assertTrue((belief.getPossibleValues(p) & (1 << value)) != 0,
+                        "Le joueur " + p + " possède un " + value + " jugé impossible");
+            }
+            for (int value = 1; value <= 12; value++) {
+                int count = Long.bitCount(hand & (7L << (value - 1) * Card.COPIES_PER_VALUE));
+                assertTrue(belief.getMinCount(p, value) <= count && count <= belief.getMaxCount(p, value));
+            }
+        }
+        assertEquals(game.getCenterMask() & game.getSeenMask(), belief.getSeenCenterCards());
+        // Les exemplaires d'une valeur rangée dans un trio sont tous localisés
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            for (int value = 1; value <= 12; value++) {
+                if ((game.getCompletedTrios().getTrioMask(p) & (1 << value)) != 0) {
+                    assertEquals(0, belief.getHiddenCopies(value));
+                }
+            }
+        }
+    }
+
+    /**
+     * Pose une position où le joueur 0 a la main : les mains fournies, toutes les autres cartes au centre.
+     * @param constraints Les valeurs possibles des cartes inconnues de chaque joueur.
+     */
+    private static Game position(int numPlayers, boolean isTeamMode, Game.GamePhase phase, long[] hands, long seen,
+                                 int[] constraints) {
+        Game game = new Game(Collections.emptyList(), numPlayers, isTeamMode, false, 0L);
+        game.setVerbose(false);
+        long inHands = 0L;
+        for (long hand : hands) {
+            inHands |= hand;
+        }
+        int[] center = new int[Card.DECK_SIZE];
+        int centerCount = 0;
+        for (int id = 0; id < Card.DECK_SIZE; id++) {
+            if ((inHands & (1L << id)) == 0) {
+                center[centerCount++] = id;
+            }
+        }
+        int allPlayers = (1 << numPlayers) - 1;
+        game.restore(hands, center, centerCount, new int[numPlayers][Card.DECK_SIZE], new int[numPlayers],
+                new int[3], new int[3], 0, seen, 0, phase,
+                phase == Game.GamePhase.PLAYING ? 0 : allPlayers, 0, constraints);
+        return game;
+    }
+
+    private static int id(int value, int copy) {
+        return (value - 1) * Card.COPIES_PER_VALUE + copy;
+    }
+
+    private static long cards(int... ids) {
+        long mask = 0L;
+        for (int id : ids) {
+            mask |= 1L << id;
+        }
+        return mask;
+    }
+
+    private static int[] constraints(Game game) {
+        int[] constraints = new int[game.getNumPlayers()];
+        for (int p = 0; p < constraints.length; p++) {
+            constraints[p] = game.getBeliefState().getValueConstraint(p);
+        }
+        return constraints;
+    }
+
+    /**
+     * Crée une partie distribuée ; le mode équipe n'accepte que des joueurs nommés, le mode normal est joué par des IA.
+     */
+    private static Game newGame(int numPlayers, boolean isTeamMode, boolean isPiquant, long seed) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; isTeamMode && i < numPlayers; i++) {
+            names.add("Joueur " + (i + 1));
+        }
+        Game game = new Game(names, isTeamMode ? 0 : numPlayers, isTeamMode, isPiquant, seed);
+        game.setVerbose(false);
+        game.setStatePublishing(false);
+        game.startGame();
+        return game;
+    }
+
+    /**
+     * @return Le masque des valeurs de {@code from} à {@code to} incluses.
+     */
+    private static int values(int from, int to) {
+        return (2 << to) - (1 << from);
+    }
+}
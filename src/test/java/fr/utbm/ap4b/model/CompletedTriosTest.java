@@ -0,0 +1,57 @@
+package fr.utbm.ap4b.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vérifie la condition de victoire du mode Piquant : le lien entre deux trios suit l'ordre de la table des voisins.
+ */
+class CompletedTriosTest {
+
+    @Test
+    void linkFollowsFormationOrder() {
+        // Le 2 liste le 5 parmi ses voisins, mais le 5 ne liste pas le 2
+        CompletedTrios twoThenFive = new CompletedTrios(3, false, true);
+        addTrio(twoThenFive, 0, 2);
+        addTrio(twoThenFive, 0, 5);
+        assertEquals(0, twoThenFive.getWinnerIndex());
+        assertEquals(CompletedTrios.WinReason.LINKED_TRIOS, twoThenFive.getWinReason());
+
+        CompletedTrios fiveThenTwo = new CompletedTrios(3, false, true);
+        addTrio(fiveThenTwo, 0, 5);
+        addTrio(fiveThenTwo, 0, 2);
+        assertEquals(-1, fiveThenTwo.getWinnerIndex());
+
+        // Les liens symétriques ne dépendent pas de l'ordre
+        CompletedTrios twelveThenFive = new CompletedTrios(3, false, true);
+        addTrio(twelveThenFive, 1, 12);
+        addTrio(twelveThenFive, 1, 5);
+        assertEquals(1, twelveThenFive.getWinnerIndex());
+    }
+
+    @Test
+    void firstTeammateTriosComeFirst() {
+        // Mode équipe à 4 : les trios du joueur 0 sont rangés avant ceux du joueur 2, quel que soit l'ordre de formation
+        CompletedTrios secondFormsTwoFirst = new CompletedTrios(4, true, true);
+        addTrio(secondFormsTwoFirst, 2, 2);
+        addTrio(secondFormsTwoFirst, 0, 5);
+        assertEquals(-1, secondFormsTwoFirst.getWinnerIndex());
+
+        CompletedTrios secondFormsFiveFirst = new CompletedTrios(4, true, true);
+        addTrio(secondFormsFiveFirst, 2, 5);
+        addTrio(secondFormsFiveFirst, 0, 2);
+        assertEquals(0, secondFormsFiveFirst.getWinnerIndex());
+
+        // Après annulation du trio gagnant, le même 2 formé par le second coéquipier est rangé après son 5
+        secondFormsFiveFirst.removeLastTrio(0);
+        assertEquals(-1, secondFormsFiveFirst.getWinnerIndex());
+        addTrio(secondFormsFiveFirst, 2, 2);
+        assertEquals(-1, secondFormsFiveFirst.getWinnerIndex());
+    }
+
+    private static void addTrio(CompletedTrios trios, int playerIndex, int value) {
+        int first = (value - 1) * Card.COPIES_PER_VALUE;
+        trios.addTrio(playerIndex, first, first + 1, first + 2);
+    }
+}
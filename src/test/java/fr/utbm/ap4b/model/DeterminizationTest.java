@@ -0,0 +1,137 @@
+package fr.utbm.ap4b.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie que la déterminisation d'une partie respecte ce que tous savent des mains cachées
+ * sans jamais reprendre la distribution réelle faute de mieux.
+ */
+class DeterminizationTest {
+
+    @Test
+    void tightConstraintsAreSampledWithoutRevealingTheDeal() {
+        // Le joueur 2 ne peut avoir que des 5 et en cache trois ; le joueur 1 ne peut avoir que des 5 ou des 6
+        // et en cache deux : il ne peut recevoir que deux des trois 6, ce que plusieurs distributions permettent
+        long[] hands = {cards(id(1, 0), id(2, 0)), cards(id(6, 0), id(6, 1)), cards(id(5, 0), id(5, 1), id(5, 2))};
+        Game game = position(hands, new int[]{BeliefState.ALL_VALUES, values(5, 6), values(5, 5)});
+        long sixes = cards(id(6, 0), id(6, 1), id(6, 2));
+
+        SplittableRandom random = new SplittableRandom(1);
+        int differentDeals = 0;
+        for (int i = 0; i < 100; i++) {
+            Game copy = game.determinize(0, random);
+            assertEquals(hands[0], copy.getHandMask(0));
+            assertEquals(hands[2], copy.getHandMask(2));
+            assertEquals(2, Long.bitCount(copy.getHandMask(1) & sixes), "Le joueur 1 a reçu une carte impossible");
+            assertEquals(game.getCenterMask() | game.getHandMask(1), copy.getCenterMask() | copy.getHandMask(1));
+            // Les cartes du centre sont redistribuées : retrouver leur ordre réel trahirait la distribution réelle
+            assertNotEquals(game.getDrawPile().getRemainingCards(), copy.getDrawPile().getRemainingCards());
+            if (copy.getHandMask(1) != hands[1]) {
+                differentDeals++;
+            }
+        }
+        assertTrue(differentDeals > 0, "La déterminisation reprend toujours la distribution réelle");
+    }
+
+    @Test
+    void determinizedHandsFollowBeliefThroughoutGames() {
+        Policy policy = new HeuristicPolicy();
+        SplittableRandom random = new SplittableRandom(5);
+        int[][] configs = {{3, 0}, {4, 1}, {6, 1}, {5, 0}};
+        int positions = 0;
+        int differentDeals = 0;
+        for (int g = 0; g < 100; g++) {
+            int[] config = configs[g % configs.length];
+            Game game = new Game(Collections.emptyList(), config[0], false, config[1] != 0, g);
+            game.setVerbose(false);
+            game.setStatePublishing(false);
+            game.startGame();
+            while (!game.isGameEnded()) {
+                int observer = game.getPlayerTurn();
+                Game copy = game.determinize(observer, random);
+                assertDeterminized(game, copy, observer);
+                positions++;
+                for (int p = 0; p < game.getNumPlayers(); p++) {
+                    if (p != observer && copy.getHandMask(p) != game.getHandMask(p)) {
+                        differentDeals++;
+                        break;
+                    }
+                }
+                game.apply(policy.chooseAction(game, random));
+            }
+        }
+        // Seules les positions où tout est connu (fin de partie) peuvent reprendre la distribution réelle
+        assertTrue(differentDeals > positions * 9 / 10, differentDeals + " distributions différentes sur " + positions);
+    }
+
+    /**
+     * Vérifie qu'une copie déterminisée ne change que les cartes inconnues de l'observateur,
+     * en respectant les valeurs encore possibles de chaque main.
+     */
+    private static void assertDeterminized(Game game, Game copy, int observer) {
+        long seen = game.getSeenMask();
+        assertEquals(game.getHandMask(observer), copy.getHandMask(observer));
+        assertEquals(game.getCenterMask() & seen, copy.getCenterMask() & seen);
+        assertEquals(Long.bitCount(game.getCenterMask()), Long.bitCount(copy.getCenterMask()));
+        for (int p = 0; p < game.getNumPlayers(); p++) {
+            long hand = copy.getHandMask(p);
+            assertEquals(game.getHandMask(p) & seen, hand & seen);
+            assertEquals(Long.bitCount(game.getHandMask(p)), Long.bitCount(hand));
+            int possible = game.getBeliefState().getValueConstraint(p);
+            for (long rest = hand & ~seen; rest != 0L; rest &= rest - 1) {
+                int value = Long.numberOfTrailingZeros(rest) / Card.COPIES_PER_VALUE + 1;
+                assertTrue((possible & (1 << value)) != 0, "Le joueur " + p + " a reçu un " + value + " impossible");
+            }
+        }
+    }
+
+    /**
+     * Pose une position à trois joueurs où le joueur 0 a la main : les mains fournies, toutes les autres cartes
+     * au centre, aucune carte vue.
+     * @param constraints Les valeurs possibles des cartes inconnues de chaque joueur.
+     */
+    private static Game position(long[] hands, int[] constraints) {
+        Game game = new Game(Collections.emptyList(), hands.length, false, false, 0L);
+        game.setVerbose(false);
+        long inHands = 0L;
+        for (long hand : hands) {
+            inHands |= hand;
+        }
+        int[] center = new int[Card.DECK_SIZE];
+        int centerCount = 0;
+        for (int id = 0; id < Card.DECK_SIZE; id++) {
+            if ((inHands & (1L << id)) == 0) {
+                center[centerCount++] = id;
+            }
+        }
+        game.restore(hands, center, centerCount, new int[hands.length][Card.DECK_SIZE], new int[hands.length],
+                new int[3], new int[3], 0, 0L, 0, Game.GamePhase.PLAYING, 0, 0, constraints);
+        return game;
+    }
+
+    private static int id(int value, int copy) {
+        return (value - 1) * Card.COPIES_PER_VALUE + copy;
+    }
+
+    private static long cards(int... ids) {
+        long mask = 0L;
+        for (int id : ids) {
+            mask |= 1L << id;
+        }
+        return mask;
+    }
+
+    /**
+     * @return Le masque des valeurs de {@code from} à {@code to} incluses.
+     */
+    private static int values(int from, int to) {
+        return (2 << to) - (1 << from);
+    }
+}
@@ -0,0 +1,99 @@
+package fr.utbm.ap4b.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie que le moteur de tours n'alloue rien en régime établi : révélations, validation et score des trios,
+ * nettoyage du tour et détection de la victoire travaillent sur les tampons primitifs de la partie.
+ */
+class GameAllocationTest {
+
+    private static final int WARMUP_GAMES = 20_000;
+    private static final List<String> NAMES = List.of("A", "B", "C", "D");
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void simulatedTurnsAllocateNothing() {
+        for (int i = 0; i < WARMUP_GAMES; i++) {
+            playTurns(newGame(i), Integer.MAX_VALUE);
+        }
+
+        // Le nombre d'octets alloués ne dépend pas du nombre de tours joués : il est nul
+        for (int turns : new int[]{10, 100, 1_000}) {
+            Game[] games = new Game[turns / 10];
+            for (int g = 0; g < games.length; g++) {
+                games[g] = newGame(WARMUP_GAMES + turns + g);
+            }
+            int trios = 0;
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+            for (Game game : games) {
+                playTurns(game, 10);
+                trios += game.getCompletedTrios().getTrioCount(0) + game.getCompletedTrios().getTrioCount(1)
+                        + game.getCompletedTrios().getTrioCount(2) + game.getCompletedTrios().getTrioCount(3);
+            }
+            long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().threadId()) - before;
+
+            assertEquals(0, allocated, turns + " tours ont alloué " + allocated + " octets");
+            assertTrue(trios > 0, "Aucun trio formé : le score n'a pas été exercé");
+        }
+    }
+
+    private static Game newGame(long seed) {
+        Game game = new Game(NAMES, 0, false, false, seed);
+        game.setVerbose(false);
+        game.setStatePublishing(false);
+        game.startGame();
+        return game;
+    }
+
+    /**
+     * Joue des tours complets : le joueur révèle sa plus petite carte, puis cherche les autres exemplaires
+     * de sa valeur aux extrémités des mains et au centre, en connaissant toutes les cartes.
+     */
+    private static void playTurns(Game game, int turns) {
+        for (int played = 0; !game.isGameEnded() && played < turns; played++) {
+            game.revealSmallestCardFromPlayer(game.getPlayerTurn());
+            int value = Card.fromId(game.getRevealedCardId(0)).getValue();
+            while (game.canRevealCard() && revealCopy(game, value)) {
+                // Révèle jusqu'au trio, ou jusqu'à ce qu'aucun exemplaire ne soit accessible
+            }
+            game.nextTurn();
+        }
+    }
+
+    /**
+     * @return Vrai si un exemplaire de la valeur a été révélé.
+     */
+    private static boolean revealCopy(Game game, int value) {
+        long revealedMask = game.getRevealedMask();
+        for (int p = 0; p < game.getPlayers().size(); p++) {
+            ActorHand hand = game.getPlayers().get(p).getHand();
+            Card smallest = hand.getSmallestCard(revealedMask);
+            if (smallest != null && smallest.getValue() == value) {
+                game.revealSmallestCardFromPlayer(p);
+                return true;
+            }
+            Card largest = hand.getLargestCard(revealedMask);
+            if (largest != null && largest.getValue() == value) {
+                game.revealLargestCardFromPlayer(p);
+                return true;
+            }
+        }
+        for (int copy = 0; copy < Card.COPIES_PER_VALUE; copy++) {
+            Card card = Card.fromId((value - 1) * Card.COPIES_PER_VALUE + copy);
+            if ((revealedMask & (1L << card.getId())) == 0 && game.getDrawPile().contains(card)) {
+                game.revealCardFromDrawPile(card);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,124 @@
+package fr.utbm.ap4b.model;
+
+import fr.utbm.ap4b.simulation.GameArchiveBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Vérifie qu'une partie rejouée dans une partie existante ({@link GameArchive#replay(long, Game)}) aboutit au même état
+ * qu'une partie recréée, sans allocation.
+ */
+class GameArchiveTest {
+
+    private static final int GAMES_PER_CONFIG = 30;
+    private static final int[] CONFIGS = {
+            GameRecord.config(3, false, false),
+            GameRecord.config(4, true, false),
+            GameRecord.config(5, false, true)
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayIntoExistingGameMatchesRecreatedGame() throws IOException {
+        try (GameArchive archive = buildArchive()) {
+            Game[] targets = newTargets();
+            for (long game = 0; game < archive.getGameCount(); game++) {
+                Game target = targets[(int) (game % CONFIGS.length)];
+                archive.replay(game, target);
+                Game expected = archive.replay(game);
+
+                assertEquals(expected.getZobristKey(), target.getZobristKey(), "Partie " + game);
+                assertEquals(expected.getCompletedTrios().getWinnerIndex(), target.getCompletedTrios().getWinnerIndex());
+                assertEquals(expected.getSeenMask(), target.getSeenMask());
+                assertEquals(archive.getWinner(game) != GameArchive.NO_WINNER, target.isGameEnded());
+            }
+        }
+    }
+
+    @Test
+    void replayIntoExistingGameAllocatesNothing() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        try (GameArchive archive = buildArchive()) {
+            Game[] targets = newTargets();
+            for (int pass = 0; pass < 200; pass++) {
+                replayAll(archive, targets);
+            }
+
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+            replayAll(archive, targets);
+            long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().threadId()) - before;
+
+            assertEquals(0, allocated, archive.getGameCount() + " parties rejouées ont alloué " + allocated + " octets");
+        }
+    }
+
+    @Test
+    void replayRejectsTargetOfAnotherConfiguration() throws IOException {
+        try (GameArchive archive = buildArchive()) {
+            Game target = GameRecord.newGame(0, CONFIGS[1]);
+            assertThrows(IllegalArgumentException.class, () -> archive.replay(0, target));
+        }
+    }
+
+    @Test
+    void resetDealsLikeNewGame() {
+        for (int config : CONFIGS) {
+            Game target = GameRecord.newGame(-1, config);
+            for (long seed = 0; seed < 100; seed++) {
+                target.reset(seed);
+                Game expected = GameRecord.newGame(seed, config);
+                assertEquals(expected.getZobristKey(), target.getZobristKey(), "Graine " + seed);
+                assertEquals(expected.getCenterMask(), target.getCenterMask());
+                assertEquals(seed, target.getSeed().getAsLong());
+            }
+        }
+    }
+
+    private static void replayAll(GameArchive archive, Game[] targets) {
+        for (long game = 0; game < archive.getGameCount(); game++) {
+            archive.replay(game, targets[(int) (game % CONFIGS.length)]);
+        }
+    }
+
+    private static Game[] newTargets() {
+        Game[] targets = new Game[CONFIGS.length];
+        for (int i = 0; i < CONFIGS.length; i++) {
+            targets[i] = GameRecord.newGame(0, CONFIGS[i]);
+        }
+        return targets;
+    }
+
+    /**
+     * Enregistre des parties jouées par la stratégie heuristique, en alternant les configurations, puis construit l'archive.
+     */
+    private GameArchive buildArchive() throws IOException {
+        Path records = directory.resolve("parties.rec");
+        Path archive = directory.resolve("parties.arc");
+        HeuristicPolicy policy = new HeuristicPolicy();
+        SplittableRandom random = new SplittableRandom(7);
+        GameRecorder recorder = new GameRecorder();
+        try (GameRecordWriter writer = GameRecordWriter.open(records)) {
+            for (int i = 0; i < GAMES_PER_CONFIG * CONFIGS.length; i++) {
+                Game game = GameRecord.newGame(1_000 + i, CONFIGS[i % CONFIGS.length]);
+                recorder.attach(game);
+                while (!game.isGameEnded()) {
+                    game.play(policy.chooseAction(game, random));
+                }
+                recorder.detach();
+                writer.write(recorder);
+            }
+        }
+        GameArchiveBuilder.build(records, archive);
+        return GameArchive.open(archive);
+    }
+}
@@ -0,0 +1,145 @@
+package fr.utbm.ap4b.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie les fichiers de parties : des parties écrites par {@link GameRecordWriter}, y compris ajoutées à un fichier
+ * existant, sont relues à l'identique par {@link GameRecordReader} et rejouées jusqu'au même état final ;
+ * un fichier tronqué est signalé.
+ */
+class GameRecordFileTest {
+
+    private static final int GAMES = 60;
+    // Assez de parties pour remplir plusieurs fois les tampons de l'écrivain et du lecteur
+    private static final int COPIES = 80;
+    private static final int[] CONFIGS = {
+            GameRecord.config(3, false, false),
+            GameRecord.config(4, true, false),
+            GameRecord.config(6, true, true),
+            GameRecord.config(5, false, true)
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedGamesAreReadBackAndReplayed() throws IOException {
+        Path file = directory.resolve("parties.rec");
+        Game[] games = new Game[GAMES];
+        byte[][] actions = new byte[GAMES][];
+        playGames(games, actions);
+
+        // Première moitié, puis ajout de la seconde moitié au fichier existant
+        int total = GAMES * COPIES;
+        for (int half = 0; half < 2; half++) {
+            try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+                for (int i = half * total / 2; i < (half + 1) * total / 2; i++) {
+                    Game game = games[i % GAMES];
+                    writer.write(game.getSeed().getAsLong(), GameRecord.config(game), actions[i % GAMES], 0,
+                            actions[i % GAMES].length);
+                }
+                assertEquals(total / 2, writer.getRecordCount());
+            }
+        }
+        assertTrue(Files.size(file) > 2L * GameRecordWriter.DEFAULT_BUFFER_SIZE, "Les tampons n'ont pas été remplis");
+
+        ByteBuffer record = ByteBuffer.allocate(GameRecord.MAX_RECORD_SIZE);
+        try (GameRecordReader reader = GameRecordReader.open(file)) {
+            for (int i = 0; i < total; i++) {
+                assertTrue(reader.next(), "Partie " + i + " manquante");
+                Game expected = games[i % GAMES];
+                assertEquals(expected.getSeed().getAsLong(), reader.getSeed());
+                assertEquals(GameRecord.config(expected), reader.getConfig());
+                assertEquals(actions[i % GAMES].length, reader.getActionsLength());
+
+                record.clear();
+                reader.copyRecordTo(record);
+                byte[] read = Arrays.copyOfRange(record.array(), GameRecord.RECORD_HEADER_SIZE, record.position());
+                assertArrayEquals(actions[i % GAMES], read, "Partie " + i);
+
+                if (i < GAMES) {
+                    Game replayed = reader.replay();
+                    assertEquals(expected.getZobristKey(), replayed.getZobristKey(), "Partie " + i);
+                    assertEquals(expected.isGameEnded(), replayed.isGameEnded());
+                    assertEquals(expected.getCompletedTrios().getWinnerIndex(),
+                            replayed.getCompletedTrios().getWinnerIndex());
+                    assertEquals(expected.getSeenMask(), replayed.getSeenMask());
+                }
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void truncatedFileIsReported() throws IOException {
+        Path file = directory.resolve("parties.rec");
+        Game[] games = new Game[4];
+        byte[][] actions = new byte[4][];
+        playGames(games, actions);
+        try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+            for (int i = 0; i < games.length; i++) {
+                writer.write(games[i].getSeed().getAsLong(), GameRecord.config(games[i]), actions[i], 0,
+                        actions[i].length);
+            }
+        }
+        long size = Files.size(file);
+        int lastRecord = GameRecord.RECORD_HEADER_SIZE + actions[games.length - 1].length;
+
+        // Coupé au milieu des actions de la dernière partie, puis au milieu de son en-tête
+        for (long cut : new long[]{size - 1, size - lastRecord + GameRecord.RECORD_HEADER_SIZE / 2}) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(cut);
+            }
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                for (int i = 0; i < games.length - 1; i++) {
+                    assertTrue(reader.next());
+                }
+                assertThrows(EOFException.class, reader::next, "Fichier coupé à " + cut + " octets");
+            }
+        }
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Path file = directory.resolve("autre.txt");
+        Files.write(file, "Ceci n'est pas un fichier de parties.".getBytes());
+        assertThrows(IOException.class, () -> GameRecordReader.open(file));
+        assertThrows(IOException.class, () -> GameRecordWriter.open(file));
+    }
+
+    /**
+     * Joue des parties avec la stratégie heuristique, en alternant les configurations, et garde leurs actions.
+     */
+    private static void playGames(Game[] games, byte[][] actions) {
+        HeuristicPolicy policy = new HeuristicPolicy();
+        SplittableRandom random = new SplittableRandom(13);
+        GameRecorder recorder = new GameRecorder();
+        for (int i = 0; i < games.length; i++) {
+            Game game = GameRecord.newGame(500 + i, CONFIGS[i % CONFIGS.length]);
+            recorder.attach(game);
+            while (!game.isGameEnded()) {
+                game.play(policy.chooseAction(game, random));
+            }
+            recorder.detach();
+            games[i] = game;
+            actions[i] = Arrays.copyOf(recorder.getActions(), recorder.getLength());
+        }
+    }
+}
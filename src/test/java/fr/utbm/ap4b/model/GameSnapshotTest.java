@@ -0,0 +1,169 @@
+package fr.utbm.ap4b.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie la sauvegarde d'une partie en cours ({@link GameSnapshot}) telle que l'utilise la sauvegarde automatique :
+ * un instantané relu puis réécrit est identique à l'octet près, la partie reprise se poursuit comme l'originale
+ * et son enregistrement reprend à la suite, et un instantané tronqué ou altéré est refusé.
+ */
+class GameSnapshotTest {
+
+    private static final int[] CONFIGS = {
+            GameRecord.config(3, false, false),
+            GameRecord.config(4, true, false),
+            GameRecord.config(6, true, true),
+            GameRecord.config(5, false, true)
+    };
+
+    @Test
+    void snapshotsRoundTripAtEveryStep() {
+        HeuristicPolicy policy = new HeuristicPolicy();
+        SplittableRandom random = new SplittableRandom(11);
+        GameSnapshot snapshot = new GameSnapshot();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(GameSnapshot.MAX_SIZE);
+        int[] phases = new int[Game.GamePhase.values().length];
+
+        for (int g = 0; g < 40; g++) {
+            Game game = GameRecord.newGame(g, CONFIGS[g % CONFIGS.length]);
+            GameRecorder recorder = new GameRecorder();
+            recorder.attach(game);
+            while (true) {
+                byte[] encoded = encode(snapshot, game, recorder, buffer);
+                GameRecorder resumed = new GameRecorder();
+                Game restored = snapshot.decode(ByteBuffer.wrap(encoded), resumed);
+
+                assertSame(restored, resumed.getGame(), "L'enregistrement ne reprend pas");
+                assertArrayEquals(encoded, encode(snapshot, restored, resumed, buffer), "Partie " + g);
+                assertEquals(game.getZobristKey(), restored.getZobristKey());
+                phases[game.getCurrentPhase().ordinal()]++;
+                if (game.isGameEnded()) {
+                    break;
+                }
+                game.play(policy.chooseAction(game, random));
+            }
+        }
+        assertTrue(phases[Game.GamePhase.INITIAL_SWAP.ordinal()] > 0, "Aucun instantané pendant l'échange initial");
+        assertTrue(phases[Game.GamePhase.POST_TRIO_SWAP.ordinal()] > 0, "Aucun instantané pendant un échange après trio");
+    }
+
+    @Test
+    void resumedGameContinuesLikeOriginal() {
+        HeuristicPolicy policy = new HeuristicPolicy();
+        GameSnapshot snapshot = new GameSnapshot();
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.MAX_SIZE);
+
+        for (int g = 0; g < 20; g++) {
+            Game game = new Game(List.of("Alice", "Bob"), 1 + g % 3, false, g % 2 == 0, g);
+            game.setVerbose(false);
+            game.startGame();
+            GameRecorder recorder = new GameRecorder();
+            recorder.attach(game);
+            SplittableRandom random = new SplittableRandom(g);
+            for (int step = 0; step < 5 * g && !game.isGameEnded(); step++) {
+                game.play(policy.chooseAction(game, random));
+            }
+
+            GameRecorder resumedRecorder = new GameRecorder();
+            Game resumed = snapshot.decode(ByteBuffer.wrap(encode(snapshot, game, recorder, buffer)), resumedRecorder);
+            assertEquals("Alice", resumed.getPlayers().get(0).getName());
+            assertEquals("Bob", resumed.getPlayers().get(1).getName());
+
+            // Les deux parties reçoivent les mêmes actions et restent identiques jusqu'à la fin
+            while (!game.isGameEnded()) {
+                Action action = policy.chooseAction(game, random);
+                game.play(action);
+                resumed.play(action);
+                assertEquals(game.getZobristKey(), resumed.getZobristKey());
+            }
+            assertTrue(resumed.isGameEnded());
+            assertEquals(game.getWinner().getName(), resumed.getWinner().getName());
+            assertArrayEquals(Arrays.copyOf(recorder.getActions(), recorder.getLength()),
+                    Arrays.copyOf(resumedRecorder.getActions(), resumedRecorder.getLength()));
+        }
+    }
+
+    @Test
+    void truncatedSnapshotIsRejected() {
+        byte[] encoded = encodeMidGame();
+        for (int length = 0; length < encoded.length; length++) {
+            ByteBuffer truncated = ByteBuffer.wrap(encoded, 0, length);
+            assertThrows(IllegalArgumentException.class, () -> new GameSnapshot().decode(truncated, null),
+                    "Instantané tronqué à " + length + " octets accepté");
+        }
+    }
+
+    @Test
+    void corruptedSnapshotIsRejected() {
+        byte[] encoded = encodeMidGame();
+        for (int position = 0; position < encoded.length; position++) {
+            byte[] corrupted = encoded.clone();
+            corrupted[position] ^= 0x10;
+            assertThrows(IllegalArgumentException.class,
+                    () -> new GameSnapshot().decode(ByteBuffer.wrap(corrupted), new GameRecorder()),
+                    "Octet " + position + " altéré accepté");
+        }
+    }
+
+    @Test
+    void encodingAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Game game = GameRecord.newGame(3, CONFIGS[1]);
+        GameRecorder recorder = new GameRecorder();
+        recorder.attach(game);
+        GameSnapshot snapshot = new GameSnapshot();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(GameSnapshot.MAX_SIZE);
+        for (int i = 0; i < 50_000; i++) {
+            buffer.clear();
+            snapshot.encode(game, recorder, buffer);
+        }
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+        for (int i = 0; i < 1_000; i++) {
+            buffer.clear();
+            snapshot.encode(game, recorder, buffer);
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().threadId()) - before;
+
+        assertEquals(0, allocated, "1000 instantanés ont alloué " + allocated + " octets");
+    }
+
+    /**
+     * Encode un instantané dans le tampon, comme la sauvegarde automatique, et en renvoie les octets.
+     */
+    private static byte[] encode(GameSnapshot snapshot, Game game, GameRecorder recorder, ByteBuffer buffer) {
+        buffer.clear();
+        snapshot.encode(game, recorder, buffer);
+        buffer.flip();
+        byte[] encoded = new byte[buffer.remaining()];
+        buffer.get(encoded);
+        return encoded;
+    }
+
+    /**
+     * @return L'instantané d'une partie en équipe, enregistrée, après quelques tours.
+     */
+    private static byte[] encodeMidGame() {
+        Game game = GameRecord.newGame(5, CONFIGS[1]);
+        GameRecorder recorder = new GameRecorder();
+        recorder.attach(game);
+        HeuristicPolicy policy = new HeuristicPolicy();
+        SplittableRandom random = new SplittableRandom(5);
+        for (int step = 0; step < 20 && !game.isGameEnded(); step++) {
+            game.play(policy.chooseAction(game, random));
+        }
+        return encode(new GameSnapshot(), game, recorder, ByteBuffer.allocate(GameSnapshot.MAX_SIZE));
+    }
+}
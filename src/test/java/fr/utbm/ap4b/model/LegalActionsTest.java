@@ -0,0 +1,184 @@
+package fr.utbm.ap4b.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie le générateur d'actions codées ({@link LegalActions}) : chaque action générée est acceptée par la partie,
+ * les autres sont refusées, le codage est réversible et la génération n'alloue rien.
+ */
+class LegalActionsTest {
+
+    private static final int[] CONFIGS = {
+            GameRecord.config(3, false, false),
+            GameRecord.config(4, true, false),
+            GameRecord.config(6, true, true),
+            GameRecord.config(5, false, true)
+    };
+
+    @Test
+    void generatedActionsAreAcceptedThroughoutRandomGames() {
+        SplittableRandom random = new SplittableRandom(17);
+        int[] codes = new int[LegalActions.MAX_ACTIONS];
+        int exchanges = 0;
+        for (int g = 0; g < 100; g++) {
+            Game game = GameRecord.newGame(g, CONFIGS[g % CONFIGS.length]);
+            while (!game.isGameEnded()) {
+                int count = LegalActions.generate(game, codes);
+                assertTrue(count > 0, "Aucune action générée dans une partie en cours");
+                assertGenerationMatchesLegality(game, codes, count);
+
+                long key = game.getZobristKey();
+                for (int i = 0; i < count; i++) {
+                    UndoRecord undo = game.apply(LegalActions.toAction(codes[i]));
+                    game.undo(undo);
+                    assertEquals(key, game.getZobristKey());
+                    if (codes[i] >= LegalActions.EXCHANGE_BASE) {
+                        exchanges++;
+                    }
+                }
+                game.play(LegalActions.toAction(codes[random.nextInt(count)]));
+            }
+            assertEquals(0, LegalActions.generate(game, codes));
+            assertEquals(0L, LegalActions.revealMask(game));
+        }
+        assertTrue(exchanges > 0, "Aucun échange généré : les phases d'échange n'ont pas été exercées");
+    }
+
+    @Test
+    void codesAndActionsRoundTrip() {
+        for (int code = 0; code < LegalActions.EXCHANGE_BASE; code++) {
+            Action action = LegalActions.toAction(code);
+            assertEquals(code, LegalActions.encode(action));
+            assertSame(action, LegalActions.toAction(code), "Les révélations et la fin de tour sont partagées");
+        }
+        for (int initiator = 0; initiator < LegalActions.MAX_PLAYERS; initiator++) {
+            for (int give = 0; give < Card.DECK_SIZE; give++) {
+                for (int receive = 0; receive < Card.DECK_SIZE; receive++) {
+                    int code = LegalActions.exchangeCode(initiator, give, receive);
+                    Action action = LegalActions.toAction(code);
+                    assertEquals(Action.Type.EXCHANGE, action.getType());
+                    assertEquals(initiator, action.getPlayerIndex());
+                    assertEquals(give, action.getGiveCardId());
+                    assertEquals(receive, action.getReceiveCardId());
+                    assertEquals(code, LegalActions.encode(action));
+                }
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> LegalActions.toAction(-1));
+    }
+
+    @Test
+    void largestOfSingleCardIsLegalButNotGenerated() {
+        // Le joueur 1 n'a qu'une carte : sa plus grande est aussi sa plus petite
+        Game game = new Game(Collections.emptyList(), 3, false, false, 0L);
+        game.setVerbose(false);
+        long[] hands = {1L << 0 | 1L << 3, 1L << 12, 1L << 6 | 1L << 9};
+        int[] center = new int[Card.DECK_SIZE];
+        int centerCount = 0;
+        for (int id = 0; id < Card.DECK_SIZE; id++) {
+            if (((hands[0] | hands[1] | hands[2]) & (1L << id)) == 0) {
+                center[centerCount++] = id;
+            }
+        }
+        game.restore(hands, center, centerCount, new int[3][Card.DECK_SIZE], new int[3], new int[3], new int[3], 0,
+                0L, 0, Game.GamePhase.PLAYING, 0, 0,
+                new int[]{BeliefState.ALL_VALUES, BeliefState.ALL_VALUES, BeliefState.ALL_VALUES});
+
+        int largest = LegalActions.REVEAL_LARGEST_BASE + 1;
+        int[] codes = new int[LegalActions.MAX_ACTIONS];
+        int count = LegalActions.generate(game, codes);
+        for (int i = 0; i < count; i++) {
+            assertTrue(codes[i] != largest, "La plus grande carte d'une main d'une carte est générée");
+        }
+        assertTrue(LegalActions.isLegal(game, 1));
+        assertTrue(LegalActions.isLegal(game, largest));
+        assertEquals(0L, LegalActions.revealMask(game) & (1L << largest));
+
+        game.apply(LegalActions.toAction(largest));
+        assertEquals(12, game.getRevealedCardId(0));
+        assertFalse(LegalActions.isLegal(game, largest), "La carte déjà révélée reste proposée");
+        assertFalse(LegalActions.isLegal(game, 1));
+    }
+
+    @Test
+    void generationAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        SplittableRandom random = new SplittableRandom(23);
+        Game[] positions = new Game[400];
+        for (int i = 0; i < positions.length; i++) {
+            Game game = GameRecord.newGame(i, CONFIGS[i % CONFIGS.length]);
+            for (int step = random.nextInt(60); step > 0 && !game.isGameEnded(); step--) {
+                game.play(LegalActions.toAction(randomCode(game, random)));
+            }
+            positions[i] = game;
+        }
+        int[] codes = new int[LegalActions.MAX_ACTIONS];
+        for (int pass = 0; pass < 200; pass++) {
+            exercise(positions, codes);
+        }
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+        long checksum = exercise(positions, codes);
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().threadId()) - before;
+
+        assertEquals(0, allocated, positions.length + " positions ont alloué " + allocated + " octets");
+        assertTrue(checksum != 0L);
+    }
+
+    /**
+     * Vérifie que les codes générés sont exactement les codes autorisés, à la plus grande carte près
+     * d'un joueur à qui il n'en reste qu'une.
+     */
+    private static void assertGenerationMatchesLegality(Game game, int[] codes, int count) {
+        long generated = 0L;
+        for (int i = 0; i < count; i++) {
+            assertTrue(LegalActions.isLegal(game, codes[i]), "Code " + codes[i] + " généré mais refusé");
+            if (codes[i] < LegalActions.EXCHANGE_BASE) {
+                generated |= 1L << codes[i];
+            }
+        }
+        assertEquals(generated, LegalActions.revealMask(game));
+        for (int code = 0; code < LegalActions.EXCHANGE_BASE; code++) {
+            boolean singleCard = code >= LegalActions.REVEAL_LARGEST_BASE && code < LegalActions.REVEAL_CENTER_BASE
+                    && (generated & (1L << (code - LegalActions.REVEAL_LARGEST_BASE))) != 0L;
+            assertEquals((generated & (1L << code)) != 0L || singleCard, LegalActions.isLegal(game, code),
+                    "Code " + code);
+        }
+    }
+
+    private static int randomCode(Game game, SplittableRandom random) {
+        int[] codes = new int[LegalActions.MAX_ACTIONS];
+        return codes[random.nextInt(LegalActions.generate(game, codes))];
+    }
+
+    /**
+     * Génère et teste les actions de chaque position, sans créer d'échange.
+     * @return Une somme des codes, pour que le travail ne soit pas éliminé.
+     */
+    private static long exercise(Game[] positions, int[] codes) {
+        long checksum = 0L;
+        for (Game game : positions) {
+            int count = LegalActions.generate(game, codes);
+            checksum += LegalActions.revealMask(game);
+            for (int i = 0; i < count; i++) {
+                if (LegalActions.isLegal(game, codes[i])) {
+                    checksum += codes[i];
+                }
+                if (codes[i] < LegalActions.EXCHANGE_BASE) {
+                    checksum += LegalActions.toAction(codes[i]).getType().ordinal();
+                }
+            }
+        }
+        return checksum;
+    }
+}
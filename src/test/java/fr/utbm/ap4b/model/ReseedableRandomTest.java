@@ -0,0 +1,37 @@
+package fr.utbm.ap4b.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vérifie que le générateur réutilisable reproduit {@code new SplittableRandom(seed)} : les parties enregistrées
+ * avant son introduction gardent la même distribution.
+ */
+class ReseedableRandomTest {
+
+    @Test
+    void matchesSplittableRandomAfterEachReseed() {
+        ReseedableRandom random = new ReseedableRandom(0);
+        for (long seed = -50; seed < 50; seed++) {
+            random.setSeed(seed * 0x9E3779B97F4A7C15L);
+            SplittableRandom expected = new SplittableRandom(seed * 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(expected.nextInt(i + 1), random.nextInt(i + 1));
+                assertEquals(expected.nextLong(), random.nextLong());
+                assertEquals(expected.nextInt(), random.nextInt());
+            }
+        }
+    }
+
+    @Test
+    void seededDrawPileKeepsItsShuffle() {
+        for (long seed = 0; seed < 200; seed++) {
+            DrawPile expected = new DrawPile(new SplittableRandom(seed));
+            DrawPile pile = new DrawPile(seed);
+            assertEquals(expected.getRemainingCards(), pile.getRemainingCards(), "Graine " + seed);
+        }
+    }
+}